@@ -26,10 +26,13 @@ import org.exist.xquery.XPathException;
 import org.jfree.chart.axis.CategoryLabelPositions;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.util.TableOrder;
+import org.jfree.data.xml.NumberTextBuffer;
 import org.w3c.dom.Node;
 
 import java.awt.*;
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 
 /**
  * Class for storing all configuration items for charts, except chart type.
@@ -97,7 +100,7 @@ public class Configuration {
     private Double rangeLowerMargin;
     private Double rangeUpperMargin;
 
-    // Domain
+    // Domain, for TimeSeriesChart the bounds may also be an xs:date or xs:dateTime
     private Double domainLowerBound;
     private Double domainUpperBound;
     private Double domainLowerMargin;
@@ -127,6 +130,9 @@ public class Configuration {
     private boolean outlineVisible = true;
     private boolean pieSectionOutlinesVisible = true;
 
+    // draw the chart antialiased; without, an m4 downsampled chart is identical to the full chart
+    private boolean antiAlias = true;
+
     // for XYBarRenderer
     private boolean useYInterval = false;
     private boolean useDomainSymbolAxis = false;
@@ -134,6 +140,55 @@ public class Configuration {
     private boolean useRangeSymbolAxis = false;
     private Float lineWidth;
 
+    // for XYDataset, sort items on X value; off keeps the items in document order
+    private boolean autoSort = true;
+
+    // format of binary or string data: binary, csv or tsv
+    private String dataFormat = null;
+
+    // for XYLineChart and XYAreaChart, reduce the series: lttb or m4
+    private String downsample = null;
+    private Integer downsamplePoints = null;
+
+    // for ScatterPlot and BubbleChart, draw the density of the points: grid
+    private String density = null;
+    private int densityBinSize = 4;
+
+    // for PieDataset charts and MultiplePieChart, keep the largest sections, merge the others
+    private Integer maxSections = null;
+    private String otherLabel = "Other";
+
+    // for TimeSeriesChart, aggregate the values per bucket of milliseconds: mean, sum, min, max or count
+    private Long bucket = null;
+    private String aggregate = "mean";
+    // the start of a bucket, by default the epoch, or Monday 1970-01-05 for weeks
+    private Long bucketOrigin = null;
+
+    // for Histogram, the number or the width of the bins, by default Freedman-Diaconis
+    private Integer bins = null;
+    private Double binWidth = null;
+
+    // for BoxAndWhiskerChart, the number of items a quantile sketch retains per level
+    private int sketchSize = 200;
+
+    // for PNG images, the deflate level 0-9, the encoder (imageio or deflate) and the row filter of the deflate encoder
+    private Integer pngCompressionLevel = null;
+    private String pngEncoder = "imageio";
+    private String pngFilter = "adaptive";
+
+    // for PNG images, the number of pixels from which the deflate encoder compresses bands of rows in parallel, 0 never
+    private int pngParallelThreshold = 4000000;
+
+    // for SVG images, the decimals of the coordinates, writing styles as CSS classes and merging outlines into one path
+    private Integer svgPrecision = null;
+    private boolean svgStyleClasses = false;
+    private boolean svgMergePaths = false;
+
+    // for JPEG images, the quality 0.0-1.0, progressive encoding and the chroma subsampling (420, 422 or 444)
+    private float jpegQuality = 0.95f;
+    private boolean jpegProgressive = false;
+    private String jpegSubsampling = "420";
+
     // =========================
     // Getters
     public String getImageType() {
@@ -220,6 +275,10 @@ public class Configuration {
         return pieSectionOutlinesVisible;
     }
 
+    public boolean isAntiAlias() {
+        return antiAlias;
+    }
+
     public boolean isUseYInterval() {
         return useYInterval;
     }
@@ -236,6 +295,126 @@ public class Configuration {
         return useRangeSymbolAxis;
     }
 
+    public boolean isAutoSort() {
+        return autoSort;
+    }
+
+    public String getDataFormat() {
+        return dataFormat;
+    }
+
+    public String getDownsample() {
+        return downsample;
+    }
+
+    /**
+     * @return The number of points to reduce each series to, by default the image width.
+     */
+    public int getDownsamplePoints() {
+        return downsamplePoints == null ? imageWidth : downsamplePoints;
+    }
+
+    public String getDensity() {
+        return density;
+    }
+
+    public int getDensityBinSize() {
+        return densityBinSize;
+    }
+
+    public Integer getMaxSections() {
+        return maxSections;
+    }
+
+    public String getOtherLabel() {
+        return otherLabel;
+    }
+
+    /**
+     * @return The length of the time buckets in milliseconds, null when not bucketing.
+     */
+    public Long getBucket() {
+        return bucket;
+    }
+
+    public String getAggregate() {
+        return aggregate;
+    }
+
+    /**
+     * @return The milliseconds since the epoch where a bucket starts, null for the default.
+     */
+    public Long getBucketOrigin() {
+        return bucketOrigin;
+    }
+
+    public Integer getBins() {
+        return bins;
+    }
+
+    public Double getBinWidth() {
+        return binWidth;
+    }
+
+    public int getSketchSize() {
+        return sketchSize;
+    }
+
+    /**
+     * @return The deflate level of PNG images, null for the default of the encoder.
+     */
+    public Integer getPngCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public String getPngEncoder() {
+        return pngEncoder;
+    }
+
+    /**
+     * @return The PNG row filter: none, sub, up, average, paeth or adaptive.
+     */
+    public String getPngFilter() {
+        return pngFilter;
+    }
+
+    /**
+     * @return The number of pixels from which PNG images are deflated in parallel, 0 when never.
+     */
+    public int getPngParallelThreshold() {
+        return pngParallelThreshold;
+    }
+
+    /**
+     * @return The number of decimals of SVG coordinates, null for the default of the renderer.
+     */
+    public Integer getSvgPrecision() {
+        return svgPrecision;
+    }
+
+    public boolean isSvgStyleClasses() {
+        return svgStyleClasses;
+    }
+
+    public boolean isSvgMergePaths() {
+        return svgMergePaths;
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    public boolean isJpegProgressive() {
+        return jpegProgressive;
+    }
+
+    /**
+     * @return The JPEG chroma subsampling: 420, 422 or 444.
+     */
+    public String getJpegSubsampling() {
+        return jpegSubsampling;
+    }
+
     public PlotOrientation getOrientation() {
         return orientation;
     }
@@ -545,6 +724,10 @@ public class Configuration {
                             outlineVisible = parseBoolean(value);
                             verifyValue(localName, outlineVisible);
                             break;
+                        case "antiAlias":
+                            antiAlias = parseBoolean(value);
+                            verifyValue(localName, antiAlias);
+                            break;
 
                         case "pieSectionOutlinesVisible":
                             pieSectionOutlinesVisible = parseBoolean(value);
@@ -571,6 +754,182 @@ public class Configuration {
                             verifyValue(localName, useRangeSymbolAxis);
                             break;
 
+                        case "autoSort":
+                            autoSort = parseBoolean(value);
+                            verifyValue(localName, autoSort);
+                            break;
+
+                        case "dataFormat":
+                            if ("binary".equalsIgnoreCase(value) || "csv".equalsIgnoreCase(value)
+                                    || "tsv".equalsIgnoreCase(value)) {
+                                dataFormat = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "downsample":
+                            if ("lttb".equalsIgnoreCase(value) || "m4".equalsIgnoreCase(value)) {
+                                downsample = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "downsamplePoints":
+                            downsamplePoints = parseInteger(value);
+                            verifyValue(localName, downsamplePoints);
+                            break;
+
+                        case "density":
+                            if ("grid".equalsIgnoreCase(value)) {
+                                density = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "densityBinSize":
+                            densityBinSize = parseInteger(value);
+                            verifyValue(localName, densityBinSize);
+                            break;
+
+                        case "maxSections":
+                            maxSections = parseInteger(value);
+                            verifyValue(localName, maxSections);
+                            if (maxSections < 1) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "otherLabel":
+                            otherLabel = value;
+                            break;
+
+                        case "bucket":
+                            bucket = parseBucket(value);
+                            verifyValue(localName, bucket);
+                            break;
+
+                        case "bucketOrigin":
+                            bucketOrigin = parseDateTime(value);
+                            verifyValue(localName, bucketOrigin);
+                            break;
+
+                        case "bins":
+                            bins = parseInteger(value);
+                            verifyValue(localName, bins);
+                            if (bins < 1) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "binWidth":
+                            binWidth = parseDouble(value);
+                            verifyValue(localName, binWidth);
+                            if (!(binWidth > 0) || binWidth.isInfinite()) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "sketchSize":
+                            sketchSize = parseInteger(value);
+                            verifyValue(localName, sketchSize);
+                            if (sketchSize < 8) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "aggregate":
+                            if ("mean".equalsIgnoreCase(value) || "sum".equalsIgnoreCase(value)
+                                    || "min".equalsIgnoreCase(value) || "max".equalsIgnoreCase(value)
+                                    || "count".equalsIgnoreCase(value)) {
+                                aggregate = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "pngCompressionLevel":
+                            pngCompressionLevel = parseInteger(value);
+                            verifyValue(localName, pngCompressionLevel);
+                            if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "pngEncoder":
+                            if ("imageio".equalsIgnoreCase(value) || "deflate".equalsIgnoreCase(value)) {
+                                pngEncoder = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "pngFilter":
+                            if ("none".equalsIgnoreCase(value) || "sub".equalsIgnoreCase(value)
+                                    || "up".equalsIgnoreCase(value) || "average".equalsIgnoreCase(value)
+                                    || "paeth".equalsIgnoreCase(value) || "adaptive".equalsIgnoreCase(value)) {
+                                pngFilter = value.toLowerCase();
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "pngParallelThreshold":
+                            pngParallelThreshold = parseInteger(value);
+                            verifyValue(localName, pngParallelThreshold);
+                            if (pngParallelThreshold < 0) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "svgPrecision":
+                            svgPrecision = parseInteger(value);
+                            verifyValue(localName, svgPrecision);
+                            if (svgPrecision < 0 || svgPrecision > 12) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "svgStyleClasses":
+                            svgStyleClasses = parseBoolean(value);
+                            verifyValue(localName, svgStyleClasses);
+                            break;
+
+                        case "svgMergePaths":
+                            svgMergePaths = parseBoolean(value);
+                            verifyValue(localName, svgMergePaths);
+                            break;
+
+                        case "jpegQuality":
+                            jpegQuality = parseFloat(value);
+                            verifyValue(localName, jpegQuality);
+                            if (jpegQuality < 0f || jpegQuality > 1f) {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
+                        case "jpegProgressive":
+                            jpegProgressive = parseBoolean(value);
+                            verifyValue(localName, jpegProgressive);
+                            break;
+
+                        case "jpegSubsampling":
+                            if ("420".equals(value) || "422".equals(value) || "444".equals(value)) {
+                                jpegSubsampling = value;
+
+                            } else {
+                                throw new XPathException(MessageFormat.format("Wrong value for \"{0}\"", localName));
+                            }
+                            break;
+
                         case "width":
                             imageWidth = parseInteger(value);
                             verifyValue(localName, imageWidth);
@@ -649,12 +1008,12 @@ public class Configuration {
                             break;
 
                         case "domainLowerBound":
-                            domainLowerBound = parseDouble(value);
+                            domainLowerBound = parseDoubleOrDateTime(value);
                             verifyValue(localName, domainLowerBound);
                             break;
 
                         case "domainUpperBound":
-                            domainUpperBound = parseDouble(value);
+                            domainUpperBound = parseDoubleOrDateTime(value);
                             verifyValue(localName, domainUpperBound);
                             break;
 
@@ -788,6 +1147,64 @@ public class Configuration {
         return child.getFirstChild().getNodeValue();
     }
 
+    /**
+     * Parse a bucket length: second, minute, hour, day, week or an ISO 8601 duration
+     * like PT15M. NULL is returned when value cannot be converted or is not positive.
+     *
+     * @param value The text representation
+     * @return the length in milliseconds
+     */
+    private Long parseBucket(final String value) {
+        switch (value.toLowerCase()) {
+            case "second":
+                return 1000L;
+            case "minute":
+                return 60_000L;
+            case "hour":
+                return 3_600_000L;
+            case "day":
+                return 86_400_000L;
+            case "week":
+                return 604_800_000L;
+            default:
+                try {
+                    final long millis = Duration.parse(value).toMillis();
+                    return millis > 0 ? millis : null;
+
+                } catch (final DateTimeParseException | ArithmeticException ex) {
+                    LOGGER.debug(ex.getMessage());
+                    return null;
+                }
+        }
+    }
+
+    /**
+     * Parse an xs:date or xs:dateTime, a date or dateTime without timezone
+     * is in UTC. NULL is returned when value cannot be converted.
+     *
+     * @param value The text representation
+     * @return the milliseconds since the epoch
+     */
+    private Long parseDateTime(final String value) {
+        final NumberTextBuffer text = new NumberTextBuffer();
+        text.append(value);
+        final double millis = text.parseDateTime();
+        return Double.isNaN(millis) ? null : (long) millis;
+    }
+
+    /**
+     * Parse a number, or an xs:date or xs:dateTime as the milliseconds since
+     * the epoch. NULL is returned when value cannot be converted.
+     */
+    private Double parseDoubleOrDateTime(final String value) {
+        final Double number = parseDouble(value);
+        if (number != null) {
+            return number;
+        }
+        final Long millis = parseDateTime(value);
+        return millis == null ? null : millis.doubleValue();
+    }
+
     /**
      * Verify that an value could be converted
      *
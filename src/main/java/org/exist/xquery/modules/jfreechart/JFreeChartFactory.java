@@ -23,27 +23,42 @@ package org.exist.xquery.modules.jfreechart;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.xquery.XPathException;
+import org.exist.xquery.modules.jfreechart.data.BoxAndWhiskerSummary;
+import org.exist.xquery.modules.jfreechart.data.DatasetSource;
+import org.exist.xquery.modules.jfreechart.data.DensityGrid;
+import org.exist.xquery.modules.jfreechart.data.Downsampler;
+import org.exist.xquery.modules.jfreechart.data.HistogramBins;
+import org.exist.xquery.modules.jfreechart.data.StreamDatasetSource;
+import org.exist.xquery.modules.jfreechart.data.TimeBuckets;
+import org.exist.xquery.modules.jfreechart.data.TopSections;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.axis.SymbolAxis;
 import org.jfree.chart.labels.CategoryItemLabelGenerator;
 import org.jfree.chart.labels.StandardCategoryToolTipGenerator;
 import org.jfree.chart.labels.StandardPieSectionLabelGenerator;
+import org.jfree.chart.labels.StandardXYZToolTipGenerator;
 import org.jfree.chart.plot.*;
+import org.jfree.chart.renderer.LookupPaintScale;
+import org.jfree.chart.renderer.PaintScale;
 import org.jfree.chart.renderer.category.CategoryItemRenderer;
 import org.jfree.chart.renderer.category.LineAndShapeRenderer;
 import org.jfree.chart.renderer.xy.XYBarRenderer;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
 import org.jfree.chart.renderer.xy.XYDotRenderer;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.title.LegendTitle;
 import org.jfree.chart.title.TextTitle;
+import org.jfree.chart.ui.RectangleAnchor;
 import org.jfree.chart.ui.RectangleEdge;
 import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.general.PieDataset;
-import org.jfree.data.xml.DatasetReader;
-import org.jfree.data.xml.XYDatasetReader;
+import org.jfree.data.statistics.BoxAndWhiskerCategoryDataset;
+import org.jfree.data.xml.ArrayXYDataset;
+import org.jfree.data.xml.CullingWindow;
 import org.jfree.data.xy.IntervalXYDataset;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.data.xy.XYZDataset;
@@ -68,6 +83,9 @@ public class JFreeChartFactory {
 
     private final static Logger LOGGER = LogManager.getLogger(JFreeChartFactory.class);
 
+    // Pixels kept around the culling window for the shapes and lines drawn at an item
+    private final static int CULLING_MARGIN = 8;
+
     /**
      * Create JFreeChart graph using the supplied parameters.
      *
@@ -80,6 +98,30 @@ public class JFreeChartFactory {
     public static JFreeChart createJFreeChart(final String chartType, final Configuration conf, final InputStream is)
             throws XPathException {
 
+        try {
+            return createJFreeChart(chartType, conf, new StreamDatasetSource(is));
+
+        } finally {
+            try {
+                is.close();
+            } catch (final IOException ex) {
+                //
+            }
+        }
+    }
+
+    /**
+     * Create JFreeChart graph using the supplied parameters.
+     *
+     * @param chartType One of the many chart types.
+     * @param conf      Chart configuration
+     * @param source    Source of the chart data
+     * @return Initialized chart or NULL in case of issues.
+     * @throws org.exist.xquery.XPathException Thrown when something unexpected happens
+     */
+    public static JFreeChart createJFreeChart(final String chartType, final Configuration conf, final DatasetSource source)
+            throws XPathException {
+
         LOGGER.debug("Generating " + chartType);
 
         // Currently four dataset types supported
@@ -94,34 +136,53 @@ public class JFreeChartFactory {
                 case "PieChart3D":
                 case "RingChart":
                     LOGGER.debug("Reading XML PieDataset");
-                    pieDataset = DatasetReader.readPieDatasetFromXML(is);
+                    pieDataset = TopSections.limit(source.readPieDataset(conf), conf);
+                    break;
+                case "MultiplePieChart":
+                case "MultiplePieChart3D":
+                    LOGGER.debug("Reading XML CategoryDataset");
+                    categoryDataset = TopSections.limit(source.readCategoryDataset(conf), conf);
                     break;
                 case "ScatterPlot":
-                case "XYAreaChart":
+                    LOGGER.debug("Reading XML XYDataset");
+                    xyDataset = source.readXYDataset(conf, getCullingWindow(conf, CullingWindow.Mode.POINTS));
+                    break;
                 case "XYBarChart":
+                    LOGGER.debug("Reading XML XYDataset");
+                    xyDataset = sortByX(source.readXYDataset(conf));
+                    break;
+                case "XYAreaChart":
+                    LOGGER.debug("Reading XML XYDataset");
+                    xyDataset = Downsampler.downsample(source.readXYDataset(conf, getCullingWindow(conf, CullingWindow.Mode.AREA)), conf);
+                    break;
                 case "XYLineChart":
                     LOGGER.debug("Reading XML XYDataset");
-                    xyDataset = XYDatasetReader.readXYDatasetFromXML(is);
+                    xyDataset = Downsampler.downsample(source.readXYDataset(conf, getCullingWindow(conf, CullingWindow.Mode.LINES)), conf);
+                    break;
+                case "BoxAndWhiskerChart":
+                    LOGGER.debug("Reading XML XYDataset");
+                    categoryDataset = BoxAndWhiskerSummary.create(source, conf);
+                    break;
+                case "Histogram":
+                    LOGGER.debug("Reading XML XYDataset");
+                    xyDataset = HistogramBins.create(source, conf);
+                    break;
+                case "TimeSeriesChart":
+                    LOGGER.debug("Reading XML XYDataset");
+                    xyDataset = TimeBuckets.aggregate(source, conf);
                     break;
                 case "BubbleChart":
                     LOGGER.debug("Reading XML XYZDataset");
-                    xyzDataset = XYDatasetReader.readXYZDatasetFromXML(is);
+                    xyzDataset = source.readXYZDataset(conf, getCullingWindow(conf, CullingWindow.Mode.POINTS));
                     break;
                 default:
                     LOGGER.debug("Reading XML CategoryDataset");
-                    categoryDataset = DatasetReader.readCategoryDatasetFromXML(is);
+                    categoryDataset = source.readCategoryDataset(conf);
                     break;
             }
 
         } catch (final IOException ex) {
             throw new XPathException(ex.getMessage());
-
-        } finally {
-            try {
-                is.close();
-            } catch (final IOException ex) {
-                //
-            }
         }
 
         // Return chart
@@ -145,6 +206,14 @@ public class JFreeChartFactory {
                 setCategoryChartParameters(chart, conf);
                 break;
 
+            case "BoxAndWhiskerChart":
+                chart = ChartFactory.createBoxAndWhiskerChart(
+                        conf.getTitle(), conf.getCategoryAxisLabel(), conf.getValueAxisLabel(),
+                        (BoxAndWhiskerCategoryDataset) categoryDataset, conf.isGenerateLegend());
+
+                setCategoryChartParameters(chart, conf);
+                break;
+
             case "LineChart":
                 chart = ChartFactory.createLineChart(
                         conf.getTitle(), conf.getCategoryAxisLabel(), conf.getValueAxisLabel(), categoryDataset,
@@ -237,6 +306,10 @@ public class JFreeChartFactory {
                 setCategoryChartParameters(chart, conf);
                 break;
             case "ScatterPlot":
+                if (conf.getDensity() != null) {
+                    chart = createDensityChart(xyDataset, conf);
+                    break;
+                }
                 chart = ChartFactory.createScatterPlot(
                         conf.getTitle(), conf.getDomainAxisLabel(), conf.getRangeAxisLabel(), xyDataset,
                         conf.getOrientation(), conf.isGenerateLegend(), conf.isGenerateTooltips(), conf.isGenerateUrls());
@@ -266,7 +339,26 @@ public class JFreeChartFactory {
 
                 setPlotAndNumberAxisParameters(chart, conf);
                 break;
+            case "Histogram":
+                chart = ChartFactory.createHistogram(
+                        conf.getTitle(), conf.getDomainAxisLabel(), conf.getRangeAxisLabel(), (IntervalXYDataset) xyDataset,
+                        conf.getOrientation(), conf.isGenerateLegend(), conf.isGenerateTooltips(), conf.isGenerateUrls());
+
+                setPlotAndNumberAxisParameters(chart, conf);
+                break;
+            case "TimeSeriesChart":
+                chart = ChartFactory.createTimeSeriesChart(
+                        conf.getTitle(), conf.getTimeAxisLabel(), conf.getValueAxisLabel(), xyDataset,
+                        conf.isGenerateLegend(), conf.isGenerateTooltips(), conf.isGenerateUrls());
+
+                setPlotAndNumberAxisParameters(chart, conf);
+                setTimeAxisColors(chart, conf);
+                break;
             case "BubbleChart":
+                if (conf.getDensity() != null) {
+                    chart = createDensityChart(xyzDataset, conf);
+                    break;
+                }
                 chart = ChartFactory.createBubbleChart(
                         conf.getTitle(), conf.getDomainAxisLabel(), conf.getRangeAxisLabel(), xyzDataset,
                         conf.getOrientation(), conf.isGenerateLegend(), conf.isGenerateTooltips(), conf.isGenerateUrls());
@@ -276,12 +368,12 @@ public class JFreeChartFactory {
 
             default:
                 LOGGER.error("Illegal chart type. Choose one of "
-                        + "CategoryDataset/PieDataset: AreaChart BarChart BarChart3D "
+                        + "CategoryDataset/PieDataset: AreaChart BarChart BarChart3D BoxAndWhiskerChart "
                         + "LineChart LineChart3D "
                         + "MultiplePieChart MultiplePieChart3D PieChart PieChart3D "
                         + "RingChart SpiderWebChart StackedAreaChart StackedBarChart "
                         + "StackedBarChart3D WaterfallChart. "
-                        + "XYDataset: ScatterPlot XYAreaChart XYBarChart XYLineChart. "
+                        + "XYDataset: Histogram ScatterPlot TimeSeriesChart XYAreaChart XYBarChart XYLineChart. "
                         + "XYZDataset: BubbleChart.");
                 break;
 
@@ -289,9 +381,105 @@ public class JFreeChartFactory {
 
         setCommonParameters(chart, conf);
 
+        // after all parameters, as M4 lays out the configured chart
+        if ("XYAreaChart".equals(chartType) || "XYLineChart".equals(chartType)) {
+            Downsampler.m4(chart, conf);
+        }
+
+        return chart;
+    }
+
+
+    /**
+     * Create a scatter plot of the density of the points, drawn as a heat map
+     * of grid cells instead of the individual points.
+     */
+    private static JFreeChart createDensityChart(final XYDataset dataset, final Configuration conf) {
+        final DensityGrid grid = DensityGrid.create(dataset, conf);
+
+        final JFreeChart chart = ChartFactory.createScatterPlot(
+                conf.getTitle(), conf.getDomainAxisLabel(), conf.getRangeAxisLabel(), grid.getDataset(),
+                conf.getOrientation(), conf.isGenerateLegend(), conf.isGenerateTooltips(), conf.isGenerateUrls());
+        setPlotAndNumberAxisParameters(chart, conf);
+
+        final XYBlockRenderer renderer = new XYBlockRenderer();
+        renderer.setBlockWidth(grid.getCellWidth());
+        renderer.setBlockHeight(grid.getCellHeight());
+        renderer.setBlockAnchor(RectangleAnchor.CENTER);
+        renderer.setPaintScale(createDensityPaintScale(grid.getMaximum()));
+        if (conf.isGenerateTooltips()) {
+            renderer.setDefaultToolTipGenerator(new StandardXYZToolTipGenerator());
+        }
+        ((XYPlot) chart.getPlot()).setRenderer(renderer);
         return chart;
     }
 
+    /**
+     * Colour scale from light yellow to dark red; the steps are closer at the
+     * low end, so sparse cells remain distinguishable next to a dense peak.
+     */
+    private static PaintScale createDensityPaintScale(final double maximum) {
+        final int steps = 32;
+        final Color[] colors = {new Color(255, 255, 178), new Color(253, 141, 60), new Color(189, 0, 38)};
+
+        final LookupPaintScale scale = new LookupPaintScale(0, maximum > 0 ? maximum : 1, colors[0]);
+        for (int step = 0; step < steps; step++) {
+            final double fraction = (double) step / (steps - 1);
+            final double position = fraction * (colors.length - 1);
+            final int index = Math.min((int) position, colors.length - 2);
+            final double mix = position - index;
+            final Color from = colors[index];
+            final Color to = colors[index + 1];
+            scale.add(maximum * fraction * fraction, new Color(
+                    (int) Math.round(from.getRed() + mix * (to.getRed() - from.getRed())),
+                    (int) Math.round(from.getGreen() + mix * (to.getGreen() - from.getGreen())),
+                    (int) Math.round(from.getBlue() + mix * (to.getBlue() - from.getBlue()))));
+        }
+        return scale;
+    }
+
+    /**
+     * The items of a XYBarChart are drawn as adjacent bars, so they are
+     * sorted on their X value even when autoSort is off.
+     */
+    private static XYDataset sortByX(final XYDataset dataset) {
+        return dataset instanceof ArrayXYDataset ? ((ArrayXYDataset) dataset).sortByX() : dataset;
+    }
+
+    /**
+     * The visible part of the plot, for dropping the items that cannot be
+     * seen while reading. The range bounds are not used for areas, which are
+     * filled up to the axis, and there is no window for a density chart, as
+     * its grid covers all points.
+     */
+    private static CullingWindow getCullingWindow(final Configuration config, final CullingWindow.Mode mode) {
+        if (config.getDensity() != null) {
+            return null;
+        }
+        final Double[] domain = widenBounds(config.getDomainLowerBound(), config.getDomainUpperBound(),
+                config.getImageWidth(), config);
+        final Double[] range = mode == CullingWindow.Mode.AREA ? new Double[2]
+                : widenBounds(config.getRangeLowerBound(), config.getRangeUpperBound(), config.getImageHeight(), config);
+        return new CullingWindow(domain[0], domain[1], range[0], range[1], mode);
+    }
+
+    /**
+     * Widen the bounds of an axis by the size of the shapes and lines, in
+     * data units, assuming the plot takes at least half of the image. Both
+     * bounds are open unless both are set, as otherwise the length of the
+     * axis is only known once all items are read.
+     */
+    private static Double[] widenBounds(final Double lower, final Double upper, final int imageSize,
+                                        final Configuration config) {
+        if (lower == null || upper == null || !(upper > lower)) {
+            return new Double[2];
+        }
+        final float lineWidth = config.getLineWidth() == null ? 1 : config.getLineWidth();
+        final double pixels = CULLING_MARGIN
+                + Math.max(Math.max(config.getDotWidth(), config.getDotHeight()), lineWidth);
+        final double margin = (upper - lower) * pixels / Math.max(imageSize / 2, 1);
+        return new Double[]{lower - margin, upper + margin};
+    }
 
     private static void setCategoryChartParameters(final JFreeChart chart, final Configuration config) throws XPathException {
         setPlotAndNumberAxisParameters(chart, config);
@@ -390,6 +578,29 @@ public class JFreeChartFactory {
                 domainAxis.setAutoRangeIncludesZero(config.isDomainAutoRangeIncludesZero());
             }
 
+            if (xyPlot.getDomainAxis() instanceof DateAxis) {
+                // the bounds are milliseconds since the epoch, parsed from xs:dateTime like bucketOrigin
+                final DateAxis domainAxis = (DateAxis) xyPlot.getDomainAxis();
+                final Double domainLowerBound = config.getDomainLowerBound();
+                final Double domainUpperBound = config.getDomainUpperBound();
+                final Double domainLowerMargin = config.getDomainLowerMargin();
+                final Double domainUpperMargin = config.getDomainUpperMargin();
+
+                if (domainUpperBound != null) {
+                    domainAxis.setUpperBound(domainUpperBound);
+                }
+                if (domainLowerBound != null) {
+                    domainAxis.setLowerBound(domainLowerBound);
+                }
+
+                if (domainLowerMargin != null) {
+                    domainAxis.setLowerMargin(domainLowerMargin);
+                }
+                if (domainUpperMargin != null) {
+                    domainAxis.setUpperMargin(domainUpperMargin);
+                }
+            }
+
             if (xyPlot.getRangeAxis() instanceof NumberAxis) {
                 final NumberAxis rangeAxis = (NumberAxis) xyPlot.getRangeAxis();
                 final Double rangeLowerBound = config.getRangeLowerBound();
@@ -597,6 +808,16 @@ public class JFreeChartFactory {
         }
     }
 
+    private static void setTimeAxisColors(final JFreeChart chart, final Configuration config) {
+        final XYPlot xyPlot = (XYPlot) chart.getPlot();
+        if (config.getTimeAxisColor() != null) {
+            xyPlot.getDomainAxis().setLabelPaint(config.getTimeAxisColor());
+        }
+        if (config.getValueAxisColor() != null) {
+            xyPlot.getRangeAxis().setLabelPaint(config.getValueAxisColor());
+        }
+    }
+
     private static void setPieChartParameters(final JFreeChart chart, final Configuration config) {
         setPlotAndNumberAxisParameters(chart, config);
         setPieSectionLabel(chart, config);
@@ -652,6 +873,7 @@ public class JFreeChartFactory {
 
     private static void setCommonParameters(final JFreeChart chart, final Configuration config) {
         setColors(chart, config);
+        chart.setAntiAlias(config.isAntiAlias());
     }
 
     private static void setColors(final JFreeChart chart, final Configuration config) {
@@ -24,10 +24,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.QName;
 import org.exist.http.servlets.ResponseWrapper;
-import org.exist.storage.serializers.Serializer;
-import org.exist.validation.internal.node.NodeInputStream;
 import org.exist.xquery.*;
 import org.exist.xquery.functions.response.StrictResponseFunction;
+import org.exist.xquery.modules.jfreechart.data.BinaryDatasetSource;
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.exist.xquery.modules.jfreechart.data.DatasetSource;
+import org.exist.xquery.modules.jfreechart.data.NodeDatasetSource;
+import org.exist.xquery.modules.jfreechart.data.SequenceDatasetSource;
 import org.exist.xquery.modules.jfreechart.render.Renderer;
 import org.exist.xquery.modules.jfreechart.render.RendererFactory;
 import org.exist.xquery.value.*;
@@ -37,7 +40,10 @@ import javax.annotation.Nonnull;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 
 /**
@@ -61,12 +67,12 @@ public class JFreeCharting extends StrictResponseFunction {
 
     // Note these enumerations are also in JFreeChartFactory ... /ljo
     private static final String chartText = "The type of chart to render.  Supported chart types: " +
-            "AreaChart BarChart BarChart3D " +
+            "AreaChart BarChart BarChart3D BoxAndWhiskerChart " +
             "LineChart LineChart3D " +
             "MultiplePieChart MultiplePieChart3D PieChart PieChart3D " +
             "RingChart SpiderWebChart StackedAreaChart StackedBarChart " +
             "StackedBarChart3D WaterfallChart. " +
-            "XYDataset: ScatterPlot XYAreaChart XYBarChart XYLineChart. " +
+            "XYDataset: Histogram ScatterPlot TimeSeriesChart XYAreaChart XYBarChart XYLineChart. " +
             "XYZDataset: BubbleChart. ";
     // see wiki? /ljo
     private static final String parametersText = "The configuration for the chart.  The " +
@@ -79,9 +85,22 @@ public class JFreeCharting extends StrictResponseFunction {
             "order legend tooltips urls " +
             "domainLowerMargin domainUpperMargin foregroundAlpha dotHeight dotWidth " +
             "useDomainSymbolAxis useDomainNumberAxis domainGridbandsVisible useRangeSymbolAxis rangeGridbandsVisible lineWidth " +
-            "outlineVisible pieSectionOutlineVisible domainGridlinesVisible rangeGridlinesVisible lineWidth " +
+            "outlineVisible antiAlias pieSectionOutlineVisible domainGridlinesVisible rangeGridlinesVisible lineWidth " +
             "onlyShape rangeAutoRangeIncludesZero domainAutoRangeIncludesZero " +
-            "rangeZeroBaselineVisible domainZeroBaselineVisible rangeIntegerTickUnits domainIntegerTickUnits ";
+            "rangeZeroBaselineVisible domainZeroBaselineVisible rangeIntegerTickUnits domainIntegerTickUnits " +
+            "autoSort dataFormat downsample downsamplePoints density densityBinSize maxSections otherLabel bucket bucketOrigin aggregate bins binWidth sketchSize " +
+            "pngCompressionLevel pngEncoder pngFilter pngParallelThreshold svgPrecision svgStyleClasses svgMergePaths " +
+            "jpegQuality jpegProgressive jpegSubsampling ";
+
+    private static final String dataText = "The chart data. Either the CategoryDataset, PieDataset, " +
+            "XYDataset or XYZDataset supplied as JFreechart XML, or for XYDataset and XYZDataset charts " +
+            "a binary value with packed little-endian data: the number of series (int32), per series " +
+            "the UTF-8 name length (int32), name and number of points (int32), followed per series by " +
+            "the X, Y (and Z) values as float64. The data can also be supplied as a map " +
+            "map { \"series\": [ map { \"name\": \"a\", \"x\": (1, 2, 3), \"y\": (4, 5, 6) } ] }, " +
+            "with the keys in \"x\" for PieDataset and CategoryDataset charts and an additional \"z\" " +
+            "for XYZDataset charts, or as a sequence of numbers, read as a single series. A string, or a " +
+            "binary value with the dataFormat 'csv' or 'tsv', is read as CSV or TSV text with a header record.";
 
     // barWidth useYInterval (no effect with current datasets) /ljo
 
@@ -93,8 +112,7 @@ public class JFreeCharting extends StrictResponseFunction {
                     new SequenceType[]{
                             new FunctionParameterSequenceType("chart-type", Type.STRING, Cardinality.EXACTLY_ONE, chartText),
                             new FunctionParameterSequenceType("configuration", Type.NODE, Cardinality.EXACTLY_ONE, parametersText),
-                            new FunctionParameterSequenceType("data", Type.NODE, Cardinality.EXACTLY_ONE,
-                                    "The CategoryDataset or PieDataset, supplied as JFreechart XML.")
+                            new FunctionParameterSequenceType("data", Type.ITEM, Cardinality.ONE_OR_MORE, dataText)
                     },
                     new FunctionReturnSequenceType(Type.BASE64_BINARY, Cardinality.ZERO_OR_ONE, "the generated PNG image file")
             ),
@@ -105,8 +123,7 @@ public class JFreeCharting extends StrictResponseFunction {
                     new SequenceType[]{
                             new FunctionParameterSequenceType("chart-type", Type.STRING, Cardinality.EXACTLY_ONE, chartText),
                             new FunctionParameterSequenceType("configuration", Type.NODE, Cardinality.EXACTLY_ONE, parametersText),
-                            new FunctionParameterSequenceType("data", Type.NODE, Cardinality.EXACTLY_ONE,
-                                    "The CategoryDataset or PieDataset, supplied as JFreechart XML.")
+                            new FunctionParameterSequenceType("data", Type.ITEM, Cardinality.ONE_OR_MORE, dataText)
                     },
                     new SequenceType(Type.EMPTY, Cardinality.EMPTY)
             )
@@ -132,17 +149,10 @@ public class JFreeCharting extends StrictResponseFunction {
             final Configuration config = new Configuration();
             config.parse(((NodeValue) args[1].itemAt(0)).getNode());
 
-            // Get datastream
-            @SuppressWarnings("resource")
-            final Serializer serializer = context.getBroker().getSerializer();
-
-            final NodeValue node = (NodeValue) args[2].itemAt(0);
-            final InputStream is = new NodeInputStream(context.getDatabase(), serializer, node);
-
             // get chart
             final JFreeChart chart;
             try {
-                chart = JFreeChartFactory.createJFreeChart(chartType, config, is);
+                chart = createChart(chartType, config, args[2]);
 
             } catch (final IllegalArgumentException ex) {
                 throw new XPathException(this, ex.getMessage());
@@ -183,6 +193,50 @@ public class JFreeCharting extends StrictResponseFunction {
     }
 
 
+    /**
+     * Create the chart, reading the data from the supplied node, binary value,
+     * CSV text, map or sequence of numbers.
+     *
+     * @throws XPathException Thrown when the type of data is not supported.
+     * @throws IOException    Thrown when the data cannot be read.
+     */
+    private JFreeChart createChart(final String chartType, final Configuration config, final Sequence data)
+            throws XPathException, IOException {
+
+        final Item item = data.itemAt(0);
+        if (data.getItemCount() == 1 && Type.subTypeOf(item.getType(), Type.NODE)) {
+            // Data is streamed directly from the node
+            final DatasetSource source = new NodeDatasetSource(context.getBroker(), (NodeValue) item);
+            return JFreeChartFactory.createJFreeChart(chartType, config, source);
+
+        } else if (data.getItemCount() == 1 && item instanceof BinaryValue) {
+            try (InputStream is = ((BinaryValue) item).getInputStream()) {
+                final DatasetSource source = isTextFormat(config)
+                        ? new CsvDatasetSource(new InputStreamReader(is, StandardCharsets.UTF_8), getSeparator(config))
+                        : new BinaryDatasetSource(is);
+                return JFreeChartFactory.createJFreeChart(chartType, config, source);
+            }
+
+        } else if (data.getItemCount() == 1 && Type.subTypeOf(item.getType(), Type.STRING)) {
+            final DatasetSource source = new CsvDatasetSource(new StringReader(item.getStringValue()), getSeparator(config));
+            return JFreeChartFactory.createJFreeChart(chartType, config, source);
+
+        } else if (SequenceDatasetSource.isSupported(data)) {
+            return JFreeChartFactory.createJFreeChart(chartType, config, new SequenceDatasetSource(data));
+        }
+
+        throw new XPathException(this, ErrorCodes.XPTY0004,
+                "Unsupported type of data: " + Type.getTypeName(data.getItemType()));
+    }
+
+    private static boolean isTextFormat(final Configuration config) {
+        return "csv".equals(config.getDataFormat()) || "tsv".equals(config.getDataFormat());
+    }
+
+    private static char getSeparator(final Configuration config) {
+        return "tsv".equals(config.getDataFormat()) ? '\t' : ',';
+    }
+
     /**
      * Writes chart to response wrapper as PNG image.
      *
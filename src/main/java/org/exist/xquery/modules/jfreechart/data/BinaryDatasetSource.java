@@ -0,0 +1,213 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.BoundedXYZDataset;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dataset source reading XY or XYZ series from packed binary data. All
+ * numbers are little-endian:
+ * <pre>
+ *   int32  number of series
+ *   per series: int32 length of the name in bytes, the UTF-8 name,
+ *               int32 number of points
+ *   per series: the X values, then the Y values (and for XYZ the Z values),
+ *               each as number-of-points float64 values
+ * </pre>
+ * The values are copied from the stream into the dataset arrays through a
+ * small reusable {@link ByteBuffer} view. The counts in the data are not
+ * trusted for allocation: the series and value arrays grow as the data
+ * actually arrives, so truncated data fails with an {@link EOFException}
+ * instead of allocating what its header declares. When the items are
+ * passed to an {@link XYItemSink}, only the X values of the current series
+ * are kept, to pair them with the Y values that follow.
+ */
+public class BinaryDatasetSource implements DatasetSource {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 64 * 1024;
+    private static final int CHUNK_DOUBLES = CHUNK_SIZE / Double.BYTES;
+
+    private final InputStream is;
+    private final ByteBuffer buffer;
+    private final DoubleBuffer doubles;
+
+    public BinaryDatasetSource(final InputStream is) {
+        this.is = is;
+        this.buffer = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.doubles = buffer.asDoubleBuffer();
+    }
+
+    @Override
+    public PieDataset readPieDataset(final Configuration config) throws IOException {
+        throw new IOException("Binary data is only supported for XYDataset and XYZDataset charts");
+    }
+
+    @Override
+    public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+        throw new IOException("Binary data is only supported for XYDataset and XYZDataset charts");
+    }
+
+    @Override
+    public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+        final List<SeriesHeader> headers = readHeaders();
+
+        final XYDatasetBuilder builder = new XYDatasetBuilder(config, window);
+        for (final SeriesHeader header : headers) {
+            final double[] valuesX = readDoubles(header.count);
+            final double[] valuesY = readDoubles(header.count);
+            builder.addSeries(header.name, valuesX, valuesY);
+        }
+        verifyEnd();
+        return builder.getDataset();
+    }
+
+    @Override
+    public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+        final List<SeriesHeader> headers = readHeaders();
+
+        for (int series = 0; series < headers.size(); series++) {
+            final SeriesHeader header = headers.get(series);
+            sink.addSeries(header.name);
+            final double[] valuesX = readDoubles(header.count);
+            int offset = 0;
+            while (offset < header.count) {
+                final int chunk = Math.min(header.count - offset, CHUNK_DOUBLES);
+                readFully(buffer.array(), chunk * Double.BYTES);
+                for (int index = 0; index < chunk; index++) {
+                    sink.addItem(series, valuesX[offset + index], doubles.get(index));
+                }
+                offset += chunk;
+            }
+        }
+        verifyEnd();
+    }
+
+    @Override
+    public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+        final List<SeriesHeader> headers = readHeaders();
+
+        final BoundedXYZDataset dataset = new BoundedXYZDataset();
+        for (final SeriesHeader header : headers) {
+            final double[] valuesX = readDoubles(header.count);
+            final double[] valuesY = readDoubles(header.count);
+            final double[] valuesZ = readDoubles(header.count);
+            DatasetArrays.addSeries(dataset, header.name, window, valuesX, valuesY, valuesZ);
+        }
+        verifyEnd();
+        return dataset;
+    }
+
+    /**
+     * Read the name and number of points of each series. The list grows per
+     * series read, not to the series count of the data.
+     */
+    private List<SeriesHeader> readHeaders() throws IOException {
+        final int seriesCount = readCount("series");
+        final List<SeriesHeader> headers = new ArrayList<>();
+        for (int series = 0; series < seriesCount; series++) {
+            final int length = readCount("name length");
+            if (length > MAX_NAME_LENGTH) {
+                throw new IOException("Series name of " + length + " bytes is too long");
+            }
+            final byte[] name = new byte[length];
+            readFully(name, length);
+            headers.add(new SeriesHeader(new String(name, StandardCharsets.UTF_8), readCount("point count")));
+        }
+        return headers;
+    }
+
+    private static final class SeriesHeader {
+        private final String name;
+        private final int count;
+
+        private SeriesHeader(final String name, final int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    private int readCount(final String what) throws IOException {
+        buffer.clear();
+        readFully(buffer.array(), 4);
+        final int count = buffer.getInt(0);
+        if (count < 0) {
+            throw new IOException("Invalid " + what + " in binary data: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Read a column of values. The array starts at one chunk and doubles,
+     * up to the count, once a chunk has been read that does not fit, so at
+     * most twice the values actually read are allocated.
+     */
+    private double[] readDoubles(final int count) throws IOException {
+        double[] values = new double[Math.min(count, CHUNK_DOUBLES)];
+        int offset = 0;
+        while (offset < count) {
+            final int chunk = Math.min(count - offset, CHUNK_DOUBLES);
+            readFully(buffer.array(), chunk * Double.BYTES);
+            if (offset + chunk > values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(count, 2L * values.length));
+            }
+            doubles.position(0);
+            doubles.get(values, offset, chunk);
+            offset += chunk;
+        }
+        return values;
+    }
+
+    private void readFully(final byte[] target, final int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int n = is.read(target, read, length - read);
+            if (n < 0) {
+                throw new EOFException("Binary data is truncated");
+            }
+            read += n;
+        }
+    }
+
+    private void verifyEnd() throws IOException {
+        if (is.read() != -1) {
+            throw new IOException("Unexpected data after the last series");
+        }
+    }
+}
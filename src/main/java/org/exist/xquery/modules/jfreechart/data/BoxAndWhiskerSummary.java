@@ -0,0 +1,158 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.statistics.BoxAndWhiskerCategoryDataset;
+import org.jfree.data.statistics.BoxAndWhiskerItem;
+import org.jfree.data.statistics.DefaultBoxAndWhiskerCategoryDataset;
+import org.jfree.data.xml.XYItemSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarizes raw values into box-and-whisker statistics per category. Each
+ * series of an XY dataset is a category and its Y values are the samples,
+ * so a plain sequence of numbers, the "y" entries of a map, the columns of
+ * CSV text or XML and binary XY data can be used. Series with the same name
+ * are combined into one category.
+ * <p>
+ * The values of each series go into a {@link QuantileSketch} of sketchSize
+ * as they are read, see
+ * {@link DatasetSource#readXYItems(Configuration, XYItemSink)}, and the
+ * sketches of series with the same name are merged. So the statistics of
+ * any number of values are computed from a bounded number of retained
+ * items, without keeping the values. The mean, minimum and maximum are exact, the
+ * quartiles are approximate once the values no longer fit the sketch. As in
+ * {@link org.jfree.data.statistics.BoxAndWhiskerCalculator}, values more
+ * than 1.5 times the interquartile range outside the box are outliers; they
+ * are taken from the retained items and the exact minimum and maximum.
+ */
+public final class BoxAndWhiskerSummary {
+
+    private static final String DEFAULT_ROW_KEY = "Values";
+
+    private BoxAndWhiskerSummary() {
+    }
+
+    /**
+     * Summarize the Y values of each series of the source.
+     *
+     * @return The statistics per category, in a single row named after the valueAxisLabel.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    public static BoxAndWhiskerCategoryDataset create(final DatasetSource source, final Configuration config)
+            throws IOException {
+        final List<Comparable> keys = new ArrayList<>();
+        final List<QuantileSketch> series = new ArrayList<>();
+        source.readXYItems(config, new XYItemSink() {
+            @Override
+            public void addSeries(final Comparable key) {
+                keys.add(key);
+                series.add(new QuantileSketch(config.getSketchSize()));
+            }
+
+            @Override
+            public void addItem(final int index, final double valueX, final double valueY) {
+                series.get(index).update(valueY);
+            }
+        });
+
+        final Map<Comparable, QuantileSketch> sketches = new LinkedHashMap<>();
+        for (int index = 0; index < keys.size(); index++) {
+            final QuantileSketch sketch = series.get(index);
+            final QuantileSketch category = sketches.putIfAbsent(keys.get(index), sketch);
+            if (category != null) {
+                category.merge(sketch);
+            }
+        }
+
+        final DefaultBoxAndWhiskerCategoryDataset result = new DefaultBoxAndWhiskerCategoryDataset();
+
+        final String rowKey = config.getValueAxisLabel() == null ? DEFAULT_ROW_KEY : config.getValueAxisLabel();
+        for (final Map.Entry<Comparable, QuantileSketch> entry : sketches.entrySet()) {
+            result.add(createItem(entry.getValue()), rowKey, entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * The statistics of a sketch, following the rules of BoxAndWhiskerCalculator.
+     */
+    static BoxAndWhiskerItem createItem(final QuantileSketch sketch) {
+        if (sketch.getCount() == 0) {
+            return new BoxAndWhiskerItem(null, null, null, null, null, null, null, null, new ArrayList<>());
+        }
+
+        final double q1 = sketch.getQuantile(0.25);
+        final double median = sketch.getQuantile(0.5);
+        final double q3 = sketch.getQuantile(0.75);
+        final double interQuartileRange = q3 - q1;
+
+        final double upperOutlierThreshold = q3 + (interQuartileRange * 1.5);
+        final double lowerOutlierThreshold = q1 - (interQuartileRange * 1.5);
+        final double upperFaroutThreshold = q3 + (interQuartileRange * 2.0);
+        final double lowerFaroutThreshold = q1 - (interQuartileRange * 2.0);
+
+        // the retained items, completed with the exact extremes
+        final double[] retained = sketch.getValues();
+        final double[] values = new double[retained.length + 2];
+        values[0] = sketch.getMin();
+        System.arraycopy(retained, 0, values, 1, retained.length);
+        values[values.length - 1] = sketch.getMax();
+
+        double minRegularValue = Double.POSITIVE_INFINITY;
+        double maxRegularValue = Double.NEGATIVE_INFINITY;
+        double minOutlier = Double.POSITIVE_INFINITY;
+        double maxOutlier = Double.NEGATIVE_INFINITY;
+        final List<Double> outliers = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            final double value = values[i];
+            if ((i == 1 && value == values[0]) || (i == values.length - 1 && value == values[i - 1])) {
+                // the extreme is a retained item already
+                continue;
+            }
+            if (value > upperOutlierThreshold) {
+                outliers.add(value);
+                if (value > maxOutlier && value <= upperFaroutThreshold) {
+                    maxOutlier = value;
+                }
+            } else if (value < lowerOutlierThreshold) {
+                outliers.add(value);
+                if (value < minOutlier && value >= lowerFaroutThreshold) {
+                    minOutlier = value;
+                }
+            } else {
+                minRegularValue = Math.min(minRegularValue, value);
+                maxRegularValue = Math.max(maxRegularValue, value);
+            }
+        }
+        minOutlier = Math.min(minOutlier, minRegularValue);
+        maxOutlier = Math.max(maxOutlier, maxRegularValue);
+
+        return new BoxAndWhiskerItem(sketch.getMean(), median, q1, q3, minRegularValue, maxRegularValue,
+                minOutlier, maxOutlier, outliers);
+    }
+}
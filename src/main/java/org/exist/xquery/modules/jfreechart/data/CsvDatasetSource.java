@@ -0,0 +1,200 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.ArrayCategoryDataset;
+import org.jfree.data.xml.ArrayPieDataset;
+import org.jfree.data.xml.BoundedXYZDataset;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.DoubleArrayBuilder;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dataset source reading CSV or TSV text. The first record is a header,
+ * the layout of the other records depends on the dataset:
+ * <ul>
+ *   <li>PieDataset: key, value</li>
+ *   <li>CategoryDataset: series, then a value per category; the header
+ *       holds the categories</li>
+ *   <li>XYDataset: X value, then a Y value per series; the header holds
+ *       the series names</li>
+ *   <li>XYZDataset: series, X value, Y value, Z value</li>
+ * </ul>
+ * X values may also be ISO dates or dateTimes, read as milliseconds since
+ * the epoch. Empty or non numeric values are missing values.
+ */
+public class CsvDatasetSource implements DatasetSource {
+
+    private final CsvTokenizer tokenizer;
+
+    public CsvDatasetSource(final Reader reader, final char separator) {
+        this.tokenizer = new CsvTokenizer(reader, separator);
+    }
+
+    @Override
+    public PieDataset readPieDataset(final Configuration config) throws IOException {
+        final ArrayPieDataset dataset = new ArrayPieDataset();
+        readHeader();
+        while (tokenizer.nextRecord()) {
+            final String key = readString();
+            final double value = readDouble();
+            verifyEndOfRecord(2);
+            dataset.setValue(key, value);
+        }
+        return dataset;
+    }
+
+    @Override
+    public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+        final ArrayCategoryDataset dataset = new ArrayCategoryDataset();
+        final List<String> categories = readHeader();
+        categories.remove(0);
+
+        while (tokenizer.nextRecord()) {
+            final String series = readString();
+            for (final String category : categories) {
+                dataset.addValue(readDouble(), series, category);
+            }
+            verifyEndOfRecord(categories.size() + 1);
+        }
+        return dataset;
+    }
+
+    @Override
+    public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+        final List<String> names = readHeader();
+        names.remove(0);
+
+        final DoubleArrayBuilder valuesX = new DoubleArrayBuilder();
+        final DoubleArrayBuilder[] valuesY = new DoubleArrayBuilder[names.size()];
+        for (int series = 0; series < valuesY.length; series++) {
+            valuesY[series] = new DoubleArrayBuilder();
+        }
+
+        while (tokenizer.nextRecord()) {
+            valuesX.add(readX());
+            for (final DoubleArrayBuilder values : valuesY) {
+                values.add(readDouble());
+            }
+            verifyEndOfRecord(valuesY.length + 1);
+        }
+
+        // The series share the X values
+        final double[] sharedX = valuesX.toArray();
+        final XYDatasetBuilder builder = new XYDatasetBuilder(config, window);
+        for (int series = 0; series < valuesY.length; series++) {
+            builder.addSeries(names.get(series), sharedX, valuesY[series].toArray());
+        }
+        return builder.getDataset();
+    }
+
+    @Override
+    public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+        final List<String> names = readHeader();
+        names.remove(0);
+        for (final String name : names) {
+            sink.addSeries(name);
+        }
+
+        while (tokenizer.nextRecord()) {
+            final double valueX = readX();
+            for (int series = 0; series < names.size(); series++) {
+                sink.addItem(series, valueX, readDouble());
+            }
+            verifyEndOfRecord(names.size() + 1);
+        }
+    }
+
+    @Override
+    public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+        readHeader();
+
+        final Map<String, DoubleArrayBuilder[]> seriesValues = new LinkedHashMap<>();
+        while (tokenizer.nextRecord()) {
+            final String series = readString();
+            final DoubleArrayBuilder[] values = seriesValues.computeIfAbsent(series,
+                    key -> new DoubleArrayBuilder[]{new DoubleArrayBuilder(), new DoubleArrayBuilder(), new DoubleArrayBuilder()});
+            values[0].add(readX());
+            values[1].add(readDouble());
+            values[2].add(readDouble());
+            verifyEndOfRecord(4);
+        }
+
+        final BoundedXYZDataset dataset = new BoundedXYZDataset();
+        for (final Map.Entry<String, DoubleArrayBuilder[]> entry : seriesValues.entrySet()) {
+            final DoubleArrayBuilder[] values = entry.getValue();
+            DatasetArrays.addSeries(dataset, entry.getKey(), window,
+                    values[0].toArray(), values[1].toArray(), values[2].toArray());
+        }
+        return dataset;
+    }
+
+    /**
+     * Read the fields of the header record.
+     */
+    private List<String> readHeader() throws IOException {
+        if (!tokenizer.nextRecord()) {
+            throw new IOException("CSV data has no header");
+        }
+        final List<String> fields = new ArrayList<>();
+        while (tokenizer.nextField()) {
+            fields.add(tokenizer.getString());
+        }
+        return fields;
+    }
+
+    private String readString() throws IOException {
+        return tokenizer.nextField() ? tokenizer.getString() : "";
+    }
+
+    /**
+     * Read a value, a missing field is a missing (NaN) value.
+     */
+    private double readDouble() throws IOException {
+        return tokenizer.nextField() ? tokenizer.getDouble() : Double.NaN;
+    }
+
+    private double readX() throws IOException {
+        final double value = tokenizer.nextField() ? tokenizer.getDoubleOrDateTime() : Double.NaN;
+        if (Double.isNaN(value)) {
+            throw new IOException("Missing or invalid X value in record " + tokenizer.getRecord());
+        }
+        return value;
+    }
+
+    private void verifyEndOfRecord(final int fields) throws IOException {
+        if (!tokenizer.isEndOfRecord()) {
+            throw new IOException("Record " + tokenizer.getRecord() + " has more than " + fields + " fields");
+        }
+    }
+}
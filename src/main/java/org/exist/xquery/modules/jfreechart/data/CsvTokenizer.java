@@ -0,0 +1,200 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.jfree.data.xml.NumberTextBuffer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming tokenizer for CSV and TSV text. Fields are collected in a
+ * reused {@link NumberTextBuffer}, so numeric fields are parsed without
+ * creating intermediate strings. Fields may be quoted with double quotes,
+ * a quote inside a quoted field is escaped by doubling it. Empty lines are
+ * skipped.
+ */
+final class CsvTokenizer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final NumberTextBuffer field = new NumberTextBuffer();
+
+    private int position = 0;
+    private int limit = 0;
+    private int record = 0;
+    private boolean inRecord = false;
+
+    CsvTokenizer(final Reader reader, final char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Move to the start of the next record, skipping the remaining fields of
+     * the current record.
+     *
+     * @return false when there are no more records.
+     */
+    boolean nextRecord() throws IOException {
+        while (inRecord) {
+            nextField();
+        }
+
+        while (position < limit || fill()) {
+            final char ch = buffer[position];
+            if (ch == '\r' || ch == '\n' || (ch == BYTE_ORDER_MARK && record == 0)) {
+                position++;
+            } else {
+                inRecord = true;
+                record++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the next field of the current record.
+     *
+     * @return false when the record has no more fields.
+     */
+    boolean nextField() throws IOException {
+        if (!inRecord) {
+            return false;
+        }
+        field.clear();
+
+        if ((position < limit || fill()) && buffer[position] == '"') {
+            position++;
+            readQuoted();
+        } else {
+            readUnquoted();
+        }
+
+        // Field terminator
+        if (position == limit && !fill()) {
+            inRecord = false;
+            return true;
+        }
+        final char ch = buffer[position++];
+        if (ch == separator) {
+            return true;
+        }
+        if (ch == '\r') {
+            if ((position < limit || fill()) && buffer[position] == '\n') {
+                position++;
+            }
+        } else if (ch != '\n') {
+            throw new IOException("Unexpected character '" + ch + "' after quoted field in record " + record);
+        }
+        inRecord = false;
+        return true;
+    }
+
+    private void readUnquoted() throws IOException {
+        while (position < limit || fill()) {
+            final int start = position;
+            while (position < limit) {
+                final char ch = buffer[position];
+                if (ch == separator || ch == '\r' || ch == '\n') {
+                    break;
+                }
+                position++;
+            }
+            field.append(buffer, start, position - start);
+            if (position < limit) {
+                return;
+            }
+        }
+    }
+
+    private void readQuoted() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                throw new IOException("Unterminated quoted field in record " + record);
+            }
+            final int start = position;
+            while (position < limit && buffer[position] != '"') {
+                position++;
+            }
+            field.append(buffer, start, position - start);
+
+            if (position < limit) {
+                // Closing quote, or an escaped quote
+                position++;
+                if ((position < limit || fill()) && buffer[position] == '"') {
+                    field.append(buffer, position, 1);
+                    position++;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        final int read = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    /**
+     * @return Whether the last field was the last field of its record.
+     */
+    boolean isEndOfRecord() {
+        return !inRecord;
+    }
+
+    /**
+     * @return The number of the current record, the first record is 1.
+     */
+    int getRecord() {
+        return record;
+    }
+
+    /**
+     * @return The current field as number, NaN when it is empty or not a number.
+     */
+    double getDouble() {
+        return field.parseDouble();
+    }
+
+    /**
+     * @return The current field as ISO date or dateTime in milliseconds since the epoch
+     * if it starts like one, otherwise as number. NaN when it is empty or neither.
+     */
+    double getDoubleOrDateTime() {
+        return field.parseDoubleOrDateTime();
+    }
+
+    /**
+     * @return The current field.
+     */
+    String getString() {
+        return field.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.jfree.data.Range;
+import org.jfree.data.xml.ArrayXYDataset;
+import org.jfree.data.xml.BoundedXYZDataset;
+import org.jfree.data.xml.CullingFilter;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.DoubleArrayBuilder;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+/**
+ * Access to the values of a series as primitive arrays. The arrays of an
+ * {@link ArrayXYDataset} are returned as is, other datasets are copied.
+ */
+final class DatasetArrays {
+
+    private DatasetArrays() {
+    }
+
+    static double[] getXValues(final XYDataset dataset, final int series) {
+        if (dataset instanceof ArrayXYDataset) {
+            return ((ArrayXYDataset) dataset).getXValues(series);
+        }
+        final double[] values = new double[dataset.getItemCount(series)];
+        for (int item = 0; item < values.length; item++) {
+            values[item] = dataset.getXValue(series, item);
+        }
+        return values;
+    }
+
+    static double[] getYValues(final XYDataset dataset, final int series) {
+        if (dataset instanceof ArrayXYDataset) {
+            return ((ArrayXYDataset) dataset).getYValues(series);
+        }
+        final double[] values = new double[dataset.getItemCount(series)];
+        for (int item = 0; item < values.length; item++) {
+            values[item] = dataset.getYValue(series, item);
+        }
+        return values;
+    }
+
+    /**
+     * The bounds of the X values of a series, including culled items, null when not known.
+     */
+    static Range getDomainBounds(final XYDataset dataset, final int series) {
+        return dataset instanceof ArrayXYDataset ? ((ArrayXYDataset) dataset).getSeriesDomainBounds(series) : null;
+    }
+
+    /**
+     * The bounds of the Y values of a series, including culled items, null when not known.
+     */
+    static Range getRangeBounds(final XYDataset dataset, final int series) {
+        return dataset instanceof ArrayXYDataset ? ((ArrayXYDataset) dataset).getSeriesRangeBounds(series) : null;
+    }
+
+    static double[] getZValues(final XYZDataset dataset, final int series) {
+        final double[] values = new double[dataset.getItemCount(series)];
+        for (int item = 0; item < values.length; item++) {
+            values[item] = dataset.getZValue(series, item);
+        }
+        return values;
+    }
+
+    /**
+     * Add a XY series, without the items outside the window, see {@link CullingFilter}.
+     * The dataset reports the bounds of all items.
+     */
+    static void addSeries(final ArrayXYDataset dataset, final Comparable key, final CullingWindow window,
+                          final double[] valuesX, final double[] valuesY) {
+        if (window == null || !window.isBounded() || valuesX.length != valuesY.length) {
+            // unequal lengths are reported by the dataset
+            dataset.addSeries(key, valuesX, valuesY);
+            return;
+        }
+
+        final DoubleArrayBuilder keptX = new DoubleArrayBuilder();
+        final DoubleArrayBuilder keptY = new DoubleArrayBuilder();
+        final CullingFilter filter = new CullingFilter(window, false, (x, y, z) -> {
+            keptX.add(x);
+            keptY.add(y);
+        });
+        for (int item = 0; item < valuesX.length; item++) {
+            filter.addItem(valuesX[item], valuesY[item], Double.NaN);
+        }
+        filter.flush();
+
+        if (keptX.size() == valuesX.length) {
+            dataset.addSeries(key, valuesX, valuesY);
+        } else {
+            dataset.addSeries(key, keptX.toArray(), keptY.toArray(), filter.getDomainBounds(), filter.getRangeBounds());
+        }
+    }
+
+    /**
+     * Add a XYZ series, without the bubbles outside the window, see {@link CullingFilter}.
+     * The dataset reports the bounds of all items.
+     */
+    static void addSeries(final BoundedXYZDataset dataset, final Comparable key, final CullingWindow window,
+                          final double[] valuesX, final double[] valuesY, final double[] valuesZ) {
+        if (window == null || !window.isBounded()
+                || valuesX.length != valuesY.length || valuesX.length != valuesZ.length) {
+            // unequal lengths are reported by the dataset
+            dataset.addSeries(key, new double[][]{valuesX, valuesY, valuesZ});
+            return;
+        }
+
+        final DoubleArrayBuilder keptX = new DoubleArrayBuilder();
+        final DoubleArrayBuilder keptY = new DoubleArrayBuilder();
+        final DoubleArrayBuilder keptZ = new DoubleArrayBuilder();
+        final CullingFilter filter = new CullingFilter(window, true, (x, y, z) -> {
+            keptX.add(x);
+            keptY.add(y);
+            keptZ.add(z);
+        });
+        for (int item = 0; item < valuesX.length; item++) {
+            filter.addItem(valuesX[item], valuesY[item], valuesZ[item]);
+        }
+        filter.flush();
+
+        if (keptX.size() == valuesX.length) {
+            dataset.addSeries(key, new double[][]{valuesX, valuesY, valuesZ});
+        } else {
+            dataset.addSeries(key, new double[][]{keptX.toArray(), keptY.toArray(), keptZ.toArray()},
+                    filter.getDomainBounds(), filter.getRangeBounds());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYDatasetHandler;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xml.XYZDatasetHandler;
+
+/**
+ * Creates the SAX dataset handlers, configured for the chart.
+ */
+final class DatasetHandlers {
+
+    private DatasetHandlers() {
+    }
+
+    static XYDatasetHandler newXYDatasetHandler(final Configuration config, final CullingWindow window) {
+        final XYDatasetHandler handler = new XYDatasetHandler();
+        handler.setAutoSort(config.isAutoSort());
+        handler.setCullingWindow(window);
+        return handler;
+    }
+
+    static XYDatasetHandler newXYItemHandler(final XYItemSink sink) {
+        final XYDatasetHandler handler = new XYDatasetHandler();
+        handler.setItemSink(sink);
+        return handler;
+    }
+
+    static XYZDatasetHandler newXYZDatasetHandler(final CullingWindow window) {
+        final XYZDatasetHandler handler = new XYZDatasetHandler();
+        handler.setCullingWindow(window);
+        return handler;
+    }
+}
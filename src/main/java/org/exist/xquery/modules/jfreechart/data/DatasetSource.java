@@ -0,0 +1,110 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+import java.io.IOException;
+
+/**
+ * Source of chart data, able to build each of the supported dataset families.
+ */
+public interface DatasetSource {
+
+    /**
+     * Read the data as a pie dataset.
+     *
+     * @param config Chart configuration
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    PieDataset readPieDataset(Configuration config) throws IOException;
+
+    /**
+     * Read the data as a category dataset.
+     *
+     * @param config Chart configuration
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    CategoryDataset readCategoryDataset(Configuration config) throws IOException;
+
+    /**
+     * Read the data as a XY dataset.
+     *
+     * @param config Chart configuration
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    default XYDataset readXYDataset(Configuration config) throws IOException {
+        return readXYDataset(config, null);
+    }
+
+    /**
+     * Read the data as a XY dataset, dropping the items outside the window
+     * that are not needed to draw the lines through it.
+     *
+     * @param config Chart configuration
+     * @param window The visible window, NULL to keep all items.
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    XYDataset readXYDataset(Configuration config, CullingWindow window) throws IOException;
+
+    /**
+     * Read the data as XY series, passing each item to the sink as it is
+     * read instead of building a dataset, for charts that aggregate the
+     * items. The items are not sorted.
+     *
+     * @param config Chart configuration
+     * @param sink   The receiver of the series and their items
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    void readXYItems(Configuration config, XYItemSink sink) throws IOException;
+
+    /**
+     * Read the data as a XYZ dataset.
+     *
+     * @param config Chart configuration
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    default XYZDataset readXYZDataset(Configuration config) throws IOException {
+        return readXYZDataset(config, null);
+    }
+
+    /**
+     * Read the data as a XYZ dataset, dropping the bubbles outside the window.
+     *
+     * @param config Chart configuration
+     * @param window The visible window, NULL to keep all items.
+     * @return The dataset, or NULL when the data could not be read.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    XYZDataset readXYZDataset(Configuration config, CullingWindow window) throws IOException;
+
+}
@@ -0,0 +1,155 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.Range;
+import org.jfree.data.general.DatasetUtils;
+import org.jfree.data.xy.DefaultXYZDataset;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+/**
+ * Bins the points of all series of a dataset in a grid of cells of
+ * densityBinSize pixels, sized to the image, for drawing a density map
+ * instead of the individual points. The counts, or for an XYZDataset the
+ * sums of the Z values, are collected in one pass over the values.
+ * <p>
+ * The grid covers the domain and range bounds when configured, or else the
+ * bounds of the data; points outside the grid are not counted.
+ */
+public final class DensityGrid {
+
+    public static final String SERIES_KEY = "density";
+
+    private final DefaultXYZDataset dataset;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final double maximum;
+
+    private DensityGrid(final DefaultXYZDataset dataset, final double cellWidth, final double cellHeight,
+                        final double maximum) {
+        this.dataset = dataset;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Bin the points of the dataset, weighted by their Z value for an XYZDataset.
+     */
+    public static DensityGrid create(final XYDataset source, final Configuration config) {
+        final int binSize = Math.max(config.getDensityBinSize(), 1);
+        final int columns = Math.max(config.getImageWidth() / binSize, 1);
+        final int rows = Math.max(config.getImageHeight() / binSize, 1);
+
+        final Range domain = getBounds(DatasetUtils.findDomainBounds(source, false),
+                config.getDomainLowerBound(), config.getDomainUpperBound());
+        final Range range = getBounds(DatasetUtils.findRangeBounds(source, false),
+                config.getRangeLowerBound(), config.getRangeUpperBound());
+
+        final double cellWidth = domain.getLength() / columns;
+        final double cellHeight = range.getLength() / rows;
+        final double scaleX = columns / domain.getLength();
+        final double scaleY = rows / range.getLength();
+
+        final double[] cells = new double[columns * rows];
+        for (int series = 0; series < source.getSeriesCount(); series++) {
+            final double[] valuesX = DatasetArrays.getXValues(source, series);
+            final double[] valuesY = DatasetArrays.getYValues(source, series);
+            final double[] valuesZ = source instanceof XYZDataset
+                    ? DatasetArrays.getZValues((XYZDataset) source, series) : null;
+
+            for (int item = 0; item < valuesX.length; item++) {
+                final double column = (valuesX[item] - domain.getLowerBound()) * scaleX;
+                final double row = (valuesY[item] - range.getLowerBound()) * scaleY;
+                // Also false for NaN
+                if (column >= 0 && column <= columns && row >= 0 && row <= rows) {
+                    final int cell = Math.min((int) row, rows - 1) * columns + Math.min((int) column, columns - 1);
+                    if (valuesZ == null) {
+                        cells[cell]++;
+                    } else if (!Double.isNaN(valuesZ[item])) {
+                        cells[cell] += valuesZ[item];
+                    }
+                }
+            }
+        }
+
+        // Only the cells with points, by their centre
+        int count = 0;
+        for (final double value : cells) {
+            if (value != 0) {
+                count++;
+            }
+        }
+        final double[][] values = new double[3][count];
+        double maximum = 0;
+        int item = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                values[0][item] = domain.getLowerBound() + (cell % columns + 0.5) * cellWidth;
+                values[1][item] = range.getLowerBound() + (cell / columns + 0.5) * cellHeight;
+                values[2][item] = cells[cell];
+                maximum = Math.max(maximum, cells[cell]);
+                item++;
+            }
+        }
+
+        final DefaultXYZDataset dataset = new DefaultXYZDataset();
+        dataset.addSeries(SERIES_KEY, values);
+        return new DensityGrid(dataset, cellWidth, cellHeight, maximum);
+    }
+
+    /**
+     * The configured bounds, or else the bounds of the data; never empty.
+     */
+    private static Range getBounds(final Range data, final Double lower, final Double upper) {
+        double lowerBound = lower != null ? lower : data != null ? data.getLowerBound() : 0;
+        double upperBound = upper != null ? upper : data != null ? data.getUpperBound() : 1;
+        if (!(upperBound > lowerBound)) {
+            lowerBound -= 0.5;
+            upperBound = lowerBound + 1;
+        }
+        return new Range(lowerBound, upperBound);
+    }
+
+    /**
+     * @return The cells with points: the centre of the cell and its count or sum.
+     */
+    public XYZDataset getDataset() {
+        return dataset;
+    }
+
+    public double getCellWidth() {
+        return cellWidth;
+    }
+
+    public double getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * @return The highest count or sum of a cell.
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+}
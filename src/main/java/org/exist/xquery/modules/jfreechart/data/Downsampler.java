@@ -0,0 +1,400 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYAreaRenderer;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.Range;
+import org.jfree.data.xml.ArrayXYDataset;
+import org.jfree.data.xml.DoubleArrayBuilder;
+import org.jfree.data.xy.XYDataset;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Reduces the number of points of XY series that are drawn as a line or
+ * area, so that no more points are rendered than the image can show.
+ * <p>
+ * With Largest-Triangle-Three-Buckets (lttb) the points of a series are
+ * divided in buckets, and from each bucket the point is kept that forms the
+ * largest triangle with the point kept from the previous bucket and the
+ * average of the next bucket. The first and last point are always kept.
+ * Missing (NaN) values split a series in runs that are reduced separately,
+ * so gaps stay visible.
+ * <p>
+ * With M4 (m4) the series are reduced once the chart is configured, see
+ * {@link #m4(JFreeChart, Configuration)}: each point is assigned to the
+ * device pixel column it is drawn in, and of each run of points within a
+ * column the first, last, minimum and maximum point are kept. That is all a
+ * line or area through the points can show, so without antialiasing the
+ * chart is drawn pixel for pixel the same as with all points. Points outside
+ * the plot are grouped before and after it, so the lines entering the plot
+ * stay the same.
+ */
+public final class Downsampler {
+
+    private static final String LTTB = "lttb";
+    private static final String M4 = "m4";
+
+    // Areas are filled where they cover the center of a pixel, so their columns start at the centers
+    private static final double PIXEL_CENTER = 0.5;
+
+    private Downsampler() {
+    }
+
+    /**
+     * Reduce the series of the dataset with LTTB, when configured. M4 needs
+     * the layout of the chart, see {@link #m4(JFreeChart, Configuration)}.
+     *
+     * @return The reduced dataset, or the dataset itself when nothing is reduced.
+     */
+    public static XYDataset downsample(final XYDataset dataset, final Configuration config) {
+        if (dataset == null || !LTTB.equals(config.getDownsample())) {
+            return dataset;
+        }
+
+        final int threshold = Math.max(config.getDownsamplePoints(), 3);
+
+        boolean reduced = false;
+        final ArrayXYDataset result = new ArrayXYDataset();
+        for (int series = 0; series < dataset.getSeriesCount(); series++) {
+            final double[] valuesX = DatasetArrays.getXValues(dataset, series);
+            final double[] valuesY = DatasetArrays.getYValues(dataset, series);
+            // keep the bounds of the series, of which items may have been culled
+            final Range domainBounds = DatasetArrays.getDomainBounds(dataset, series);
+            final Range rangeBounds = DatasetArrays.getRangeBounds(dataset, series);
+            if (valuesX.length <= threshold) {
+                result.addSeries(dataset.getSeriesKey(series), valuesX, valuesY, domainBounds, rangeBounds);
+                continue;
+            }
+
+            final DoubleArrayBuilder reducedX = new DoubleArrayBuilder(threshold + 2);
+            final DoubleArrayBuilder reducedY = new DoubleArrayBuilder(threshold + 2);
+            lttb(valuesX, valuesY, threshold, reducedX, reducedY);
+            result.addSeries(dataset.getSeriesKey(series), reducedX.toArray(), reducedY.toArray(),
+                    domainBounds, rangeBounds);
+            reduced = true;
+        }
+        return reduced ? result : dataset;
+    }
+
+    /**
+     * Reduce the series of an XY line or area chart with M4, when configured.
+     * The axis ranges are fixed to those of all points first. A layout pass
+     * with the series emptied then gives the data area of the plot, which
+     * the points do not change, so each point can be assigned to the device
+     * pixel column it will be drawn in. Charts drawing shapes or dots at the
+     * points are left as they are.
+     *
+     * @param chart  The configured chart, drawn at the configured width and height
+     * @param config The configuration
+     */
+    public static void m4(final JFreeChart chart, final Configuration config) {
+        if (!M4.equals(config.getDownsample()) || !(chart.getPlot() instanceof XYPlot)) {
+            return;
+        }
+        final XYPlot plot = (XYPlot) chart.getPlot();
+        final XYDataset dataset = plot.getDataset();
+        // series of up to four points per pixel of the image are drawn as they are
+        final int threshold = 4 * Math.max(config.getImageWidth(), config.getImageHeight());
+        if (dataset == null || !isLineOrArea(plot.getRenderer()) || !exceeds(dataset, threshold)) {
+            return;
+        }
+
+        fixRange(plot.getDomainAxis());
+        fixRange(plot.getRangeAxis());
+
+        final ArrayXYDataset empty = new ArrayXYDataset();
+        for (int series = 0; series < dataset.getSeriesCount(); series++) {
+            empty.addSeries(dataset.getSeriesKey(series), new double[0], new double[0]);
+        }
+        plot.setDataset(empty);
+        final ChartRenderingInfo info = new ChartRenderingInfo();
+        final Graphics2D g2 = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        try {
+            chart.draw(g2, new Rectangle2D.Double(0, 0, config.getImageWidth(), config.getImageHeight()), info);
+        } finally {
+            g2.dispose();
+        }
+
+        final Rectangle2D dataArea = info.getPlotInfo().getDataArea();
+        final ValueAxis axis = plot.getDomainAxis();
+        final RectangleEdge edge = plot.getDomainAxisEdge();
+        final boolean horizontal = RectangleEdge.isTopOrBottom(edge);
+        final double start = horizontal ? dataArea.getMinX() : dataArea.getMinY();
+        final double end = horizontal ? dataArea.getMaxX() : dataArea.getMaxY();
+        final double offset = plot.getRenderer() instanceof XYAreaRenderer ? PIXEL_CENTER : 0;
+        final DoubleUnaryOperator toPixel = x -> axis.valueToJava2D(x, dataArea, edge) - offset;
+
+        final ArrayXYDataset result = new ArrayXYDataset();
+        for (int series = 0; series < dataset.getSeriesCount(); series++) {
+            final double[] valuesX = DatasetArrays.getXValues(dataset, series);
+            final double[] valuesY = DatasetArrays.getYValues(dataset, series);
+            final Range domainBounds = DatasetArrays.getDomainBounds(dataset, series);
+            final Range rangeBounds = DatasetArrays.getRangeBounds(dataset, series);
+            if (valuesX.length <= threshold) {
+                result.addSeries(dataset.getSeriesKey(series), valuesX, valuesY, domainBounds, rangeBounds);
+                continue;
+            }
+            final DoubleArrayBuilder reducedX = new DoubleArrayBuilder(threshold + 2);
+            final DoubleArrayBuilder reducedY = new DoubleArrayBuilder(threshold + 2);
+            m4(valuesX, valuesY, toPixel, start - offset, end - offset, reducedX, reducedY);
+            result.addSeries(dataset.getSeriesKey(series), reducedX.toArray(), reducedY.toArray(),
+                    domainBounds, rangeBounds);
+        }
+        plot.setDataset(result);
+    }
+
+    /**
+     * Lines and areas only show the extremes of the points within a pixel
+     * column, shapes and dots show every point.
+     */
+    private static boolean isLineOrArea(final XYItemRenderer renderer) {
+        if (renderer instanceof XYLineAndShapeRenderer) {
+            final XYLineAndShapeRenderer lineRenderer = (XYLineAndShapeRenderer) renderer;
+            return lineRenderer.getDefaultLinesVisible() && !lineRenderer.getDefaultShapesVisible()
+                    && lineRenderer.getClass() == XYLineAndShapeRenderer.class;
+        }
+        return renderer != null && renderer.getClass() == XYAreaRenderer.class
+                && !((XYAreaRenderer) renderer).getPlotShapes() && !((XYAreaRenderer) renderer).getPlotLines();
+    }
+
+    private static boolean exceeds(final XYDataset dataset, final int threshold) {
+        for (int series = 0; series < dataset.getSeriesCount(); series++) {
+            if (dataset.getItemCount(series) > threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keep the current, automatic, range of an axis when the series change.
+     */
+    private static void fixRange(final ValueAxis axis) {
+        if (axis != null && axis.isAutoRange()) {
+            axis.setRange(axis.getRange(), true, false);
+        }
+    }
+
+    /**
+     * Reduce a series with LTTB to about threshold points. Each run of
+     * values between missing values gets a share of the threshold matching
+     * its length; the first missing value after a run is kept to mark the gap.
+     */
+    static void lttb(final double[] x, final double[] y, final int threshold,
+                     final DoubleArrayBuilder outX, final DoubleArrayBuilder outY) {
+
+        int valid = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (isValid(x[i], y[i])) {
+                valid++;
+            }
+        }
+
+        int start = 0;
+        while (start < x.length) {
+            if (!isValid(x[start], y[start])) {
+                // Keep one point of each gap
+                if (outX.size() > 0 && !Double.isNaN(outY.get(outY.size() - 1))) {
+                    outX.add(x[start]);
+                    outY.add(Double.NaN);
+                }
+                start++;
+                continue;
+            }
+
+            int end = start + 1;
+            while (end < x.length && isValid(x[end], y[end])) {
+                end++;
+            }
+            final int share = (int) Math.round((double) threshold * (end - start) / valid);
+            lttb(x, y, start, end, Math.max(share, 2), outX, outY);
+            start = end;
+        }
+    }
+
+    /**
+     * Reduce the points from (inclusive) to (exclusive) with LTTB.
+     */
+    private static void lttb(final double[] x, final double[] y, final int from, final int to, final int threshold,
+                             final DoubleArrayBuilder outX, final DoubleArrayBuilder outY) {
+
+        final int length = to - from;
+        if (threshold >= length || threshold < 3) {
+            if (threshold >= length) {
+                for (int i = from; i < to; i++) {
+                    outX.add(x[i]);
+                    outY.add(y[i]);
+                }
+            } else {
+                outX.add(x[from]);
+                outY.add(y[from]);
+                outX.add(x[to - 1]);
+                outY.add(y[to - 1]);
+            }
+            return;
+        }
+
+        // Bucket size, the first and last point are buckets of their own
+        final double every = (double) (length - 2) / (threshold - 2);
+
+        int a = from;
+        outX.add(x[a]);
+        outY.add(y[a]);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+
+            // Average of the next bucket
+            final int averageStart = from + (int) ((bucket + 1) * every) + 1;
+            final int averageEnd = Math.min(from + (int) ((bucket + 2) * every) + 1, to);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = averageStart; i < averageEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            final int averageLength = averageEnd - averageStart;
+            averageX /= averageLength;
+            averageY /= averageLength;
+
+            // Point of this bucket with the largest triangle
+            final int rangeStart = from + (int) (bucket * every) + 1;
+            final int rangeEnd = from + (int) ((bucket + 1) * every) + 1;
+            final double ax = x[a];
+            final double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                final double area = Math.abs((ax - averageX) * (y[i] - ay) - (ax - x[i]) * (averageY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+
+            outX.add(x[next]);
+            outY.add(y[next]);
+            a = next;
+        }
+
+        outX.add(x[to - 1]);
+        outY.add(y[to - 1]);
+    }
+
+    /**
+     * Reduce a series with M4: of each run of consecutive points in the same
+     * pixel column keep the first, minimum, maximum and last point, in their
+     * original order. Their neighbours within the run are kept as well, as
+     * the rasterizer starts and ends a thin line where it crosses the edge of
+     * the pixel of its end point, so the pixels next to these points depend
+     * on the direction of the lines to them. A missing value ends the run,
+     * the first missing value of a gap is kept.
+     *
+     * @param toPixel The column coordinate along the domain axis of an X value
+     * @param start   The column coordinate where the plot starts
+     * @param end     The column coordinate where the plot ends
+     */
+    static void m4(final double[] x, final double[] y, final DoubleUnaryOperator toPixel,
+                   final double start, final double end,
+                   final DoubleArrayBuilder outX, final DoubleArrayBuilder outY) {
+
+        // a pixel margin for the width of the line, the points beyond are in one column
+        final long first = column(start) - 1;
+        final long last = column(end) + 1;
+
+        int from = 0;
+        while (from < x.length) {
+            if (!isValid(x[from], y[from])) {
+                // Keep one point of each gap
+                if (from == 0 || isValid(x[from - 1], y[from - 1])) {
+                    add(x, y, from, outX, outY);
+                }
+                from++;
+                continue;
+            }
+
+            // Run of points in the same column
+            final long column = column(toPixel.applyAsDouble(x[from]), first, last);
+            int min = from;
+            int max = from;
+            int to = from + 1;
+            while (to < x.length && isValid(x[to], y[to])
+                    && column(toPixel.applyAsDouble(x[to]), first, last) == column) {
+                if (y[to] < y[min]) {
+                    min = to;
+                } else if (y[to] > y[max]) {
+                    max = to;
+                }
+                to++;
+            }
+
+            final int lastIndex = to - 1;
+            final int[] keep = {from, from + 1, min - 1, min, min + 1, max - 1, max, max + 1, lastIndex - 1, lastIndex};
+            Arrays.sort(keep);
+            int previous = from - 1;
+            for (final int index : keep) {
+                if (index > previous && index <= lastIndex) {
+                    add(x, y, index, outX, outY);
+                    previous = index;
+                }
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * The pixel column of a device coordinate, with the columns before the
+     * first and after the last taken together.
+     */
+    private static long column(final double pixel, final long first, final long last) {
+        final long column = column(pixel);
+        if (column < first) {
+            return first - 1;
+        }
+        return column > last ? last + 1 : column;
+    }
+
+    private static long column(final double pixel) {
+        return (long) Math.floor(pixel);
+    }
+
+    private static void add(final double[] x, final double[] y, final int index,
+                            final DoubleArrayBuilder outX, final DoubleArrayBuilder outY) {
+        outX.add(x[index]);
+        outY.add(y[index]);
+    }
+
+    private static boolean isValid(final double x, final double y) {
+        return !Double.isNaN(x) && !Double.isNaN(y);
+    }
+}
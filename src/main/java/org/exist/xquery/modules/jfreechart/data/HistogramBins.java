@@ -0,0 +1,352 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.xml.DoubleArrayBuilder;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.DefaultIntervalXYDataset;
+import org.jfree.data.xy.IntervalXYDataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts observations in bins for a histogram. The observations are the Y
+ * values of each series, so a plain sequence of numbers, the "y" entries of
+ * a map, a column of CSV text or the Y values of XML or binary XY data can
+ * be used. Missing (NaN) values are not counted.
+ * <p>
+ * The bins cover domainLowerBound to domainUpperBound, or else the range of
+ * the observations; observations outside are not counted. With bins the
+ * range is divided in that number of bins of equal width, with binWidth the
+ * bins have that width and are aligned to multiples of it. Otherwise the
+ * width follows the Freedman-Diaconis rule, twice the interquartile range
+ * divided by the cube root of the number of observations, with at most one
+ * bin per pixel of the image width.
+ * <p>
+ * The observations are counted while they are read, see
+ * {@link DatasetSource#readXYItems(Configuration, XYItemSink)}, when the
+ * bins are known up front: with binWidth, or with bins and both domain
+ * bounds. Otherwise the range or the quartiles of the observations are
+ * needed first, and only the observations of each series are kept for a
+ * second pass.
+ */
+public final class HistogramBins {
+
+    /**
+     * The largest number of bins a binWidth may produce.
+     */
+    static final int MAX_BINS = 100_000;
+
+    private static final int INITIAL_BINS = 64;
+
+    private HistogramBins() {
+    }
+
+    /**
+     * Bin the Y values of each series of the source as configured.
+     *
+     * @return The dataset with per bin its center, bounds and count.
+     * @throws IOException              Thrown when the data cannot be accessed.
+     * @throws IllegalArgumentException Thrown when binWidth produces more than MAX_BINS bins.
+     */
+    public static IntervalXYDataset create(final DatasetSource source, final Configuration config) throws IOException {
+        final Counter counter = new Counter(config);
+        source.readXYItems(config, counter);
+        return counter.getDataset();
+    }
+
+    /**
+     * Counts the observations of each series as they are read.
+     */
+    private static final class Counter implements XYItemSink {
+
+        private final Double lowerBound;
+        private final Double upperBound;
+        private final Double binWidth;
+        private final Integer bins;
+        private final int maxBins;
+
+        // the bins, when known up front from bins and both bounds
+        private final double fixedStart;
+        private final double fixedWidth;
+        private final int fixedBins;
+
+        private final List<Series> series = new ArrayList<>();
+
+        Counter(final Configuration config) {
+            this.lowerBound = config.getDomainLowerBound();
+            this.upperBound = config.getDomainUpperBound();
+            this.binWidth = config.getBinWidth();
+            this.bins = config.getBins();
+            this.maxBins = config.getImageWidth();
+            if (binWidth == null && bins != null && lowerBound != null && upperBound != null) {
+                final boolean single = upperBound.doubleValue() == lowerBound.doubleValue();
+                this.fixedStart = lowerBound;
+                this.fixedWidth = single ? 1 : (upperBound - lowerBound) / bins;
+                this.fixedBins = single ? 1 : bins;
+            } else {
+                this.fixedStart = Double.NaN;
+                this.fixedWidth = Double.NaN;
+                this.fixedBins = 0;
+            }
+        }
+
+        @Override
+        public void addSeries(final Comparable key) {
+            final Series added = new Series(key);
+            if (fixedBins > 0) {
+                added.counts = new double[fixedBins];
+            } else if (binWidth == null) {
+                added.values = new DoubleArrayBuilder();
+            }
+            series.add(added);
+        }
+
+        @Override
+        public void addItem(final int index, final double valueX, final double valueY) {
+            final Series current = series.get(index);
+            current.items++;
+            if (Double.isNaN(valueY) || (lowerBound != null && valueY < lowerBound)
+                    || (upperBound != null && valueY > upperBound)) {
+                return;
+            }
+            current.min = Math.min(current.min, valueY);
+            current.max = Math.max(current.max, valueY);
+            current.count++;
+
+            if (binWidth != null) {
+                countBin(current, (long) Math.floor(valueY / binWidth));
+            } else if (fixedBins > 0) {
+                // the upper bound belongs to the last bin
+                final int bin = (int) ((valueY - fixedStart) / fixedWidth);
+                current.counts[bin < fixedBins ? bin : fixedBins - 1]++;
+            } else {
+                current.values.add(valueY);
+            }
+        }
+
+        /**
+         * Count a value in the bin of an index, growing the counts to cover it.
+         */
+        private void countBin(final Series current, final long bin) {
+            if (current.counts == null) {
+                current.counts = new double[INITIAL_BINS];
+                current.first = bin;
+            } else if (bin < current.first || bin >= current.first + current.counts.length) {
+                final long from = Math.min(current.first, bin);
+                final long to = Math.max(current.first + current.counts.length, bin + 1);
+                verifyBins(to - from);
+                final int length = (int) Math.min(MAX_BINS, Math.max(to - from, 2L * current.counts.length));
+                // grow towards the new bin
+                final long first = bin < current.first ? to - length : from;
+                final double[] counts = new double[length];
+                System.arraycopy(current.counts, 0, counts, (int) (current.first - first), current.counts.length);
+                current.counts = counts;
+                current.first = first;
+            }
+            current.counts[(int) (bin - current.first)]++;
+        }
+
+        private void verifyBins(final long span) {
+            if (span > MAX_BINS) {
+                throw new IllegalArgumentException("The binWidth " + binWidth + " results in more than "
+                        + MAX_BINS + " bins");
+            }
+        }
+
+        IntervalXYDataset getDataset() {
+            final DefaultIntervalXYDataset result = new DefaultIntervalXYDataset();
+            for (final Series current : series) {
+                final boolean bounded = lowerBound != null && upperBound != null;
+                final double lower = lowerBound == null ? current.min : lowerBound;
+                final double upper = upperBound == null ? current.max : upperBound;
+                if ((bounded ? current.items == 0 : current.count == 0) || !(lower <= upper)) {
+                    result.addSeries(current.key, new double[6][0]);
+
+                } else if (binWidth != null) {
+                    final long first = (long) Math.floor(lower / binWidth);
+                    final long last = (long) Math.floor(upper / binWidth);
+                    verifyBins(last - first + 1);
+                    final double[] counts = new double[(int) (last - first + 1)];
+                    if (current.counts != null) {
+                        for (int bin = 0; bin < current.counts.length; bin++) {
+                            final long index = current.first + bin - first;
+                            if (index >= 0 && index < counts.length) {
+                                counts[(int) index] = current.counts[bin];
+                            }
+                        }
+                    }
+                    result.addSeries(current.key, toSeries(first * binWidth, binWidth, counts));
+
+                } else if (fixedBins > 0) {
+                    result.addSeries(current.key, toSeries(fixedStart, fixedWidth, current.counts));
+
+                } else {
+                    final double[] values = current.values.toArray();
+                    final int binCount = upper == lower ? 1 : bins != null
+                            ? bins
+                            : freedmanDiaconisBins(values, lower, upper, maxBins);
+                    final double width = upper == lower ? 1 : (upper - lower) / binCount;
+                    result.addSeries(current.key, count(values, lower, width, binCount, upper));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The observations of a series: all items, the counted values and their
+     * range, and the counts per bin or the values to bin.
+     */
+    private static final class Series {
+        private final Comparable key;
+        private int items;
+        private int count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double[] counts;
+        private long first;
+        private DoubleArrayBuilder values;
+
+        private Series(final Comparable key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Count the values in bins, in one pass.
+     *
+     * @return The x, start x, end x, y, start y and end y values of the bins.
+     */
+    static double[][] count(final double[] values, final double start, final double width, final int bins,
+                            final double upper) {
+        final double[] counts = new double[bins];
+        for (final double value : values) {
+            if (value >= start && value <= upper) {
+                // the upper bound belongs to the last bin
+                final int bin = (int) ((value - start) / width);
+                counts[bin < bins ? bin : bins - 1]++;
+            }
+        }
+        return toSeries(start, width, counts);
+    }
+
+    /**
+     * The series of bins of equal width from a start.
+     *
+     * @return The x, start x, end x, y, start y and end y values of the bins.
+     */
+    private static double[][] toSeries(final double start, final double width, final double[] counts) {
+        final int bins = counts.length;
+        final double[] x = new double[bins];
+        final double[] startX = new double[bins];
+        final double[] endX = new double[bins];
+        for (int bin = 0; bin < bins; bin++) {
+            startX[bin] = start + bin * width;
+            endX[bin] = start + (bin + 1) * width;
+            x[bin] = (startX[bin] + endX[bin]) / 2;
+        }
+        return new double[][]{x, startX, endX, counts, counts, counts};
+    }
+
+    /**
+     * The number of bins of the Freedman-Diaconis rule, at least one and at
+     * most maxBins. Sturges' rule is used when the interquartile range is 0.
+     */
+    static int freedmanDiaconisBins(final double[] values, final double lower, final double upper,
+                                    final int maxBins) {
+        final double[] copy = new double[values.length];
+        int n = 0;
+        for (final double value : values) {
+            if (value >= lower && value <= upper) {
+                copy[n++] = value;
+            }
+        }
+        if (n < 2) {
+            return 1;
+        }
+
+        final double iqr = quantile(copy, n, 0.75) - quantile(copy, n, 0.25);
+        final double bins = iqr > 0
+                ? Math.ceil((upper - lower) / (2 * iqr / Math.cbrt(n)))
+                : Math.ceil(Math.log(n) / Math.log(2)) + 1;
+        return (int) Math.max(1, Math.min(bins, Math.max(maxBins, 1)));
+    }
+
+    /**
+     * Select a quantile of the first n values with linear interpolation,
+     * partially reordering them.
+     */
+    private static double quantile(final double[] values, final int n, final double p) {
+        final double position = p * (n - 1);
+        final int index = (int) position;
+        final double value = select(values, n, index);
+        if (index + 1 < n && position > index) {
+            // the next value is the smallest one above the index
+            double next = Double.POSITIVE_INFINITY;
+            for (int i = index + 1; i < n; i++) {
+                next = Math.min(next, values[i]);
+            }
+            return value + (position - index) * (next - value);
+        }
+        return value;
+    }
+
+    /**
+     * Quickselect the k-th smallest of the first n values, after which the
+     * values before k are not larger and the values after k not smaller.
+     */
+    private static double select(final double[] values, final int n, final int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            final double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final double swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.storage.DBBroker;
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.value.NodeValue;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.ArrayCategoryDatasetHandler;
+import org.jfree.data.xml.ArrayPieDatasetHandler;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Dataset source that streams SAX events directly from an in-memory or
+ * persistent node into the dataset handlers, without serializing the
+ * node to an intermediate byte stream and parsing it again.
+ */
+public class NodeDatasetSource implements DatasetSource {
+
+    private final DBBroker broker;
+    private final NodeValue node;
+
+    public NodeDatasetSource(final DBBroker broker, final NodeValue node) {
+        this.broker = broker;
+        this.node = node;
+    }
+
+    @Override
+    public PieDataset readPieDataset(final Configuration config) throws IOException {
+        return read(new ArrayPieDatasetHandler()).getDataset();
+    }
+
+    @Override
+    public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+        return read(new ArrayCategoryDatasetHandler()).getDataset();
+    }
+
+    @Override
+    public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+        return read(DatasetHandlers.newXYDatasetHandler(config, window)).getDataset();
+    }
+
+    @Override
+    public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+        read(DatasetHandlers.newXYItemHandler(sink));
+    }
+
+    @Override
+    public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+        return read(DatasetHandlers.newXYZDatasetHandler(window)).getDataset();
+    }
+
+    /**
+     * Feed the SAX events of the node into the handler.
+     *
+     * @param handler The dataset handler
+     * @return The same handler, after all events have been processed.
+     * @throws IOException Thrown when the node cannot be streamed into the handler.
+     */
+    private <T extends DefaultHandler> T read(final T handler) throws IOException {
+        try {
+            node.toSAX(broker, handler, new Properties());
+
+        } catch (final SAXException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import java.util.Arrays;
+
+/**
+ * A KLL quantile sketch, which summarizes any number of values in a bounded
+ * number of retained items. The items are kept in levels; an item at level
+ * h stands for 2^h values. When the sketch is full, the lowest level over
+ * its capacity is sorted and every other item is promoted to the next
+ * level. Capacities shrink by a factor 2/3 per level below the top one, so
+ * about 3k items are retained and the rank error is in the order of 1/k.
+ * <p>
+ * The count, sum, minimum and maximum are exact. Which half of a level is
+ * promoted is chosen by a xorshift generator with a fixed seed, so the same
+ * values give the same summary.
+ * <p>
+ * Sketches of parts of the values can be merged: the items of each level
+ * are added to the same level, after which the levels over their capacity
+ * are compacted as usual.
+ */
+final class QuantileSketch {
+
+    /**
+     * The default capacity of the top level.
+     */
+    static final int DEFAULT_K = 200;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+
+    private double[][] levels;
+    private int[] sizes;
+    private int retained;
+    private int capacity;
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long random = 0x9E3779B97F4A7C15L;
+
+    // the retained items in ascending order with their cumulative weight, null when outdated
+    private double[] sortedValues;
+    private long[] sortedRanks;
+
+    QuantileSketch(final int k) {
+        this.k = k;
+        this.levels = new double[][]{new double[k]};
+        this.sizes = new int[1];
+        this.capacity = k;
+    }
+
+    /**
+     * Add a value, missing (NaN) values are ignored.
+     */
+    void update(final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sortedValues = null;
+
+        append(0, value);
+        while (retained >= capacity) {
+            compactLowestFullLevel();
+        }
+    }
+
+    /**
+     * Add the values summarized by another sketch, which is left as it is.
+     */
+    void merge(final QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sortedValues = null;
+
+        for (int level = 0; level < other.levels.length; level++) {
+            // copied first, the other sketch may be this one
+            final double[] items = Arrays.copyOf(other.levels[level], other.sizes[level]);
+            while (level >= levels.length) {
+                addLevel();
+            }
+            for (final double item : items) {
+                append(level, item);
+            }
+        }
+        while (retained >= capacity) {
+            compactLowestFullLevel();
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * The quantile q (0..1) with linear interpolation between neighbouring
+     * ranks, exact as long as no level has been compacted.
+     */
+    double getQuantile(final double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        final double position = q * (count - 1);
+        final long rank = (long) position;
+
+        // first item covering the rank
+        int index = 0;
+        while (sortedRanks[index] + weight(index) <= rank) {
+            index++;
+        }
+        final double value = sortedValues[index];
+        if (position > rank && rank + 1 >= sortedRanks[index] + weight(index) && index + 1 < sortedValues.length) {
+            return value + (position - rank) * (sortedValues[index + 1] - value);
+        }
+        return value;
+    }
+
+    /**
+     * The retained items in ascending order.
+     */
+    double[] getValues() {
+        if (count == 0) {
+            return new double[0];
+        }
+        sort();
+        return sortedValues.clone();
+    }
+
+    private long weight(final int index) {
+        final long next = index + 1 < sortedRanks.length ? sortedRanks[index + 1] : count;
+        return next - sortedRanks[index];
+    }
+
+    private void append(final int level, final double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length + (levels[level].length >> 1) + 1);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    private int capacity(final int level) {
+        final int depth = levels.length - 1 - level;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void compactLowestFullLevel() {
+        int level = 0;
+        while (sizes[level] < capacity(level)) {
+            level++;
+        }
+        if (level + 1 == levels.length) {
+            addLevel();
+        }
+
+        final double[] items = levels[level];
+        final int size = sizes[level];
+        Arrays.sort(items, 0, size);
+
+        // an odd item out stays at this level
+        final int pairs = size >> 1;
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        final int first = (int) (random & 1);
+        for (int i = 0; i < pairs; i++) {
+            append(level + 1, items[2 * i + first]);
+        }
+
+        if ((size & 1) == 1) {
+            items[0] = items[size - 1];
+        }
+        sizes[level] = size & 1;
+        retained -= 2 * pairs;
+    }
+
+    /**
+     * Add a level on top, which lowers the capacities of the levels below.
+     */
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levels[levels.length - 1] = new double[k];
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        capacity = 0;
+        for (int h = 0; h < levels.length; h++) {
+            capacity += capacity(h);
+        }
+    }
+
+    /**
+     * Merge the sorted levels into ascending values with their ranks.
+     */
+    private void sort() {
+        if (sortedValues != null) {
+            return;
+        }
+        final int[] positions = new int[levels.length];
+        for (int level = 0; level < levels.length; level++) {
+            Arrays.sort(levels[level], 0, sizes[level]);
+        }
+
+        sortedValues = new double[retained];
+        sortedRanks = new long[retained];
+        long rank = 0;
+        for (int i = 0; i < retained; i++) {
+            int lowest = -1;
+            for (int level = 0; level < levels.length; level++) {
+                if (positions[level] < sizes[level] && (lowest < 0
+                        || levels[level][positions[level]] < levels[lowest][positions[lowest]])) {
+                    lowest = level;
+                }
+            }
+            sortedValues[i] = levels[lowest][positions[lowest]++];
+            sortedRanks[i] = rank;
+            rank += 1L << lowest;
+        }
+    }
+}
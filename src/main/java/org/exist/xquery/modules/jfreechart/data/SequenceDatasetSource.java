@@ -0,0 +1,369 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.XPathException;
+import org.exist.xquery.functions.array.ArrayType;
+import org.exist.xquery.functions.map.AbstractMapType;
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.NumericValue;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.StringValue;
+import org.exist.xquery.value.Type;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.ArrayCategoryDataset;
+import org.jfree.data.xml.ArrayPieDataset;
+import org.jfree.data.xml.BoundedXYZDataset;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.NumberTextBuffer;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dataset source reading the data directly from XQuery values, either a map
+ * <pre>
+ *   map { "series": [ map { "name": "a", "x": (1, 2, 3), "y": (4, 5, 6) } ] }
+ * </pre>
+ * or a plain sequence of numbers, which is read as a single series with the
+ * positions 1..n as X values or keys. In a series the "x" entry holds the X
+ * values, or for pie and category datasets the keys; XYZ datasets need a "z"
+ * entry as well. Without "x" an XY series gets the positions 1..n. The
+ * "series" and value entries may be arrays or sequences.
+ */
+public class SequenceDatasetSource implements DatasetSource {
+
+    private static final String SERIES_KEY = "series";
+    private static final String NAME_KEY = "name";
+    private static final String X_KEY = "x";
+    private static final String Y_KEY = "y";
+    private static final String Z_KEY = "z";
+
+    private final Sequence data;
+
+    public SequenceDatasetSource(final Sequence data) {
+        this.data = data;
+    }
+
+    /**
+     * Check if the data can be read by this source.
+     */
+    public static boolean isSupported(final Sequence data) {
+        if (data.getItemCount() == 1 && data.itemAt(0) instanceof AbstractMapType) {
+            return true;
+        }
+        return Type.subTypeOf(data.getItemType(), Type.NUMBER);
+    }
+
+    @Override
+    public PieDataset readPieDataset(final Configuration config) throws IOException {
+        final List<AbstractMapType> series = getSeries();
+        if (series == null) {
+            return readPieDataset(readDoubles(data));
+        }
+        if (series.size() != 1) {
+            throw new IOException("PieDataset charts take a single series, got " + series.size());
+        }
+
+        try {
+            final AbstractMapType entry = series.get(0);
+            final String[] keys = readStrings(getEntry(entry, X_KEY));
+            final double[] values = readDoubles(getEntry(entry, Y_KEY));
+            verifyLength(keys.length, values.length);
+
+            final ArrayPieDataset dataset = new ArrayPieDataset();
+            for (int item = 0; item < keys.length; item++) {
+                dataset.setValue(keys[item], values[item]);
+            }
+            return dataset;
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    private static PieDataset readPieDataset(final double[] values) {
+        final ArrayPieDataset dataset = new ArrayPieDataset();
+        for (int item = 0; item < values.length; item++) {
+            dataset.setValue(Integer.toString(item + 1), values[item]);
+        }
+        return dataset;
+    }
+
+    @Override
+    public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+        final ArrayCategoryDataset dataset = new ArrayCategoryDataset();
+
+        final List<AbstractMapType> series = getSeries();
+        if (series == null) {
+            final double[] values = readDoubles(data);
+            for (int item = 0; item < values.length; item++) {
+                dataset.addValue(values[item], defaultName(0), Integer.toString(item + 1));
+            }
+            return dataset;
+        }
+
+        try {
+            for (int index = 0; index < series.size(); index++) {
+                final AbstractMapType entry = series.get(index);
+                final String name = readName(entry, index);
+                final String[] keys = readStrings(getEntry(entry, X_KEY));
+                final double[] values = readDoubles(getEntry(entry, Y_KEY));
+                verifyLength(keys.length, values.length);
+
+                for (int item = 0; item < keys.length; item++) {
+                    dataset.addValue(values[item], name, keys[item]);
+                }
+            }
+            return dataset;
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+        final XYDatasetBuilder builder = new XYDatasetBuilder(config, window);
+
+        final List<AbstractMapType> series = getSeries();
+        if (series == null) {
+            final double[] valuesY = readDoubles(data);
+            builder.addSeries(defaultName(0), positions(valuesY.length), valuesY);
+            return builder.getDataset();
+        }
+
+        try {
+            for (int index = 0; index < series.size(); index++) {
+                final AbstractMapType entry = series.get(index);
+                final double[] valuesY = readDoubles(getEntry(entry, Y_KEY));
+                final double[] valuesX = entry.contains(new StringValue(X_KEY))
+                        ? readDoubles(entry.get(new StringValue(X_KEY))) : positions(valuesY.length);
+                builder.addSeries(readName(entry, index), valuesX, valuesY);
+            }
+            return builder.getDataset();
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+        final NumberTextBuffer dateText = new NumberTextBuffer();
+        try {
+            final List<AbstractMapType> series = getSeries();
+            if (series == null) {
+                sink.addSeries(defaultName(0));
+                int position = 0;
+                for (final SequenceIterator i = members(data); i.hasNext(); ) {
+                    sink.addItem(0, ++position, readDouble(i.nextItem(), dateText));
+                }
+                return;
+            }
+
+            for (int index = 0; index < series.size(); index++) {
+                final AbstractMapType entry = series.get(index);
+                final Sequence valuesY = getEntry(entry, Y_KEY);
+                final Sequence valuesX = entry.contains(new StringValue(X_KEY))
+                        ? entry.get(new StringValue(X_KEY)) : null;
+                if (valuesX != null) {
+                    verifyLength(count(valuesX), count(valuesY));
+                }
+
+                sink.addSeries(readName(entry, index));
+                final SequenceIterator iteratorX = valuesX == null ? null : members(valuesX);
+                int position = 0;
+                for (final SequenceIterator i = members(valuesY); i.hasNext(); ) {
+                    final double valueY = readDouble(i.nextItem(), dateText);
+                    position++;
+                    sink.addItem(index, iteratorX == null ? position : readDouble(iteratorX.nextItem(), dateText), valueY);
+                }
+            }
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+        final List<AbstractMapType> series = getSeries();
+        if (series == null) {
+            throw new IOException("XYZDataset charts need a map with X, Y and Z values");
+        }
+
+        try {
+            final BoundedXYZDataset dataset = new BoundedXYZDataset();
+            for (int index = 0; index < series.size(); index++) {
+                final AbstractMapType entry = series.get(index);
+                final double[] valuesX = readDoubles(getEntry(entry, X_KEY));
+                final double[] valuesY = readDoubles(getEntry(entry, Y_KEY));
+                final double[] valuesZ = readDoubles(getEntry(entry, Z_KEY));
+                verifyLength(valuesX.length, valuesY.length);
+                verifyLength(valuesX.length, valuesZ.length);
+                DatasetArrays.addSeries(dataset, readName(entry, index), window, valuesX, valuesY, valuesZ);
+            }
+            return dataset;
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Get the series maps, or null when the data is a plain sequence of numbers.
+     */
+    private List<AbstractMapType> getSeries() throws IOException {
+        if (data.getItemCount() != 1 || !(data.itemAt(0) instanceof AbstractMapType)) {
+            return null;
+        }
+
+        final Sequence entries = getEntry((AbstractMapType) data.itemAt(0), SERIES_KEY);
+        final List<AbstractMapType> series = new ArrayList<>();
+        try {
+            for (final SequenceIterator i = members(entries); i.hasNext(); ) {
+                final Item item = i.nextItem();
+                if (!(item instanceof AbstractMapType)) {
+                    throw new IOException("Series must be maps, got " + Type.getTypeName(item.getType()));
+                }
+                series.add((AbstractMapType) item);
+            }
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        return series;
+    }
+
+    private static Sequence getEntry(final AbstractMapType map, final String key) throws IOException {
+        final StringValue keyValue = new StringValue(key);
+        if (!map.contains(keyValue)) {
+            throw new IOException("Missing map entry '" + key + "'");
+        }
+        return map.get(keyValue);
+    }
+
+    private static String readName(final AbstractMapType entry, final int index) throws XPathException {
+        final Sequence name = entry.get(new StringValue(NAME_KEY));
+        return name == null || name.isEmpty() ? defaultName(index) : name.getStringValue();
+    }
+
+    private static String defaultName(final int index) {
+        return "Series " + (index + 1);
+    }
+
+    /**
+     * Iterate the members of an array, or else the items of the sequence.
+     */
+    private static SequenceIterator members(final Sequence values) throws XPathException {
+        if (values.getItemCount() == 1 && values.itemAt(0) instanceof ArrayType) {
+            final ArrayType array = (ArrayType) values.itemAt(0);
+            return new SequenceIterator() {
+                private int position = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return position < array.getSize();
+                }
+
+                @Override
+                public Item nextItem() {
+                    final Sequence member = array.get(position++);
+                    return member.isEmpty() ? null : member.itemAt(0);
+                }
+            };
+        }
+        return values.iterate();
+    }
+
+    private static int count(final Sequence values) {
+        if (values.getItemCount() == 1 && values.itemAt(0) instanceof ArrayType) {
+            return ((ArrayType) values.itemAt(0)).getSize();
+        }
+        return values.getItemCount();
+    }
+
+    /**
+     * Read numbers into an array, an empty member is a missing (NaN) value.
+     * Dates and dateTimes are read as milliseconds since the epoch.
+     */
+    private static double[] readDoubles(final Sequence values) throws IOException {
+        try {
+            final double[] result = new double[count(values)];
+            int index = 0;
+            final NumberTextBuffer dateText = new NumberTextBuffer();
+            for (final SequenceIterator i = members(values); i.hasNext(); ) {
+                result[index++] = readDouble(i.nextItem(), dateText);
+            }
+            return result;
+
+        } catch (final XPathException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Read a number, an empty member is a missing (NaN) value.
+     */
+    private static double readDouble(final Item item, final NumberTextBuffer dateText) throws XPathException {
+        if (item == null) {
+            return Double.NaN;
+        } else if (item instanceof NumericValue) {
+            return ((NumericValue) item).getDouble();
+        } else if (Type.subTypeOf(item.getType(), Type.DATE_TIME) || Type.subTypeOf(item.getType(), Type.DATE)) {
+            dateText.clear();
+            dateText.append(item.getStringValue());
+            return dateText.parseDateTime();
+        }
+        return ((NumericValue) item.atomize().convertTo(Type.DOUBLE)).getDouble();
+    }
+
+    private static String[] readStrings(final Sequence values) throws XPathException {
+        final String[] result = new String[count(values)];
+        int index = 0;
+        for (final SequenceIterator i = members(values); i.hasNext(); ) {
+            final Item item = i.nextItem();
+            result[index++] = item == null ? "" : item.getStringValue();
+        }
+        return result;
+    }
+
+    private static double[] positions(final int count) {
+        final double[] result = new double[count];
+        for (int index = 0; index < count; index++) {
+            result[index] = index + 1;
+        }
+        return result;
+    }
+
+    private static void verifyLength(final int expected, final int actual) throws IOException {
+        if (expected != actual) {
+            throw new IOException("Series values differ in length: " + expected + " and " + actual);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.CategoryDatasetReader;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYDatasetReader;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Dataset source reading JFreechart XML from a (serialized) byte stream.
+ */
+public class StreamDatasetSource implements DatasetSource {
+
+    private final InputStream is;
+
+    public StreamDatasetSource(final InputStream is) {
+        this.is = is;
+    }
+
+    @Override
+    public PieDataset readPieDataset(final Configuration config) throws IOException {
+        return CategoryDatasetReader.readPieDatasetFromXML(is);
+    }
+
+    @Override
+    public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+        return CategoryDatasetReader.readCategoryDatasetFromXML(is);
+    }
+
+    @Override
+    public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+        return XYDatasetReader.readXYDatasetFromXML(is, DatasetHandlers.newXYDatasetHandler(config, window));
+    }
+
+    @Override
+    public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+        XYDatasetReader.readXYItemsFromXML(is, DatasetHandlers.newXYItemHandler(sink));
+    }
+
+    @Override
+    public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+        return XYDatasetReader.readXYZDatasetFromXML(is, DatasetHandlers.newXYZDatasetHandler(window));
+    }
+}
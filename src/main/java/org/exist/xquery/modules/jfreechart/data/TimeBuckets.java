@@ -0,0 +1,232 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.xml.ArrayXYDataset;
+import org.jfree.data.xml.DoubleArrayBuilder;
+import org.jfree.data.xml.SeriesSorter;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates the values of time series per bucket of time, so that a chart
+ * of raw measurements shows one value per minute, hour, day or other
+ * configured duration.
+ * <p>
+ * The X values are milliseconds since the epoch. Buckets are aligned to
+ * multiples of the bucket length since the bucketOrigin, and each bucket is
+ * plotted at its start. By default the origin is 1970-01-01T00:00:00Z, so a
+ * day bucket is a UTC day, except for buckets of whole weeks, which start on
+ * Monday 1970-01-05T00:00:00Z as the epoch is a Thursday. The Y values in a
+ * bucket are combined with the aggregate function mean, sum, min, max or
+ * count. Missing (NaN) values are not counted; a bucket with only missing
+ * values stays missing, or 0 for count, so gaps stay visible. Items without
+ * X value are dropped.
+ * <p>
+ * The items are aggregated while they are read, see
+ * {@link DatasetSource#readXYItems(Configuration, XYItemSink)}, keeping
+ * the running sum, minimum, maximum and count per bucket. When the X values
+ * of a series go back in time a bucket may be started again; the buckets
+ * are then sorted by their start and combined once the series is read.
+ */
+public final class TimeBuckets {
+
+    /**
+     * The length of a week in milliseconds.
+     */
+    static final long WEEK = 604_800_000L;
+
+    /**
+     * The first Monday after the epoch, where week buckets start by default.
+     */
+    static final long FIRST_MONDAY = 4 * 86_400_000L;
+
+    private static final String SUM = "sum";
+    private static final String MIN = "min";
+    private static final String MAX = "max";
+    private static final String COUNT = "count";
+
+    private TimeBuckets() {
+    }
+
+    /**
+     * Aggregate the series of the source as configured.
+     *
+     * @return The aggregated dataset, or the dataset as read when no bucket is configured.
+     * @throws IOException Thrown when the data cannot be accessed.
+     */
+    public static XYDataset aggregate(final DatasetSource source, final Configuration config) throws IOException {
+        if (config.getBucket() == null) {
+            return source.readXYDataset(config);
+        }
+
+        final Aggregator aggregator = new Aggregator(config.getBucket(), getOrigin(config));
+        source.readXYItems(config, aggregator);
+        return aggregator.getDataset(config.getAggregate());
+    }
+
+    /**
+     * The configured bucketOrigin, or else the default for the bucket length.
+     */
+    static long getOrigin(final Configuration config) {
+        if (config.getBucketOrigin() != null) {
+            return config.getBucketOrigin();
+        }
+        return config.getBucket() % WEEK == 0 ? FIRST_MONDAY : 0;
+    }
+
+    /**
+     * Keeps the running sum, minimum, maximum and count of the buckets of
+     * each series as the items are read.
+     */
+    private static final class Aggregator implements XYItemSink {
+
+        private final double bucket;
+        private final double origin;
+        private final List<Comparable> keys = new ArrayList<>();
+        private final List<Buckets> series = new ArrayList<>();
+
+        private Aggregator(final long bucket, final long origin) {
+            this.bucket = bucket;
+            this.origin = origin;
+        }
+
+        @Override
+        public void addSeries(final Comparable key) {
+            keys.add(key);
+            series.add(new Buckets());
+        }
+
+        @Override
+        public void addItem(final int index, final double valueX, final double valueY) {
+            if (Double.isNaN(valueX)) {
+                return;
+            }
+            final Buckets buckets = series.get(index);
+            buckets.add(origin + Math.floor((valueX - origin) / bucket) * bucket, valueY);
+        }
+
+        XYDataset getDataset(final String function) {
+            final ArrayXYDataset result = new ArrayXYDataset();
+            for (int index = 0; index < series.size(); index++) {
+                final Buckets buckets = series.get(index);
+                if (!buckets.ascending) {
+                    buckets.sort();
+                }
+                final int size = buckets.starts.size();
+                final double[] valuesX = new double[size];
+                final double[] valuesY = new double[size];
+                for (int i = 0; i < size; i++) {
+                    valuesX[i] = buckets.starts.get(i);
+                    valuesY[i] = result(function, buckets.sums.get(i), buckets.mins.get(i),
+                            buckets.maxs.get(i), (int) buckets.counts.get(i));
+                }
+                result.addSeries(keys.get(index), valuesX, valuesY);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The buckets of a series, in the order they were started.
+     */
+    private static final class Buckets {
+        private final DoubleArrayBuilder starts = new DoubleArrayBuilder();
+        private final DoubleArrayBuilder sums = new DoubleArrayBuilder();
+        private final DoubleArrayBuilder mins = new DoubleArrayBuilder();
+        private final DoubleArrayBuilder maxs = new DoubleArrayBuilder();
+        private final DoubleArrayBuilder counts = new DoubleArrayBuilder();
+        private boolean ascending = true;
+
+        private void add(final double start, final double value) {
+            int last = starts.size() - 1;
+            if (last < 0 || start != starts.get(last)) {
+                if (last >= 0 && start < starts.get(last)) {
+                    ascending = false;
+                }
+                starts.add(start);
+                sums.add(0);
+                mins.add(Double.POSITIVE_INFINITY);
+                maxs.add(Double.NEGATIVE_INFINITY);
+                counts.add(0);
+                last++;
+            }
+            if (!Double.isNaN(value)) {
+                sums.set(last, sums.get(last) + value);
+                mins.set(last, Math.min(mins.get(last), value));
+                maxs.set(last, Math.max(maxs.get(last), value));
+                counts.set(last, counts.get(last) + 1);
+            }
+        }
+
+        /**
+         * Sort the buckets by their start, combining the buckets that were started more than once.
+         */
+        private void sort() {
+            final double[] unsortedStarts = starts.toArray();
+            final double[] unsortedSums = sums.toArray();
+            final double[] unsortedMins = mins.toArray();
+            final double[] unsortedMaxs = maxs.toArray();
+            final double[] unsortedCounts = counts.toArray();
+            ascending = true;
+            for (final int i : SeriesSorter.sortByValue(unsortedStarts)) {
+                final int last = starts.size() - 1;
+                if (last >= 0 && starts.get(last) == unsortedStarts[i]) {
+                    sums.set(last, sums.get(last) + unsortedSums[i]);
+                    mins.set(last, Math.min(mins.get(last), unsortedMins[i]));
+                    maxs.set(last, Math.max(maxs.get(last), unsortedMaxs[i]));
+                    counts.set(last, counts.get(last) + unsortedCounts[i]);
+                } else {
+                    starts.add(unsortedStarts[i]);
+                    sums.add(unsortedSums[i]);
+                    mins.add(unsortedMins[i]);
+                    maxs.add(unsortedMaxs[i]);
+                    counts.add(unsortedCounts[i]);
+                }
+            }
+        }
+    }
+
+    private static double result(final String function, final double sum, final double min, final double max,
+                                 final int count) {
+        if (COUNT.equals(function)) {
+            return count;
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        switch (function) {
+            case SUM:
+                return sum;
+            case MIN:
+                return min;
+            case MAX:
+                return max;
+            default:
+                return sum / count;
+        }
+    }
+}
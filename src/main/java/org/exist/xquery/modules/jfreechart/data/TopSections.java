@@ -0,0 +1,184 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.chart.util.TableOrder;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.ArrayCategoryDataset;
+import org.jfree.data.xml.ArrayPieDataset;
+
+import java.util.PriorityQueue;
+
+/**
+ * Limits pie charts to the maxSections largest sections, the other sections
+ * are merged into one section labelled otherLabel. The largest sections are
+ * selected with a bounded heap and keep their original order. When a kept
+ * section is labelled otherLabel itself, the merged sections are added to it.
+ */
+public final class TopSections {
+
+    private TopSections() {
+    }
+
+    /**
+     * Limit the sections of a pie.
+     *
+     * @return The limited dataset, or the dataset itself when it has no more
+     * sections than allowed.
+     */
+    public static PieDataset limit(final PieDataset dataset, final Configuration config) {
+        final Integer maxSections = config.getMaxSections();
+        if (dataset == null || maxSections == null || dataset.getItemCount() <= maxSections) {
+            return dataset;
+        }
+
+        final double[] values = new double[dataset.getItemCount()];
+        for (int item = 0; item < values.length; item++) {
+            values[item] = toDouble(dataset.getValue(item));
+        }
+        final boolean[] kept = selectLargest(values, maxSections);
+
+        final ArrayPieDataset result = new ArrayPieDataset();
+        double other = 0;
+        boolean dropped = false;
+        for (int item = 0; item < values.length; item++) {
+            if (kept[item]) {
+                result.setValue(dataset.getKey(item), dataset.getValue(item));
+            } else {
+                other += values[item];
+                dropped = true;
+            }
+        }
+        if (dropped) {
+            final int index = result.getIndex(config.getOtherLabel());
+            result.setValue(config.getOtherLabel(), index < 0 ? other : toDouble(result.getValue(index)) + other);
+        }
+        return result;
+    }
+
+    /**
+     * Limit the sections of the pies of a multiple pie chart. The sections
+     * are the rows when there is a pie per column, or else the columns; the
+     * sections with the largest total over all pies are kept.
+     *
+     * @return The limited dataset, or the dataset itself when it has no more
+     * sections than allowed.
+     */
+    public static CategoryDataset limit(final CategoryDataset dataset, final Configuration config) {
+        final Integer maxSections = config.getMaxSections();
+        if (dataset == null || maxSections == null) {
+            return dataset;
+        }
+
+        final boolean byColumn = config.getOrder() == TableOrder.BY_COLUMN;
+        final int sections = byColumn ? dataset.getRowCount() : dataset.getColumnCount();
+        final int pies = byColumn ? dataset.getColumnCount() : dataset.getRowCount();
+        if (sections <= maxSections) {
+            return dataset;
+        }
+
+        final double[] totals = new double[sections];
+        for (int section = 0; section < sections; section++) {
+            for (int pie = 0; pie < pies; pie++) {
+                totals[section] += getValue(dataset, byColumn, section, pie);
+            }
+        }
+        final boolean[] kept = selectLargest(totals, maxSections);
+
+        final ArrayCategoryDataset result = new ArrayCategoryDataset();
+        for (int pie = 0; pie < pies; pie++) {
+            final Comparable pieKey = byColumn ? dataset.getColumnKey(pie) : dataset.getRowKey(pie);
+            double other = 0;
+            boolean dropped = false;
+            for (int section = 0; section < sections; section++) {
+                final double value = getValue(dataset, byColumn, section, pie);
+                if (kept[section]) {
+                    final Comparable sectionKey = byColumn ? dataset.getRowKey(section) : dataset.getColumnKey(section);
+                    add(result, byColumn, sectionKey, pieKey, value);
+                } else {
+                    other += value;
+                    dropped = true;
+                }
+            }
+            if (dropped) {
+                add(result, byColumn, config.getOtherLabel(), pieKey,
+                        getValue(result, byColumn, config.getOtherLabel(), pieKey) + other);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Select the indexes of the count largest values, in O(n log count).
+     */
+    private static boolean[] selectLargest(final double[] values, final int count) {
+        final boolean[] selected = new boolean[values.length];
+        if (count <= 0) {
+            return selected;
+        }
+
+        // Min-heap of the largest values seen, the smallest of those on top
+        final PriorityQueue<Integer> heap = new PriorityQueue<>(count,
+                (a, b) -> values[a] != values[b] ? Double.compare(values[a], values[b]) : Integer.compare(b, a));
+        for (int index = 0; index < values.length; index++) {
+            if (heap.size() < count) {
+                heap.add(index);
+            } else if (values[index] > values[heap.peek()]) {
+                heap.poll();
+                heap.add(index);
+            }
+        }
+        for (final Integer index : heap) {
+            selected[index] = true;
+        }
+        return selected;
+    }
+
+    private static double getValue(final CategoryDataset dataset, final boolean byColumn,
+                                   final int section, final int pie) {
+        return toDouble(byColumn ? dataset.getValue(section, pie) : dataset.getValue(pie, section));
+    }
+
+    /**
+     * The value of a section of a pie, 0 when there is no such section.
+     */
+    private static double getValue(final ArrayCategoryDataset dataset, final boolean byColumn,
+                                   final Comparable sectionKey, final Comparable pieKey) {
+        final int row = dataset.getRowIndex(byColumn ? sectionKey : pieKey);
+        final int column = dataset.getColumnIndex(byColumn ? pieKey : sectionKey);
+        return row < 0 || column < 0 ? 0 : toDouble(dataset.getValue(row, column));
+    }
+
+    private static void add(final ArrayCategoryDataset dataset, final boolean byColumn,
+                            final Comparable sectionKey, final Comparable pieKey, final double value) {
+        if (byColumn) {
+            dataset.addValue(value, sectionKey, pieKey);
+        } else {
+            dataset.addValue(value, pieKey, sectionKey);
+        }
+    }
+
+    private static double toDouble(final Number value) {
+        return value == null ? 0 : value.doubleValue();
+    }
+}
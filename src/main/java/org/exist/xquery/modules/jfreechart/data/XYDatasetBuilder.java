@@ -0,0 +1,66 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.xml.ArrayXYDataset;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.SeriesSorter;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Builds an XYDataset from series supplied as primitive arrays, kept as
+ * arrays ({@link ArrayXYDataset}). Unless autoSort is off, a series that is
+ * not in ascending X order is sorted first, see {@link SeriesSorter}. The
+ * series are then culled to the window.
+ */
+final class XYDatasetBuilder {
+
+    private final boolean autoSort;
+    private final ArrayXYDataset dataset;
+    private final CullingWindow window;
+
+    XYDatasetBuilder(final Configuration config, final CullingWindow window) {
+        this.autoSort = config.isAutoSort();
+        this.window = window;
+        this.dataset = new ArrayXYDataset();
+    }
+
+    /**
+     * Add a series, a NaN Y value is a missing value.
+     *
+     * @throws IllegalArgumentException Thrown when the series already exists
+     *                                  or the arrays differ in length.
+     */
+    void addSeries(final String key, final double[] valuesX, final double[] valuesY) {
+        if (!autoSort || valuesX.length != valuesY.length) {
+            // unequal lengths are reported by the dataset
+            DatasetArrays.addSeries(dataset, key, window, valuesX, valuesY);
+            return;
+        }
+        final double[][] sorted = SeriesSorter.sortByX(valuesX, valuesY);
+        DatasetArrays.addSeries(dataset, key, window, sorted[0], sorted[1]);
+    }
+
+    XYDataset getDataset() {
+        return dataset;
+    }
+}
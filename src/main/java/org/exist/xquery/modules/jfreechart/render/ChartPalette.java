@@ -0,0 +1,484 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.Axis;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.MultiplePiePlot;
+import org.jfree.chart.plot.PiePlot;
+import org.jfree.chart.plot.Plot;
+import org.jfree.chart.plot.SpiderWebPlot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.category.CategoryItemRenderer;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.chart.title.LegendTitle;
+import org.jfree.chart.title.TextTitle;
+import org.jfree.chart.title.Title;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xy.XYDataset;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Paint;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The palette of a chart image written as indexed PNG. An image with at most
+ * 256 colors gets these colors. Otherwise the palette holds the colors of the
+ * chart (series, sections, axes, titles), its backgrounds, the shades that
+ * antialiasing blends between these colors and the backgrounds, and then the
+ * most frequent other colors of the image. Each pixel gets the nearest color
+ * of the palette, without dithering, so lines and text stay crisp.
+ */
+final class ChartPalette {
+
+    static final int MAX_COLORS = 256;
+
+    // Shades between a chart color and a background at most
+    private static final int MAX_SHADES = 7;
+
+    // Distinct colors counted at most, the colors after these are only mapped
+    private static final int MAX_COUNTED = 1 << 16;
+
+    // Distinct colors of which the nearest palette color is kept at most, the others are searched each time
+    private static final int MAX_CACHED = MAX_COUNTED;
+
+    private final int[] colors;
+    private final boolean exact;
+
+    /**
+     * Build the palette for a chart drawn on an image.
+     *
+     * @param chart The chart, drawn on the image
+     * @param image The image, TYPE_INT_ARGB or TYPE_INT_RGB
+     */
+    ChartPalette(final JFreeChart chart, final BufferedImage image) {
+        final ColorTable counts = countColors(image);
+        this.exact = counts.size() <= MAX_COLORS && counts.size() < MAX_COUNTED;
+
+        final Set<Integer> palette = new LinkedHashSet<>();
+        if (exact) {
+            for (final int color : counts.keys()) {
+                palette.add(color);
+            }
+        } else {
+            final Set<Integer> chartColors = new LinkedHashSet<>();
+            final Set<Integer> backgrounds = new LinkedHashSet<>();
+            collectChartColors(chart, chartColors, backgrounds);
+            addAll(palette, backgrounds);
+            addAll(palette, chartColors);
+            addShades(palette, chartColors, backgrounds);
+            addFrequent(palette, counts);
+        }
+
+        // translucent colors first, to keep the transparency chunk short
+        final List<Integer> ordered = new ArrayList<>(palette);
+        ordered.sort((a, b) -> Boolean.compare(a >>> 24 == 0xff, b >>> 24 == 0xff));
+        this.colors = new int[ordered.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = ordered.get(i);
+        }
+    }
+
+    /**
+     * @return The ARGB colors, translucent colors first.
+     */
+    int[] getColors() {
+        return colors;
+    }
+
+    /**
+     * @return Whether the palette holds every color of the image.
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Map the pixels of the image to the palette.
+     *
+     * @return The palette index of each pixel, row by row.
+     */
+    byte[] getIndices(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final byte[] indices = new byte[width * height];
+        final int[] row = new int[width];
+        final ColorTable nearest = new ColorTable();
+        for (int y = 0; y < height; y++) {
+            getRow(image, y, row);
+            for (int x = 0; x < width; x++) {
+                final int pixel = normalize(row[x]);
+                int index = nearest.get(pixel);
+                if (index < 0) {
+                    index = findNearest(pixel);
+                    if (nearest.size() < MAX_CACHED) {
+                        nearest.put(pixel, index);
+                    }
+                }
+                indices[y * width + x] = (byte) index;
+            }
+        }
+        return indices;
+    }
+
+    private int findNearest(final int pixel) {
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < colors.length; i++) {
+            final long distance = distance(pixel, colors[i]);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A weighted squared distance, green weighs most as the eye is most sensitive to it.
+     */
+    static long distance(final int a, final int b) {
+        final int alpha = (a >>> 24) - (b >>> 24);
+        final int red = ((a >> 16) & 0xff) - ((b >> 16) & 0xff);
+        final int green = ((a >> 8) & 0xff) - ((b >> 8) & 0xff);
+        final int blue = (a & 0xff) - (b & 0xff);
+        return 3L * alpha * alpha + 2L * red * red + 4L * green * green + 3L * blue * blue;
+    }
+
+    private static ColorTable countColors(final BufferedImage image) {
+        final ColorTable counts = new ColorTable();
+        final int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            getRow(image, y, row);
+            for (final int pixel : row) {
+                final int color = normalize(pixel);
+                final int count = counts.get(color);
+                if (count >= 0) {
+                    counts.put(color, count + 1);
+                } else if (counts.size() < MAX_COUNTED) {
+                    counts.put(color, 1);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static void getRow(final BufferedImage image, final int y, final int[] row) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().getDataElements(0, y, row.length, 1, row);
+        } else {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+    }
+
+    /**
+     * Fully transparent pixels are one color, whatever their RGB.
+     */
+    private static int normalize(final int pixel) {
+        return (pixel >>> 24) == 0 ? 0 : pixel;
+    }
+
+    private static void addAll(final Set<Integer> palette, final Set<Integer> add) {
+        for (final Integer color : add) {
+            if (palette.size() == MAX_COLORS) {
+                return;
+            }
+            palette.add(color);
+        }
+    }
+
+    /**
+     * Add the blends of the chart colors over the backgrounds, using at
+     * most two thirds of the room left.
+     */
+    private static void addShades(final Set<Integer> palette, final Set<Integer> chartColors,
+                                  final Set<Integer> backgrounds) {
+        final int pairs = chartColors.size() * backgrounds.size();
+        if (pairs == 0) {
+            return;
+        }
+        final int room = (MAX_COLORS - palette.size()) * 2 / 3;
+        final int shades = Math.max(1, Math.min(MAX_SHADES, room / pairs));
+        for (int shade = 1; shade <= shades; shade++) {
+            // the shades are added coarse to fine, so all pairs get the coarse ones
+            for (final int color : chartColors) {
+                for (final int background : backgrounds) {
+                    if (palette.size() == MAX_COLORS) {
+                        return;
+                    }
+                    palette.add(blend(color, background, (float) shade / (shades + 1)));
+                }
+            }
+        }
+    }
+
+    private static void addFrequent(final Set<Integer> palette, final ColorTable counts) {
+        final int[] keys = counts.keys();
+        // count and key packed together, to sort on the count
+        final long[] byCount = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byCount[i] = ((long) counts.get(keys[i]) << 32) | (keys[i] & 0xffffffffL);
+        }
+        Arrays.sort(byCount);
+        for (int i = byCount.length - 1; i >= 0 && palette.size() < MAX_COLORS; i--) {
+            palette.add((int) byCount[i]);
+        }
+    }
+
+    /**
+     * A color drawn with a coverage over a background, like antialiasing does.
+     */
+    static int blend(final int color, final int background, final float coverage) {
+        final float source = (color >>> 24) / 255f * coverage;
+        final float destination = (background >>> 24) / 255f * (1f - source);
+        final float alpha = source + destination;
+        if (alpha <= 0f) {
+            return 0;
+        }
+        int result = Math.round(alpha * 255f) << 24;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            final float component = (((color >> shift) & 0xff) * source
+                    + ((background >> shift) & 0xff) * destination) / alpha;
+            result |= Math.round(component) << shift;
+        }
+        return result;
+    }
+
+    // =========================
+    // Colors of the chart
+
+    private static void collectChartColors(final JFreeChart chart, final Set<Integer> colors,
+                                           final Set<Integer> backgrounds) {
+        final int chartBackground = chart.getBackgroundPaint() instanceof Color
+                ? ((Color) chart.getBackgroundPaint()).getRGB() : 0;
+        backgrounds.add(chartBackground);
+        addPaint(backgrounds, chart.getBackgroundPaint());
+
+        final List<Title> titles = new ArrayList<>();
+        if (chart.getTitle() != null) {
+            titles.add(chart.getTitle());
+        }
+        for (int i = 0; i < chart.getSubtitleCount(); i++) {
+            titles.add(chart.getSubtitle(i));
+        }
+        for (final Title title : titles) {
+            if (title instanceof TextTitle) {
+                addPaint(colors, ((TextTitle) title).getPaint());
+                addPaint(backgrounds, ((TextTitle) title).getBackgroundPaint());
+            } else if (title instanceof LegendTitle) {
+                addPaint(colors, ((LegendTitle) title).getItemPaint());
+                addPaint(backgrounds, ((LegendTitle) title).getBackgroundPaint());
+            }
+        }
+
+        collectPlotColors(chart.getPlot(), chartBackground, colors, backgrounds);
+    }
+
+    private static void collectPlotColors(final Plot plot, final int chartBackground,
+                                          final Set<Integer> colors, final Set<Integer> backgrounds) {
+        if (plot.getBackgroundPaint() instanceof Color) {
+            // the background is drawn with an alpha over the chart background
+            backgrounds.add(blend(((Color) plot.getBackgroundPaint()).getRGB(), chartBackground,
+                    plot.getBackgroundAlpha()));
+        }
+        addPaint(colors, plot.getOutlinePaint());
+
+        if (plot instanceof XYPlot) {
+            final XYPlot xyPlot = (XYPlot) plot;
+            addPaint(colors, xyPlot.getDomainGridlinePaint());
+            addPaint(colors, xyPlot.getRangeGridlinePaint());
+            addPaint(colors, xyPlot.getDomainZeroBaselinePaint());
+            addPaint(colors, xyPlot.getRangeZeroBaselinePaint());
+            for (int i = 0; i < xyPlot.getDomainAxisCount(); i++) {
+                addAxis(colors, xyPlot.getDomainAxis(i));
+            }
+            for (int i = 0; i < xyPlot.getRangeAxisCount(); i++) {
+                addAxis(colors, xyPlot.getRangeAxis(i));
+            }
+            for (int i = 0; i < xyPlot.getRendererCount(); i++) {
+                final XYItemRenderer renderer = xyPlot.getRenderer(i);
+                final XYDataset dataset = xyPlot.getDataset(i);
+                if (renderer != null && dataset != null) {
+                    for (int series = 0; series < dataset.getSeriesCount(); series++) {
+                        addPaint(colors, renderer.getItemPaint(series, 0));
+                        addPaint(colors, renderer.getItemOutlinePaint(series, 0));
+                        addPaint(colors, renderer.getItemFillPaint(series, 0));
+                    }
+                }
+            }
+
+        } else if (plot instanceof CategoryPlot) {
+            final CategoryPlot categoryPlot = (CategoryPlot) plot;
+            addPaint(colors, categoryPlot.getDomainGridlinePaint());
+            addPaint(colors, categoryPlot.getRangeGridlinePaint());
+            addPaint(colors, categoryPlot.getRangeZeroBaselinePaint());
+            for (int i = 0; i < categoryPlot.getDomainAxisCount(); i++) {
+                addAxis(colors, categoryPlot.getDomainAxis(i));
+            }
+            for (int i = 0; i < categoryPlot.getRangeAxisCount(); i++) {
+                addAxis(colors, categoryPlot.getRangeAxis(i));
+            }
+            for (int i = 0; i < categoryPlot.getRendererCount(); i++) {
+                final CategoryItemRenderer renderer = categoryPlot.getRenderer(i);
+                final CategoryDataset dataset = categoryPlot.getDataset(i);
+                if (renderer != null && dataset != null) {
+                    for (int series = 0; series < dataset.getRowCount(); series++) {
+                        addPaint(colors, renderer.getItemPaint(series, 0));
+                        addPaint(colors, renderer.getItemOutlinePaint(series, 0));
+                    }
+                }
+            }
+
+        } else if (plot instanceof PiePlot) {
+            final PiePlot piePlot = (PiePlot) plot;
+            final PieDataset dataset = piePlot.getDataset();
+            if (dataset != null) {
+                // the section paints are known once the chart is drawn
+                for (final Object key : dataset.getKeys()) {
+                    addPaint(colors, piePlot.getSectionPaint((Comparable) key));
+                    addPaint(colors, piePlot.getSectionOutlinePaint((Comparable) key));
+                }
+            }
+            addPaint(colors, piePlot.getLabelPaint());
+            addPaint(colors, piePlot.getLabelLinkPaint());
+            addPaint(colors, piePlot.getLabelOutlinePaint());
+            addPaint(backgrounds, piePlot.getLabelBackgroundPaint());
+
+        } else if (plot instanceof MultiplePiePlot) {
+            final JFreeChart pieChart = ((MultiplePiePlot) plot).getPieChart();
+            if (pieChart.getTitle() != null) {
+                addPaint(colors, pieChart.getTitle().getPaint());
+            }
+            collectPlotColors(pieChart.getPlot(), chartBackground, colors, backgrounds);
+
+        } else if (plot instanceof SpiderWebPlot) {
+            final SpiderWebPlot spiderWebPlot = (SpiderWebPlot) plot;
+            final CategoryDataset dataset = spiderWebPlot.getDataset();
+            if (dataset != null) {
+                for (int series = 0; series < Math.max(dataset.getRowCount(), dataset.getColumnCount()); series++) {
+                    addPaint(colors, spiderWebPlot.getSeriesPaint(series));
+                    addPaint(colors, spiderWebPlot.getSeriesOutlinePaint(series));
+                }
+            }
+        }
+    }
+
+    private static void addAxis(final Set<Integer> colors, final Axis axis) {
+        if (axis != null && axis.isVisible()) {
+            addPaint(colors, axis.getLabelPaint());
+            addPaint(colors, axis.getTickLabelPaint());
+            addPaint(colors, axis.getAxisLinePaint());
+            addPaint(colors, axis.getTickMarkPaint());
+        }
+    }
+
+    private static void addPaint(final Set<Integer> colors, final Paint paint) {
+        if (paint instanceof Color) {
+            colors.add(normalize(((Color) paint).getRGB()));
+        } else if (paint instanceof GradientPaint) {
+            colors.add(normalize(((GradientPaint) paint).getColor1().getRGB()));
+            colors.add(normalize(((GradientPaint) paint).getColor2().getRGB()));
+        }
+    }
+
+    /**
+     * A hash table from ARGB colors to non-negative values, with open addressing.
+     */
+    private static final class ColorTable {
+        private int[] keys = new int[1024];
+        // the value plus one, 0 for an empty slot
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(final int key) {
+            final int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (values[slot] == 0) {
+                    return -1;
+                }
+                if (keys[slot] == key) {
+                    return values[slot] - 1;
+                }
+            }
+        }
+
+        void put(final int key, final int value) {
+            final int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == 0) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value + 1;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        int[] keys() {
+            final int[] result = new int[size];
+            int i = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != 0) {
+                    result[i++] = keys[slot];
+                }
+            }
+            return result;
+        }
+
+        private void grow() {
+            final int[] oldKeys = keys;
+            final int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldValues[slot] != 0) {
+                    put(oldKeys[slot], oldValues[slot] - 1);
+                }
+            }
+        }
+
+        private static int hash(final int key) {
+            final int h = key * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jfree.chart.JFreeChart;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded pool of raster images, keyed on their size and type, so that
+ * rendering a chart does not allocate a new image every time. The idle
+ * images are kept within a memory budget; when it is exceeded, the images
+ * of the least recently used size are dropped first. An image is cleared
+ * before it is handed out again.
+ */
+public class ImagePool {
+
+    private final static Logger LOG = LogManager.getLogger(ImagePool.class);
+
+    /**
+     * The budget of the shared pool, room for a few dashboard size images.
+     */
+    private static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private static final ImagePool SHARED = new ImagePool(DEFAULT_BUDGET);
+
+    private final long budget;
+
+    // Idle images per size, least recently used size first
+    private final LinkedHashMap<Key, ArrayDeque<BufferedImage>> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long pooledBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Create a pool.
+     *
+     * @param budget The maximum number of bytes of the idle images.
+     */
+    public ImagePool(final long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Negative budget: " + budget);
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * The pool shared by the renderers.
+     */
+    public static ImagePool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Get a cleared image, an idle one from the pool when available.
+     *
+     * @param width     Width of the image
+     * @param height    Height of the image
+     * @param imageType Type of the image, e.g. {@link BufferedImage#TYPE_INT_ARGB}
+     * @return A fully transparent image, or black when it has no alpha channel.
+     */
+    public BufferedImage acquire(final int width, final int height, final int imageType) {
+        BufferedImage image = null;
+        synchronized (this) {
+            final ArrayDeque<BufferedImage> images = idle.get(new Key(width, height, imageType));
+            if (images != null && !images.isEmpty()) {
+                image = images.pop();
+                pooledBytes -= getBytes(image);
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+
+        if (image == null) {
+            return new BufferedImage(width, height, imageType);
+        }
+
+        final Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setComposite(AlphaComposite.Clear);
+            g2.fillRect(0, 0, width, height);
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Return an image to the pool. It must not be used afterwards.
+     *
+     * @param image The image
+     */
+    public void release(final BufferedImage image) {
+        final long bytes = getBytes(image);
+        if (bytes > budget) {
+            return;
+        }
+
+        synchronized (this) {
+            idle.computeIfAbsent(new Key(image.getWidth(), image.getHeight(), image.getType()), key -> new ArrayDeque<>())
+                    .push(image);
+            pooledBytes += bytes;
+
+            final Iterator<Map.Entry<Key, ArrayDeque<BufferedImage>>> sizes = idle.entrySet().iterator();
+            while (pooledBytes > budget && sizes.hasNext()) {
+                final ArrayDeque<BufferedImage> images = sizes.next().getValue();
+                while (pooledBytes > budget && !images.isEmpty()) {
+                    pooledBytes -= getBytes(images.removeLast());
+                    evictions++;
+                }
+                if (images.isEmpty()) {
+                    sizes.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw a chart on a pooled image, which is to be released after use.
+     *
+     * @param chart     The jfreechart
+     * @param width     Width of the image
+     * @param height    Height of the image
+     * @param imageType Type of the image
+     * @return The image with the chart.
+     */
+    public BufferedImage draw(final JFreeChart chart, final int width, final int height, final int imageType) {
+        final BufferedImage image = acquire(width, height, imageType);
+        final Graphics2D g2 = image.createGraphics();
+        try {
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height), null, null);
+
+        } catch (final RuntimeException ex) {
+            release(image);
+            throw ex;
+
+        } finally {
+            g2.dispose();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Image pool hit rate " + getHitRate() + ", " + getPooledBytes() + " bytes pooled");
+        }
+        return image;
+    }
+
+    /**
+     * The number of images taken from the pool.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of images that had to be allocated.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of idle images dropped to stay within the budget.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * The fraction of the requests served from the pool, 0 when there were none.
+     */
+    public synchronized double getHitRate() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * The number of bytes of the idle images.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * The maximum number of bytes of the idle images.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    private static long getBytes(final BufferedImage image) {
+        final DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static final class Key {
+        private final int width;
+        private final int height;
+        private final int imageType;
+
+        private Key(final int width, final int height, final int imageType) {
+            this.width = width;
+            this.height = height;
+            this.imageType = imageType;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return width == other.width && height == other.height && imageType == other.imageType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, imageType);
+        }
+    }
+}
@@ -23,11 +23,22 @@ package org.exist.xquery.modules.jfreechart.render;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.exist.xquery.modules.jfreechart.Configuration;
-import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 /**
  * JPG renderer
@@ -36,9 +47,78 @@ import java.io.OutputStream;
  */
 public class JPGrenderer implements Renderer {
 
+    private static final String METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    // The ImageIO writer plugin, looked up once. The writers are disposed after each image,
+    // as a writer kept per thread would hold on to its native state and classloader.
+    private static volatile ImageWriterSpi writerSpi;
+
     @Override
     public void render(final JFreeChart chart, final Configuration config, final OutputStream os) throws IOException {
-        ChartUtils.writeChartAsJPEG(os, chart, config.getImageWidth(), config.getImageHeight());
+        // Draw on a pooled image, as ChartUtils.writeChartAsJPEG allocates one per chart
+        final ImagePool pool = ImagePool.getShared();
+        final BufferedImage image = pool.draw(chart, config.getImageWidth(), config.getImageHeight(), BufferedImage.TYPE_INT_RGB);
+        try {
+            final ImageWriter writer = getWriterSpi().createWriterInstance();
+            try {
+                write(writer, image, config, os);
+            } finally {
+                writer.dispose();
+            }
+        } finally {
+            pool.release(image);
+        }
+    }
+
+    private static ImageWriterSpi getWriterSpi() throws IOException {
+        ImageWriterSpi spi = writerSpi;
+        if (spi == null) {
+            final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+            if (!writers.hasNext()) {
+                throw new IOException("No ImageIO writer for JPEG");
+            }
+            final ImageWriter writer = writers.next();
+            spi = writer.getOriginatingProvider();
+            writer.dispose();
+            writerSpi = spi;
+        }
+        return spi;
+    }
+
+    /**
+     * Write with an ImageIO JPEG writer. Unlike EncoderUtil it writes through
+     * a memory cache, not a temporary file, straight to the stream.
+     */
+    private static void write(final ImageWriter writer, final BufferedImage image, final Configuration config,
+                              final OutputStream os) throws IOException {
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(config.getJpegQuality());
+        param.setProgressiveMode(config.isJpegProgressive()
+                ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, getMetadata(writer, param, image, config)), param);
+        }
+    }
+
+    /**
+     * @return Metadata with the chroma subsampling, null for the 4:2:0 default of the writer.
+     */
+    private static IIOMetadata getMetadata(final ImageWriter writer, final ImageWriteParam param,
+                                           final BufferedImage image, final Configuration config) throws IOException {
+        final String subsampling = config.getJpegSubsampling();
+        if ("420".equals(subsampling)) {
+            return null;
+        }
+        final IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+        final IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(METADATA_FORMAT);
+        // the chrominance components are sampled relative to the luminance, the first component
+        final IIOMetadataNode luminance = (IIOMetadataNode) tree.getElementsByTagName("componentSpec").item(0);
+        luminance.setAttribute("HsamplingFactor", "444".equals(subsampling) ? "1" : "2");
+        luminance.setAttribute("VsamplingFactor", "1");
+        metadata.setFromTree(METADATA_FORMAT, tree);
+        return metadata;
     }
 
     @Override
@@ -0,0 +1,76 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.chart.JFreeChart;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * PNG renderer writing 8-bit indexed color, with a palette of at most 256
+ * colors made from the colors of the chart, see {@link ChartPalette}.
+ */
+public class PNG8renderer implements Renderer {
+
+    // The deflate encoders are reused per thread, keeping their buffers and native zlib state
+    private static final ThreadLocal<PngEncoder> ENCODERS = ThreadLocal.withInitial(PngEncoder::new);
+
+    @Override
+    public void render(final JFreeChart chart, final Configuration config, final OutputStream os) throws IOException {
+        final ImagePool pool = ImagePool.getShared();
+        final BufferedImage image = pool.draw(chart, config.getImageWidth(), config.getImageHeight(), BufferedImage.TYPE_INT_ARGB);
+        try {
+            // the palette is made after drawing, when the chart has looked up its series paints
+            final ChartPalette palette = new ChartPalette(chart, image);
+            final byte[] indices = palette.getIndices(image);
+
+            final PngEncoder encoder = ENCODERS.get();
+            encoder.setCompressionLevel(config.getPngCompressionLevel() == null
+                    ? Deflater.DEFAULT_COMPRESSION : config.getPngCompressionLevel());
+            encoder.encodeIndexed(indices, image.getWidth(), image.getHeight(), palette.getColors(), os);
+        } finally {
+            pool.release(image);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return ("image/png");
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public byte[] render(final JFreeChart chart, final Configuration config) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        render(chart, config, os);
+        return os.toByteArray();
+    }
+}
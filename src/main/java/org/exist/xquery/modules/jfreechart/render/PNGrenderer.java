@@ -23,11 +23,21 @@ package org.exist.xquery.modules.jfreechart.render;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.exist.xquery.modules.jfreechart.Configuration;
-import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
+import org.jfree.chart.encoders.EncoderUtil;
+import org.jfree.chart.encoders.ImageFormat;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.zip.Deflater;
 
 /**
  * PNG renderer
@@ -36,9 +46,88 @@ import java.io.OutputStream;
  */
 public class PNGrenderer implements Renderer {
 
+    // The deflate encoders are reused per thread, keeping their buffers and native zlib state
+    private static final ThreadLocal<PngEncoder> ENCODERS = ThreadLocal.withInitial(PngEncoder::new);
+
     @Override
     public void render(final JFreeChart chart, final Configuration config, final OutputStream os) throws IOException {
-        ChartUtils.writeChartAsPNG(os, chart, config.getImageWidth(), config.getImageHeight());
+        // Draw on a pooled image, as ChartUtils.writeChartAsPNG allocates one per chart
+        final ImagePool pool = ImagePool.getShared();
+        final BufferedImage image = pool.draw(chart, config.getImageWidth(), config.getImageHeight(), BufferedImage.TYPE_INT_ARGB);
+        try {
+            if ("deflate".equals(config.getPngEncoder()) || isParallel(image, config)) {
+                writeDeflate(image, config, os);
+
+            } else if (config.getPngCompressionLevel() != null) {
+                // the ImageIO writer of Java 8 cannot set the level, the deflate encoder can
+                if (!writeImageIO(image, config.getPngCompressionLevel(), os)) {
+                    writeDeflate(image, config, os);
+                }
+
+            } else {
+                EncoderUtil.writeBufferedImage(image, ImageFormat.PNG, os);
+            }
+        } finally {
+            pool.release(image);
+        }
+    }
+
+    /**
+     * Large images are deflated in parallel by the deflate encoder, whichever encoder is configured.
+     */
+    private static boolean isParallel(final BufferedImage image, final Configuration config) {
+        final int threshold = config.getPngParallelThreshold();
+        return threshold > 0 && (long) image.getWidth() * image.getHeight() >= threshold;
+    }
+
+    private static void writeDeflate(final BufferedImage image, final Configuration config, final OutputStream os) throws IOException {
+        final PngEncoder encoder = ENCODERS.get();
+        encoder.setCompressionLevel(config.getPngCompressionLevel() == null
+                ? Deflater.DEFAULT_COMPRESSION : config.getPngCompressionLevel());
+        encoder.setFilter(PngEncoder.Filter.valueOf(config.getPngFilter().toUpperCase()));
+        encoder.setParallelThreshold(config.getPngParallelThreshold());
+        encoder.encode(image, os);
+    }
+
+    private static boolean writeImageIO(final BufferedImage image, final int level, final OutputStream os) throws IOException {
+        final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for PNG");
+        }
+        return writeImageIO(writers.next(), image, level, os);
+    }
+
+    /**
+     * Write with an ImageIO PNG writer, which is disposed. Writers before
+     * Java 9 cannot set the compression.
+     *
+     * @return false when the writer cannot set the compression, nothing is written then
+     */
+    static boolean writeImageIO(final ImageWriter writer, final BufferedImage image, final int level,
+                                final OutputStream os) throws IOException {
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        if (!param.canWriteCompressed()) {
+            writer.dispose();
+            return false;
+        }
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(compressionQuality(level));
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * The compression quality for a deflate level. The ImageIO PNG writer
+     * derives its level from the quality as 9 * (1 - quality), rounded down,
+     * so the quality is halfway between two levels.
+     */
+    static float compressionQuality(final int level) {
+        return Math.max(0f, 1f - (level + 0.5f) / 9f);
     }
 
     @Override
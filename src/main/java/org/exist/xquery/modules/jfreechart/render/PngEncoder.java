@@ -0,0 +1,498 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A PNG encoder that filters the rows of an image and deflates them straight
+ * into IDAT chunks on the output stream, so only one chunk is buffered.
+ * Images are written as 8 bit RGB, or RGBA when a pixel is not opaque, and
+ * palette indices as 8 bit indexed color.
+ * <p>
+ * Images with at least {@link #setParallelThreshold(int) a number of pixels}
+ * are deflated in bands of rows on the common fork-join pool, like pigz: each
+ * band starts with the last 32 KB of the band before it as the deflate
+ * dictionary and ends on a byte boundary with a sync flush, so the deflated
+ * bands are concatenated into one ordinary zlib stream.
+ * <p>
+ * An encoder is not thread safe, but it can be reused: the deflater and the
+ * row buffers are kept between images.
+ */
+public class PngEncoder {
+
+    /**
+     * The row filter, see the PNG specification. ADAPTIVE picks per row the
+     * filter with the smallest sum of absolute differences, like libpng.
+     */
+    public enum Filter {
+        NONE, SUB, UP, AVERAGE, PAETH, ADAPTIVE
+    }
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final byte[] PLTE = {'P', 'L', 'T', 'E'};
+    private static final byte[] TRNS = {'t', 'R', 'N', 'S'};
+
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int COLOR_TYPE_INDEXED = 3;
+
+    // Size of the deflated data per IDAT chunk
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Size of the filtered rows deflated per band, and of the deflate window
+    private static final int BAND_SIZE = 512 * 1024;
+    private static final int WINDOW_SIZE = 32 * 1024;
+
+    // Raw deflaters of the pool threads, the encoder writes the zlib header and trailer itself
+    private static final ThreadLocal<Deflater> BAND_DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    // the pool the bands are deflated on
+    private final ForkJoinPool pool;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CRC32 crc = new CRC32();
+
+    // length, type, data and CRC of the chunk being written
+    private final byte[] chunk = new byte[CHUNK_SIZE + 12];
+    private int chunkLength;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private Filter filter = Filter.ADAPTIVE;
+    private int parallelThreshold = 0;
+
+    private PngRowFilter rowFilter;
+
+    // filter type and indices of a row of an indexed image
+    private byte[] indexedRow;
+
+    public PngEncoder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * An encoder deflating the bands of large images on the given pool.
+     */
+    PngEncoder(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Set the deflate level.
+     *
+     * @param level 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setCompressionLevel(final int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level out of range: " + level);
+        }
+        this.compressionLevel = level;
+    }
+
+    public void setFilter(final Filter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Set the number of pixels from which images are deflated in parallel.
+     *
+     * @param pixels The number of pixels, 0 to always deflate on the calling thread.
+     */
+    public void setParallelThreshold(final int pixels) {
+        if (pixels < 0) {
+            throw new IllegalArgumentException("Parallel threshold out of range: " + pixels);
+        }
+        this.parallelThreshold = pixels;
+    }
+
+    /**
+     * Write an image as PNG. The stream is not closed.
+     *
+     * @param image The image
+     * @param os    The Outputstream
+     * @throws IOException Thrown when the image cannot be written.
+     */
+    public void encode(final BufferedImage image, final OutputStream os) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean alpha = !PngRowFilter.isOpaque(image);
+
+        os.write(SIGNATURE);
+        startChunk();
+        writeInt(width);
+        writeInt(height);
+        chunk[chunkLength++] = 8;
+        chunk[chunkLength++] = (byte) (alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+        chunk[chunkLength++] = 0;
+        chunk[chunkLength++] = 0;
+        chunk[chunkLength++] = 0;
+        endChunk(IHDR, os);
+
+        startChunk();
+        if (parallelThreshold > 0 && (long) width * height >= parallelThreshold
+                && pool.getParallelism() > 1) {
+            deflateParallel(image, alpha, os);
+        } else {
+            deflate(image, alpha, os);
+        }
+        if (chunkLength > 8) {
+            endChunk(IDAT, os);
+        }
+
+        startChunk();
+        endChunk(IEND, os);
+    }
+
+    /**
+     * Write palette indices as 8-bit indexed PNG. The rows are not filtered,
+     * as the PNG specification recommends for indexed images. The stream is
+     * not closed.
+     *
+     * @param indices The palette index of each pixel, row by row
+     * @param width   The width of the image
+     * @param height  The height of the image
+     * @param palette The ARGB colors, at most 256
+     * @param os      The Outputstream
+     * @throws IOException Thrown when the image cannot be written.
+     */
+    public void encodeIndexed(final byte[] indices, final int width, final int height, final int[] palette,
+                              final OutputStream os) throws IOException {
+        if (palette.length == 0 || palette.length > 256) {
+            throw new IllegalArgumentException("Palette size out of range: " + palette.length);
+        }
+
+        os.write(SIGNATURE);
+        startChunk();
+        writeInt(width);
+        writeInt(height);
+        chunk[chunkLength++] = 8;
+        chunk[chunkLength++] = COLOR_TYPE_INDEXED;
+        chunk[chunkLength++] = 0;
+        chunk[chunkLength++] = 0;
+        chunk[chunkLength++] = 0;
+        endChunk(IHDR, os);
+
+        startChunk();
+        int transparent = 0;
+        for (int i = 0; i < palette.length; i++) {
+            chunk[chunkLength++] = (byte) (palette[i] >> 16);
+            chunk[chunkLength++] = (byte) (palette[i] >> 8);
+            chunk[chunkLength++] = (byte) palette[i];
+            if (palette[i] >>> 24 != 0xff) {
+                transparent = i + 1;
+            }
+        }
+        endChunk(PLTE, os);
+
+        // the alpha of the entries up to the last translucent one, the others are opaque
+        if (transparent > 0) {
+            startChunk();
+            for (int i = 0; i < transparent; i++) {
+                chunk[chunkLength++] = (byte) (palette[i] >>> 24);
+            }
+            endChunk(TRNS, os);
+        }
+
+        if (indexedRow == null || indexedRow.length != width + 1) {
+            indexedRow = new byte[width + 1];
+        }
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+
+        startChunk();
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(indices, y * width, indexedRow, 1, width);
+            deflater.setInput(indexedRow, 0, width + 1);
+            while (!deflater.needsInput()) {
+                deflate(os);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate(os);
+        }
+        if (chunkLength > 8) {
+            endChunk(IDAT, os);
+        }
+
+        startChunk();
+        endChunk(IEND, os);
+    }
+
+    private void deflate(final BufferedImage image, final boolean alpha, final OutputStream os) throws IOException {
+        if (rowFilter == null || !rowFilter.matches(filter, image.getWidth(), alpha)) {
+            rowFilter = new PngRowFilter(filter, image.getWidth(), alpha);
+        }
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        deflater.setStrategy(strategy(filter));
+
+        rowFilter.seek(image, 0);
+        for (int y = 0; y < image.getHeight(); y++) {
+            deflater.setInput(rowFilter.filter(image, y), 0, rowFilter.getFilteredLength());
+            while (!deflater.needsInput()) {
+                deflate(os);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate(os);
+        }
+    }
+
+    /**
+     * Deflate bands of rows on the pool and write them in order, with
+     * at most twice as many bands in flight as the pool has threads.
+     */
+    private void deflateParallel(final BufferedImage image, final boolean alpha, final OutputStream os) throws IOException {
+        final int height = image.getHeight();
+        final int filteredLength = (alpha ? 4 : 3) * image.getWidth() + 1;
+        final int rowsPerBand = Math.max(1, BAND_SIZE / filteredLength);
+        final int maxInFlight = 2 * pool.getParallelism();
+
+        final byte[] header = {0x78, zlibFlags(compressionLevel)};
+        write(header, header.length, os);
+
+        final ArrayDeque<ForkJoinTask<Band>> inFlight = new ArrayDeque<>();
+        long adler = 1;
+        try {
+            int start = 0;
+            while (start < height || !inFlight.isEmpty()) {
+                if (start < height && inFlight.size() < maxInFlight) {
+                    final int end = Math.min(height, start + rowsPerBand);
+                    final Band band = new Band(image, alpha, filter, compressionLevel, start, end);
+                    inFlight.add(pool.submit(band));
+                    start = end;
+
+                } else {
+                    final Band band = inFlight.remove().join();
+                    write(band.output, band.outputLength, os);
+                    adler = adler32Combine(adler, band.adler, band.inputLength);
+                }
+            }
+        } finally {
+            for (final ForkJoinTask<Band> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+
+        final byte[] trailer = {(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler};
+        write(trailer, trailer.length, os);
+    }
+
+    /**
+     * A band of rows, deflated on its own.
+     */
+    private static final class Band implements Callable<Band> {
+        private final BufferedImage image;
+        private final boolean alpha;
+        private final Filter filter;
+        private final int level;
+        private final int start;
+        private final int end;
+
+        private byte[] output;
+        private int outputLength;
+        private long inputLength;
+        private long adler;
+
+        private Band(final BufferedImage image, final boolean alpha, final Filter filter, final int level,
+                     final int start, final int end) {
+            this.image = image;
+            this.alpha = alpha;
+            this.filter = filter;
+            this.level = level;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Band call() {
+            final PngRowFilter rows = new PngRowFilter(filter, image.getWidth(), alpha);
+            final int filteredLength = rows.getFilteredLength();
+            final Deflater deflater = BAND_DEFLATERS.get();
+            deflater.reset();
+            deflater.setLevel(level);
+            deflater.setStrategy(strategy(filter));
+
+            // filter the rows before the band again for the dictionary
+            final int dictionaryRows = Math.min(start, (WINDOW_SIZE + filteredLength - 1) / filteredLength);
+            rows.seek(image, start - dictionaryRows);
+            if (dictionaryRows > 0) {
+                final byte[] dictionary = new byte[dictionaryRows * filteredLength];
+                for (int y = start - dictionaryRows; y < start; y++) {
+                    System.arraycopy(rows.filter(image, y), 0, dictionary,
+                            (y - start + dictionaryRows) * filteredLength, filteredLength);
+                }
+                final int length = Math.min(WINDOW_SIZE, dictionary.length);
+                deflater.setDictionary(dictionary, dictionary.length - length, length);
+            }
+
+            final Adler32 checksum = new Adler32();
+            output = new byte[Math.max(CHUNK_SIZE, (end - start) * filteredLength / 4)];
+            for (int y = start; y < end; y++) {
+                final byte[] row = rows.filter(image, y);
+                checksum.update(row, 0, filteredLength);
+                deflater.setInput(row, 0, filteredLength);
+                while (!deflater.needsInput()) {
+                    deflate(deflater, Deflater.NO_FLUSH);
+                }
+            }
+
+            if (end == image.getHeight()) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(deflater, Deflater.NO_FLUSH);
+                }
+            } else {
+                // end on a byte boundary, so the next band can be appended
+                while (deflate(deflater, Deflater.SYNC_FLUSH)) {
+                    // more output pending
+                }
+            }
+            inputLength = (long) (end - start) * filteredLength;
+            adler = checksum.getValue();
+            return this;
+        }
+
+        /**
+         * @return Whether the output buffer was filled, so there may be more output.
+         */
+        private boolean deflate(final Deflater deflater, final int flush) {
+            if (output.length - outputLength < CHUNK_SIZE) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            final int space = output.length - outputLength;
+            final int count = deflater.deflate(output, outputLength, space, flush);
+            outputLength += count;
+            return count == space;
+        }
+    }
+
+    private static int strategy(final Filter filter) {
+        return filter == Filter.NONE ? Deflater.DEFAULT_STRATEGY : Deflater.FILTERED;
+    }
+
+    /**
+     * The second byte of the zlib header, announcing the level like zlib does.
+     */
+    private static byte zlibFlags(final int level) {
+        if (level == Deflater.DEFAULT_COMPRESSION || level == 6) {
+            return (byte) 0x9c;
+        } else if (level < 2) {
+            return 0x01;
+        } else if (level < 6) {
+            return 0x5e;
+        }
+        return (byte) 0xda;
+    }
+
+    /**
+     * The Adler-32 of two concatenated blocks from their own checksums, as adler32_combine of zlib.
+     */
+    private static long adler32Combine(final long adler1, final long adler2, final long length2) {
+        final long base = 65521;
+        final long remainder = length2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + base - remainder;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= base << 1) {
+            sum2 -= base << 1;
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Append deflated data to the IDAT chunks.
+     */
+    private void write(final byte[] data, final int length, final OutputStream os) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            final int count = Math.min(length - offset, CHUNK_SIZE + 8 - chunkLength);
+            System.arraycopy(data, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            if (chunkLength == CHUNK_SIZE + 8) {
+                endChunk(IDAT, os);
+                startChunk();
+            }
+        }
+    }
+
+    private void deflate(final OutputStream os) throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, CHUNK_SIZE + 8 - chunkLength);
+        if (chunkLength == CHUNK_SIZE + 8) {
+            endChunk(IDAT, os);
+            startChunk();
+        }
+    }
+
+    private void startChunk() {
+        // room for the length and the type
+        chunkLength = 8;
+    }
+
+    private void writeInt(final int value) {
+        chunk[chunkLength++] = (byte) (value >>> 24);
+        chunk[chunkLength++] = (byte) (value >>> 16);
+        chunk[chunkLength++] = (byte) (value >>> 8);
+        chunk[chunkLength++] = (byte) value;
+    }
+
+    private void endChunk(final byte[] type, final OutputStream os) throws IOException {
+        final int dataLength = chunkLength - 8;
+        chunkLength = 0;
+        writeInt(dataLength);
+        System.arraycopy(type, 0, chunk, 4, 4);
+        crc.reset();
+        crc.update(chunk, 4, dataLength + 4);
+        chunkLength = dataLength + 8;
+        writeInt((int) crc.getValue());
+        os.write(chunk, 0, chunkLength);
+    }
+}
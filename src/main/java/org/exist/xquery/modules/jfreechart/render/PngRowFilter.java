@@ -0,0 +1,236 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Converts the rows of an image to 8 bit RGB or RGBA and applies a PNG row
+ * filter, keeping the unfiltered previous row the filters refer to.
+ */
+final class PngRowFilter {
+
+    private final PngEncoder.Filter filter;
+    private final int width;
+    private final boolean alpha;
+    private final int bytesPerPixel;
+    private final int rowLength;
+
+    private final int[] pixels;
+    private byte[] current;
+    private byte[] previous;
+
+    // filter type followed by the filtered row, per filter type
+    private final byte[][] filtered = new byte[5][];
+
+    PngRowFilter(final PngEncoder.Filter filter, final int width, final boolean alpha) {
+        this.filter = filter;
+        this.width = width;
+        this.alpha = alpha;
+        this.bytesPerPixel = alpha ? 4 : 3;
+        this.rowLength = width * bytesPerPixel;
+        this.pixels = new int[width];
+        this.current = new byte[rowLength];
+        this.previous = new byte[rowLength];
+        for (int type = 0; type < filtered.length; type++) {
+            filtered[type] = new byte[rowLength + 1];
+            filtered[type][0] = (byte) type;
+        }
+    }
+
+    /**
+     * Whether this filter can be reused for another image.
+     */
+    boolean matches(final PngEncoder.Filter filter, final int width, final boolean alpha) {
+        return this.filter == filter && this.width == width && this.alpha == alpha;
+    }
+
+    /**
+     * @return The number of bytes of a filtered row, including the filter type.
+     */
+    int getFilteredLength() {
+        return rowLength + 1;
+    }
+
+    /**
+     * Prepare for filtering from a row on, by reading the row before it.
+     */
+    void seek(final BufferedImage image, final int y) {
+        if (y == 0) {
+            Arrays.fill(previous, (byte) 0);
+        } else {
+            readRow(image, y - 1, previous);
+        }
+    }
+
+    /**
+     * Filter the next row.
+     *
+     * @return The filter type followed by the filtered row, valid until the next call.
+     */
+    byte[] filter(final BufferedImage image, final int y) {
+        readRow(image, y, current);
+        final byte[] result;
+        switch (filter) {
+            case NONE:
+                System.arraycopy(current, 0, filtered[0], 1, rowLength);
+                result = filtered[0];
+                break;
+
+            case ADAPTIVE:
+                result = filterAdaptive();
+                break;
+
+            default:
+                final int type = filter.ordinal();
+                result = filtered[type];
+                for (int i = 0; i < rowLength; i++) {
+                    result[i + 1] = (byte) (current[i] - predict(type, i));
+                }
+                break;
+        }
+        final byte[] swap = previous;
+        previous = current;
+        current = swap;
+        return result;
+    }
+
+    /**
+     * Whether all pixels of an image are opaque, so it can be written without alpha.
+     */
+    static boolean isOpaque(final BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        final int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            getPixels(image, y, row);
+            for (final int pixel : row) {
+                if ((pixel >>> 24) != 0xff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void getPixels(final BufferedImage image, final int y, final int[] row) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB) {
+            // copies the packed pixels without converting them
+            image.getRaster().getDataElements(0, y, row.length, 1, row);
+        } else {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+    }
+
+    private void readRow(final BufferedImage image, final int y, final byte[] row) {
+        getPixels(image, y, pixels);
+        int i = 0;
+        for (int x = 0; x < width; x++) {
+            final int pixel = pixels[x];
+            row[i++] = (byte) (pixel >> 16);
+            row[i++] = (byte) (pixel >> 8);
+            row[i++] = (byte) pixel;
+            if (alpha) {
+                row[i++] = (byte) (pixel >>> 24);
+            }
+        }
+    }
+
+    private byte[] filterAdaptive() {
+        final byte[] none = filtered[0];
+        final byte[] sub = filtered[1];
+        final byte[] up = filtered[2];
+        final byte[] average = filtered[3];
+        final byte[] paeth = filtered[4];
+        long sumNone = 0;
+        long sumSub = 0;
+        long sumUp = 0;
+        long sumAverage = 0;
+        long sumPaeth = 0;
+
+        for (int i = 0; i < rowLength; i++) {
+            final int x = current[i] & 0xff;
+            final int a = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xff : 0;
+            final int b = previous[i] & 0xff;
+            final int c = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xff : 0;
+
+            none[i + 1] = (byte) x;
+            sub[i + 1] = (byte) (x - a);
+            up[i + 1] = (byte) (x - b);
+            average[i + 1] = (byte) (x - ((a + b) >> 1));
+            paeth[i + 1] = (byte) (x - paeth(a, b, c));
+
+            sumNone += Math.abs(none[i + 1]);
+            sumSub += Math.abs(sub[i + 1]);
+            sumUp += Math.abs(up[i + 1]);
+            sumAverage += Math.abs(average[i + 1]);
+            sumPaeth += Math.abs(paeth[i + 1]);
+        }
+
+        byte[] best = none;
+        long min = sumNone;
+        if (sumSub < min) {
+            best = sub;
+            min = sumSub;
+        }
+        if (sumUp < min) {
+            best = up;
+            min = sumUp;
+        }
+        if (sumAverage < min) {
+            best = average;
+            min = sumAverage;
+        }
+        if (sumPaeth < min) {
+            best = paeth;
+        }
+        return best;
+    }
+
+    private int predict(final int type, final int i) {
+        final int a = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xff : 0;
+        final int b = previous[i] & 0xff;
+        switch (type) {
+            case 1:
+                return a;
+            case 2:
+                return b;
+            case 3:
+                return (a + b) >> 1;
+            default:
+                return paeth(a, b, i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xff : 0);
+        }
+    }
+
+    private static int paeth(final int a, final int b, final int c) {
+        final int p = a + b - c;
+        final int pa = Math.abs(p - a);
+        final int pb = Math.abs(p - b);
+        final int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+}
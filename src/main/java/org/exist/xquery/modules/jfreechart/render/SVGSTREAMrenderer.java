@@ -0,0 +1,76 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.chart.JFreeChart;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * SVG renderer that writes the elements while the chart is drawn, instead of
+ * building a DOM first like {@link SVGrenderer}.
+ */
+public class SVGSTREAMrenderer implements Renderer {
+
+    @Override
+    public void render(final JFreeChart chart, final Configuration config, final OutputStream os) throws IOException {
+
+        final Rectangle bounds = new Rectangle(config.getImageWidth(), config.getImageHeight());
+
+        final SVGStreamGraphics2D svgGenerator = new SVGStreamGraphics2D(os, bounds.width, bounds.height);
+        if (config.getSvgPrecision() != null) {
+            svgGenerator.setPrecision(config.getSvgPrecision());
+        }
+        svgGenerator.setStyleClasses(config.isSvgStyleClasses());
+        svgGenerator.setMergePaths(config.isSvgMergePaths());
+        try {
+            chart.draw(svgGenerator, bounds);
+            svgGenerator.endDocument();
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+        os.flush();
+        os.close();
+    }
+
+    @Override
+    public String getContentType() {
+        return ("image/svg+xml");
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public byte[] render(final JFreeChart chart, final Configuration config) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        render(chart, config, os);
+        return os.toByteArray();
+    }
+}
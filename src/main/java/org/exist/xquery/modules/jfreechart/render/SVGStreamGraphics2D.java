@@ -0,0 +1,1429 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.RadialGradientPaint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.AttributedCharacterIterator;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Graphics2D that writes SVG elements to a stream while it is drawn on,
+ * instead of building a DOM like Batik's SVGGraphics2D. Only the state of the
+ * graphics is kept, so the memory used does not grow with the number of
+ * shapes drawn.
+ * <p>
+ * Shapes are written as paths, rectangles and ellipses, text as text elements
+ * in the font of the graphics, and images as embedded PNG. Clips and
+ * gradients are written as definitions right before the first element using
+ * them. Paints other than colors and gradients are drawn in grey, and
+ * composites other than {@link AlphaComposite#SRC_OVER} are ignored.
+ * <p>
+ * Errors writing to the stream are thrown as {@link UncheckedIOException},
+ * as the methods of Graphics2D cannot throw an IOException.
+ */
+public class SVGStreamGraphics2D extends Graphics2D {
+
+    private static final Color UNSUPPORTED_PAINT = Color.GRAY;
+
+    // Styles written as classes at most, so the classes do not take up memory
+    private static final int MAX_CLASSES = 1024;
+
+    // Elements are written when this much is buffered
+    private static final int FLUSH_SIZE = 8 * 1024;
+
+    private final Output out;
+
+    private AffineTransform transform = new AffineTransform();
+    private Paint paint = Color.BLACK;
+    private Color color = Color.BLACK;
+    private Color background = Color.WHITE;
+    private Stroke stroke = new BasicStroke();
+    private Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private Composite composite = AlphaComposite.SrcOver;
+    private RenderingHints hints = new RenderingHints(null);
+
+    // in device space, null when not clipped
+    private Shape clip;
+    // id of the clip path written for the clip, null when not written yet
+    private String clipId;
+
+    /**
+     * Start an SVG document on a stream. The document is completed by
+     * {@link #endDocument()}, the stream is not closed.
+     *
+     * @param os     The Outputstream
+     * @param width  Width of the document
+     * @param height Height of the document
+     * @throws IOException Thrown when the stream cannot be written.
+     */
+    public SVGStreamGraphics2D(final OutputStream os, final int width, final int height) throws IOException {
+        this.out = new Output(os);
+        final StringBuilder sb = out.sb;
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+        sb.append(" width=\"").append(width).append("\" height=\"").append(height);
+        sb.append("\" viewBox=\"0 0 ").append(width).append(' ').append(height);
+        sb.append("\" fill=\"none\" stroke=\"none\">\n");
+        out.flush();
+    }
+
+    private SVGStreamGraphics2D(final SVGStreamGraphics2D other) {
+        this.out = other.out;
+        this.transform = new AffineTransform(other.transform);
+        this.paint = other.paint;
+        this.color = other.color;
+        this.background = other.background;
+        this.stroke = other.stroke;
+        this.font = other.font;
+        this.composite = other.composite;
+        this.hints = (RenderingHints) other.hints.clone();
+        this.clip = other.clip;
+        this.clipId = other.clipId;
+    }
+
+    /**
+     * Set the number of decimals of the coordinates, by default 4.
+     */
+    public void setPrecision(final int precision) {
+        if (precision < 0 || precision > 12) {
+            throw new IllegalArgumentException("Precision out of range: " + precision);
+        }
+        out.precision = precision;
+    }
+
+    /**
+     * Write the presentation attributes of the elements as CSS classes, each
+     * distinct style is written once in a style element before its first use.
+     */
+    public void setStyleClasses(final boolean styleClasses) {
+        out.styleClasses = styleClasses;
+    }
+
+    /**
+     * Merge the outlines drawn one after the other with the same style into one
+     * path, each outline a subpath, so the stroke is the same as when drawn apart.
+     */
+    public void setMergePaths(final boolean mergePaths) {
+        out.mergePaths = mergePaths;
+    }
+
+    /**
+     * Close the SVG document and flush the stream.
+     *
+     * @throws IOException Thrown when the stream cannot be written.
+     */
+    public void endDocument() throws IOException {
+        out.endPath();
+        out.sb.append("</svg>\n");
+        out.flush();
+        out.writer.flush();
+        out.metrics.dispose();
+    }
+
+    // =========================
+    // Elements
+
+    @Override
+    public void draw(final Shape shape) {
+        if (!(stroke instanceof BasicStroke)) {
+            fill(stroke.createStrokedShape(shape));
+            return;
+        }
+        writeShape(shape, false);
+    }
+
+    @Override
+    public void fill(final Shape shape) {
+        writeShape(shape, true);
+    }
+
+    private void writeShape(final Shape shape, final boolean fill) {
+        try {
+            final String paintRef = writePaintDefinition();
+            writeClipDefinition();
+            final StringBuilder sb = out.sb;
+            final boolean translation = isTranslation(transform);
+            final double dx = translation ? transform.getTranslateX() : 0;
+            final double dy = translation ? transform.getTranslateY() : 0;
+            final boolean rect = shape instanceof Rectangle2D && !((Rectangle2D) shape).isEmpty();
+            final boolean ellipse = shape instanceof Ellipse2D && !((Ellipse2D) shape).isEmpty();
+            final PathIterator iterator = rect || ellipse ? null : shape.getPathIterator(null);
+
+            // the attributes are collected first, to merge with the open path or to look up the class
+            final int start = sb.length();
+            if (!translation) {
+                writeTransform(transform);
+            }
+            final String transformAttribute = sb.substring(start);
+            sb.setLength(start);
+            if (clipId != null && translation) {
+                sb.append(" clip-path=\"url(#").append(clipId).append(")\"");
+            }
+            if (fill) {
+                writePaint("fill", paintRef);
+                if (iterator != null && iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD) {
+                    sb.append(" fill-rule=\"evenodd\"");
+                }
+            } else {
+                writePaint("stroke", paintRef);
+                writeStroke((BasicStroke) stroke);
+            }
+            if (hints.get(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_OFF) {
+                sb.append(" shape-rendering=\"crispEdges\"");
+            }
+            final String style = sb.substring(start);
+            sb.setLength(start);
+
+            // fills are not merged, as overlapping subpaths may cancel out
+            final boolean merge = out.mergePaths && !fill && iterator != null && (clip == null || translation);
+            if (merge && out.openPath != null && out.openPath.equals(transformAttribute + style)) {
+                sb.append(' ');
+                writePathData(iterator, dx, dy);
+                out.flushIfFull();
+                return;
+            }
+            out.endPath();
+            final String styleAttributes = styleReference(style);
+            startClip(translation);
+
+            if (rect) {
+                final Rectangle2D rectangle = (Rectangle2D) shape;
+                sb.append("<rect x=\"");
+                out.number(rectangle.getX() + dx);
+                sb.append("\" y=\"");
+                out.number(rectangle.getY() + dy);
+                sb.append("\" width=\"");
+                out.number(rectangle.getWidth());
+                sb.append("\" height=\"");
+                out.number(rectangle.getHeight());
+                sb.append('"');
+
+            } else if (ellipse) {
+                final Ellipse2D oval = (Ellipse2D) shape;
+                final boolean circle = oval.getWidth() == oval.getHeight();
+                sb.append(circle ? "<circle cx=\"" : "<ellipse cx=\"");
+                out.number(oval.getCenterX() + dx);
+                sb.append("\" cy=\"");
+                out.number(oval.getCenterY() + dy);
+                if (circle) {
+                    sb.append("\" r=\"");
+                    out.number(oval.getWidth() / 2);
+                } else {
+                    sb.append("\" rx=\"");
+                    out.number(oval.getWidth() / 2);
+                    sb.append("\" ry=\"");
+                    out.number(oval.getHeight() / 2);
+                }
+                sb.append('"');
+
+            } else {
+                // the path data is written last, so a merged path can be continued
+                sb.append("<path").append(transformAttribute).append(styleAttributes).append(" d=\"");
+                writePathData(iterator, dx, dy);
+                if (merge) {
+                    out.openPath = transformAttribute + style;
+                } else {
+                    sb.append("\"/>\n");
+                    endClip(translation);
+                }
+                out.flushIfFull();
+                return;
+            }
+
+            sb.append(transformAttribute).append(styleAttributes).append("/>\n");
+            endClip(translation);
+            out.flushIfFull();
+
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePathData(final PathIterator iterator, final double dx, final double dy) throws IOException {
+        final StringBuilder sb = out.sb;
+        final double[] coords = out.coords;
+        while (!iterator.isDone()) {
+            final int points;
+            switch (iterator.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    sb.append('M');
+                    points = 1;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    sb.append('L');
+                    points = 1;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    sb.append('Q');
+                    points = 2;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    sb.append('C');
+                    points = 3;
+                    break;
+                default:
+                    sb.append('Z');
+                    points = 0;
+                    break;
+            }
+            for (int point = 0; point < points; point++) {
+                if (point > 0) {
+                    sb.append(' ');
+                }
+                out.number(coords[2 * point] + dx);
+                sb.append(' ');
+                out.number(coords[2 * point + 1] + dy);
+            }
+            iterator.next();
+            out.flushIfFull();
+        }
+    }
+
+    @Override
+    public void drawString(final String str, final float x, final float y) {
+        if (str == null || str.isEmpty()) {
+            return;
+        }
+        try {
+            final String paintRef = writePaintDefinition();
+            writeClipDefinition();
+            final StringBuilder sb = out.sb;
+            final boolean translation = isTranslation(transform);
+
+            final int start = sb.length();
+            if (clipId != null && translation) {
+                sb.append(" clip-path=\"url(#").append(clipId).append(")\"");
+            }
+            sb.append(" font-family=\"");
+            writeEscaped(fontFamily(font));
+            sb.append("\" font-size=\"");
+            out.number(font.getSize2D());
+            sb.append("px\"");
+            if (font.isBold()) {
+                sb.append(" font-weight=\"bold\"");
+            }
+            if (font.isItalic()) {
+                sb.append(" font-style=\"italic\"");
+            }
+            writePaint("fill", paintRef);
+            final String style = sb.substring(start);
+            sb.setLength(start);
+
+            out.endPath();
+            final String styleAttributes = styleReference(style);
+            startClip(translation);
+            sb.append("<text x=\"");
+            out.number(x + (translation ? transform.getTranslateX() : 0));
+            sb.append("\" y=\"");
+            out.number(y + (translation ? transform.getTranslateY() : 0));
+            sb.append('"');
+            if (!translation) {
+                writeTransform(transform);
+            }
+            sb.append(styleAttributes);
+            if (str.startsWith(" ") || str.endsWith(" ") || str.contains("  ")) {
+                sb.append(" xml:space=\"preserve\"");
+            }
+            sb.append('>');
+            writeEscaped(str);
+            sb.append("</text>\n");
+            endClip(translation);
+            out.flushIfFull();
+
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void drawString(final String str, final int x, final int y) {
+        drawString(str, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawString(final AttributedCharacterIterator iterator, final float x, final float y) {
+        // the attributes may change the font along the text, so the outline is drawn
+        final TextLayout layout = new TextLayout(iterator, getFontRenderContext());
+        fill(layout.getOutline(AffineTransform.getTranslateInstance(x, y)));
+    }
+
+    @Override
+    public void drawString(final AttributedCharacterIterator iterator, final int x, final int y) {
+        drawString(iterator, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawGlyphVector(final GlyphVector g, final float x, final float y) {
+        fill(g.getOutline(x, y));
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final AffineTransform xform, final ImageObserver obs) {
+        final BufferedImage image = toBufferedImage(img);
+        if (image == null) {
+            return false;
+        }
+        final AffineTransform imageTransform = new AffineTransform(transform);
+        if (xform != null) {
+            imageTransform.concatenate(xform);
+        }
+        writeImage(image, imageTransform);
+        return true;
+    }
+
+    @Override
+    public void drawImage(final BufferedImage img, final BufferedImageOp op, final int x, final int y) {
+        drawImage(op == null ? img : op.filter(img, null), x, y, null);
+    }
+
+    @Override
+    public void drawRenderedImage(final RenderedImage img, final AffineTransform xform) {
+        if (img instanceof BufferedImage) {
+            drawImage((BufferedImage) img, xform, null);
+            return;
+        }
+        final BufferedImage image = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = image.createGraphics();
+        try {
+            g2.drawRenderedImage(img, AffineTransform.getTranslateInstance(-img.getMinX(), -img.getMinY()));
+        } finally {
+            g2.dispose();
+        }
+        final AffineTransform imageTransform = xform == null ? new AffineTransform() : new AffineTransform(xform);
+        imageTransform.translate(img.getMinX(), img.getMinY());
+        drawImage(image, imageTransform, null);
+    }
+
+    @Override
+    public void drawRenderableImage(final RenderableImage img, final AffineTransform xform) {
+        drawRenderedImage(img.createDefaultRendering(), xform);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final ImageObserver observer) {
+        return drawImage(img, AffineTransform.getTranslateInstance(x, y), observer);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final int width, final int height,
+                             final ImageObserver observer) {
+        final int imageWidth = img.getWidth(observer);
+        final int imageHeight = img.getHeight(observer);
+        if (imageWidth <= 0 || imageHeight <= 0) {
+            return false;
+        }
+        final AffineTransform xform = AffineTransform.getTranslateInstance(x, y);
+        xform.scale((double) width / imageWidth, (double) height / imageHeight);
+        return drawImage(img, xform, observer);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final Color bgcolor,
+                             final ImageObserver observer) {
+        return drawImage(img, x, y, img.getWidth(observer), img.getHeight(observer), bgcolor, observer);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final int width, final int height,
+                             final Color bgcolor, final ImageObserver observer) {
+        if (bgcolor != null) {
+            final Paint saved = paint;
+            setPaint(bgcolor);
+            fillRect(x, y, width, height);
+            setPaint(saved);
+        }
+        return drawImage(img, x, y, width, height, observer);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int dx1, final int dy1, final int dx2, final int dy2,
+                             final int sx1, final int sy1, final int sx2, final int sy2,
+                             final ImageObserver observer) {
+        final BufferedImage image = toBufferedImage(img);
+        if (image == null || sx1 == sx2 || sy1 == sy2) {
+            return false;
+        }
+        final BufferedImage part = image.getSubimage(Math.min(sx1, sx2), Math.min(sy1, sy2),
+                Math.abs(sx2 - sx1), Math.abs(sy2 - sy1));
+        final AffineTransform xform = AffineTransform.getTranslateInstance(dx1, dy1);
+        xform.scale((double) (dx2 - dx1) / (sx2 - sx1), (double) (dy2 - dy1) / (sy2 - sy1));
+        if (sx2 < sx1) {
+            xform.translate(-part.getWidth(), 0);
+        }
+        if (sy2 < sy1) {
+            xform.translate(0, -part.getHeight());
+        }
+        return drawImage(part, xform, observer);
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int dx1, final int dy1, final int dx2, final int dy2,
+                             final int sx1, final int sy1, final int sx2, final int sy2,
+                             final Color bgcolor, final ImageObserver observer) {
+        if (bgcolor != null) {
+            final Paint saved = paint;
+            setPaint(bgcolor);
+            fillRect(Math.min(dx1, dx2), Math.min(dy1, dy2), Math.abs(dx2 - dx1), Math.abs(dy2 - dy1));
+            setPaint(saved);
+        }
+        return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, observer);
+    }
+
+    private static BufferedImage toBufferedImage(final Image img) {
+        if (img instanceof BufferedImage) {
+            return (BufferedImage) img;
+        }
+        final int width = img.getWidth(null);
+        final int height = img.getHeight(null);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = image.createGraphics();
+        try {
+            g2.drawImage(img, 0, 0, null);
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Write an image as embedded PNG, base64 encoded straight to the stream.
+     */
+    private void writeImage(final BufferedImage image, final AffineTransform imageTransform) {
+        try {
+            writeClipDefinition();
+            out.endPath();
+            final StringBuilder sb = out.sb;
+            final boolean translation = isTranslation(imageTransform);
+            startClip(translation);
+
+            sb.append("<image");
+            if (translation) {
+                sb.append(" x=\"");
+                out.number(imageTransform.getTranslateX());
+                sb.append("\" y=\"");
+                out.number(imageTransform.getTranslateY());
+                sb.append('"');
+            }
+            sb.append(" width=\"").append(image.getWidth());
+            sb.append("\" height=\"").append(image.getHeight());
+            sb.append("\" preserveAspectRatio=\"none\"");
+            if (!translation) {
+                writeTransform(imageTransform);
+            }
+            if (clipId != null && translation) {
+                sb.append(" clip-path=\"url(#").append(clipId).append(")\"");
+            }
+            final float alpha = compositeAlpha();
+            if (alpha < 1f) {
+                sb.append(" opacity=\"");
+                out.number(alpha, 3);
+                sb.append('"');
+            }
+            sb.append(" xlink:href=\"data:image/png;base64,");
+            out.flush();
+            out.writer.flush();
+            try (OutputStream base64 = Base64.getEncoder().wrap(new CloseShieldOutputStream(out.os))) {
+                ImageIO.write(image, "png", base64);
+            }
+            sb.append("\"/>\n");
+            endClip(translation);
+            out.flush();
+
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // =========================
+    // Attributes and definitions
+
+    /**
+     * Write the clip path of the clip when it is not written yet.
+     */
+    private void writeClipDefinition() throws IOException {
+        if (clip == null || clipId != null) {
+            return;
+        }
+        if (clip.equals(out.lastClip)) {
+            clipId = out.lastClipId;
+            return;
+        }
+        out.endPath();
+        clipId = "clip" + out.nextId++;
+        final StringBuilder sb = out.sb;
+        sb.append("<clipPath id=\"").append(clipId).append("\">");
+        if (clip instanceof Rectangle2D) {
+            final Rectangle2D rect = (Rectangle2D) clip;
+            sb.append("<rect x=\"");
+            out.number(rect.getX());
+            sb.append("\" y=\"");
+            out.number(rect.getY());
+            sb.append("\" width=\"");
+            out.number(rect.getWidth());
+            sb.append("\" height=\"");
+            out.number(rect.getHeight());
+            sb.append("\"/>");
+        } else {
+            sb.append("<path d=\"");
+            writePathData(clip.getPathIterator(null), 0, 0);
+            sb.append("\"/>");
+        }
+        sb.append("</clipPath>\n");
+        // only rectangles are compared, as Shape has no equals
+        out.lastClip = clip instanceof Rectangle2D ? clip : null;
+        out.lastClipId = clipId;
+    }
+
+    /**
+     * Start a group for the clip when the element has its own transform, as
+     * a clip path is in the coordinates of the element using it.
+     */
+    private void startClip(final boolean translation) {
+        if (clip != null && !translation) {
+            out.sb.append("<g clip-path=\"url(#").append(clipId).append(")\">");
+        }
+    }
+
+    private void endClip(final boolean translation) {
+        if (clip != null && !translation) {
+            out.sb.append("</g>\n");
+        }
+    }
+
+    /**
+     * The presentation attributes of an element, or a class with them when
+     * style classes are written. A new class is written before it is used.
+     */
+    private String styleReference(final String style) {
+        // gradients mostly differ per element, so a class would not be shared
+        if (!out.styleClasses || style.isEmpty() || style.contains("url(#gradient")) {
+            return style;
+        }
+        String name = out.classes.get(style);
+        if (name == null) {
+            if (out.classes.size() >= MAX_CLASSES) {
+                return style;
+            }
+            name = "s" + out.classes.size();
+            out.classes.put(style, name);
+            final StringBuilder sb = out.sb;
+            sb.append("<style type=\"text/css\">.").append(name).append('{');
+            // each attribute name="value" becomes a property name:value
+            int position = 0;
+            while (position < style.length()) {
+                final int equals = style.indexOf('=', position);
+                final int end = style.indexOf('"', equals + 2);
+                if (position > 0) {
+                    sb.append(';');
+                }
+                sb.append(style, position + 1, equals).append(':').append(style, equals + 2, end);
+                position = end + 1;
+            }
+            sb.append("}</style>\n");
+        }
+        return " class=\"" + name + "\"";
+    }
+
+    /**
+     * Write the gradient definition of the paint, unless the previous gradient was the same.
+     *
+     * @return A reference to the gradient, or null when the paint is a color.
+     */
+    private String writePaintDefinition() {
+        if (!(paint instanceof GradientPaint || paint instanceof LinearGradientPaint
+                || paint instanceof RadialGradientPaint)) {
+            return null;
+        }
+        final boolean translation = isTranslation(transform);
+        final double dx = translation ? transform.getTranslateX() : 0;
+        final double dy = translation ? transform.getTranslateY() : 0;
+
+        // the definition is built at the end of the buffer, to compare it with the previous one
+        final StringBuilder sb = out.sb;
+        final int start = sb.length();
+        if (paint instanceof GradientPaint) {
+            final GradientPaint gradient = (GradientPaint) paint;
+            sb.append("<linearGradient gradientUnits=\"userSpaceOnUse\"");
+            writePoint("x1", "y1", gradient.getPoint1(), dx, dy);
+            writePoint("x2", "y2", gradient.getPoint2(), dx, dy);
+            if (gradient.isCyclic()) {
+                sb.append(" spreadMethod=\"reflect\"");
+            }
+            sb.append('>');
+            writeStop(0f, gradient.getColor1());
+            writeStop(1f, gradient.getColor2());
+            sb.append("</linearGradient>\n");
+
+        } else if (paint instanceof LinearGradientPaint) {
+            final LinearGradientPaint gradient = (LinearGradientPaint) paint;
+            sb.append("<linearGradient gradientUnits=\"userSpaceOnUse\"");
+            writePoint("x1", "y1", gradient.getStartPoint(), dx, dy);
+            writePoint("x2", "y2", gradient.getEndPoint(), dx, dy);
+            writeGradientAttributes(gradient);
+            sb.append("</linearGradient>\n");
+
+        } else {
+            final RadialGradientPaint gradient = (RadialGradientPaint) paint;
+            sb.append("<radialGradient gradientUnits=\"userSpaceOnUse\"");
+            writePoint("cx", "cy", gradient.getCenterPoint(), dx, dy);
+            writePoint("fx", "fy", gradient.getFocusPoint(), dx, dy);
+            sb.append(" r=\"");
+            out.number(gradient.getRadius());
+            sb.append('"');
+            writeGradientAttributes(gradient);
+            sb.append("</radialGradient>\n");
+        }
+
+        final String definition = sb.substring(start);
+        sb.setLength(start);
+        if (!definition.equals(out.lastGradient)) {
+            out.endPath();
+            out.lastGradient = definition;
+            out.lastGradientId = "gradient" + out.nextId++;
+            // the id follows the element name
+            final int space = definition.indexOf(' ');
+            sb.append(definition, 0, space).append(" id=\"").append(out.lastGradientId).append('"');
+            sb.append(definition, space, definition.length());
+        }
+        return "url(#" + out.lastGradientId + ")";
+    }
+
+    private void writePoint(final String nameX, final String nameY, final Point2D point,
+                            final double dx, final double dy) {
+        final StringBuilder sb = out.sb;
+        sb.append(' ').append(nameX).append("=\"");
+        out.number(point.getX() + dx);
+        sb.append("\" ").append(nameY).append("=\"");
+        out.number(point.getY() + dy);
+        sb.append('"');
+    }
+
+    private void writeGradientAttributes(final MultipleGradientPaint gradient) {
+        final StringBuilder sb = out.sb;
+        if (gradient.getCycleMethod() == MultipleGradientPaint.CycleMethod.REFLECT) {
+            sb.append(" spreadMethod=\"reflect\"");
+        } else if (gradient.getCycleMethod() == MultipleGradientPaint.CycleMethod.REPEAT) {
+            sb.append(" spreadMethod=\"repeat\"");
+        }
+        if (!gradient.getTransform().isIdentity()) {
+            sb.append(" gradientTransform=\"");
+            writeMatrix(gradient.getTransform());
+            sb.append('"');
+        }
+        sb.append('>');
+        final float[] fractions = gradient.getFractions();
+        final Color[] colors = gradient.getColors();
+        for (int i = 0; i < fractions.length; i++) {
+            writeStop(fractions[i], colors[i]);
+        }
+    }
+
+    private void writeStop(final float offset, final Color stopColor) {
+        final StringBuilder sb = out.sb;
+        sb.append("<stop offset=\"");
+        out.number(offset, 3);
+        sb.append("\" stop-color=\"");
+        writeColor(stopColor);
+        sb.append('"');
+        if (stopColor.getAlpha() < 255) {
+            sb.append(" stop-opacity=\"");
+            out.number(stopColor.getAlpha() / 255.0, 3);
+            sb.append('"');
+        }
+        sb.append("/>");
+    }
+
+    /**
+     * Write the paint of a fill or stroke, with its opacity.
+     */
+    private void writePaint(final String name, final String paintRef) {
+        final StringBuilder sb = out.sb;
+        float alpha = compositeAlpha();
+        sb.append(' ').append(name).append("=\"");
+        if (paintRef != null) {
+            sb.append(paintRef);
+        } else {
+            final Color paintColor = paint instanceof Color ? (Color) paint : UNSUPPORTED_PAINT;
+            writeColor(paintColor);
+            alpha *= paintColor.getAlpha() / 255f;
+        }
+        sb.append('"');
+        if (alpha < 1f) {
+            sb.append(' ').append(name).append("-opacity=\"");
+            out.number(alpha, 3);
+            sb.append('"');
+        }
+    }
+
+    private void writeColor(final Color c) {
+        final StringBuilder sb = out.sb;
+        sb.append('#');
+        final int rgb = c.getRGB();
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((rgb >> shift) & 0xf, 16));
+        }
+    }
+
+    /**
+     * Write the attributes of a stroke that differ from the SVG defaults.
+     */
+    private void writeStroke(final BasicStroke basicStroke) {
+        final StringBuilder sb = out.sb;
+        if (basicStroke.getLineWidth() > 0f && basicStroke.getLineWidth() != 1f) {
+            sb.append(" stroke-width=\"");
+            out.number(basicStroke.getLineWidth());
+            sb.append('"');
+        }
+        if (basicStroke.getEndCap() == BasicStroke.CAP_ROUND) {
+            sb.append(" stroke-linecap=\"round\"");
+        } else if (basicStroke.getEndCap() == BasicStroke.CAP_SQUARE) {
+            sb.append(" stroke-linecap=\"square\"");
+        }
+        if (basicStroke.getLineJoin() == BasicStroke.JOIN_ROUND) {
+            sb.append(" stroke-linejoin=\"round\"");
+        } else if (basicStroke.getLineJoin() == BasicStroke.JOIN_BEVEL) {
+            sb.append(" stroke-linejoin=\"bevel\"");
+        } else if (basicStroke.getMiterLimit() != 4f) {
+            sb.append(" stroke-miterlimit=\"");
+            out.number(basicStroke.getMiterLimit());
+            sb.append('"');
+        }
+        final float[] dashes = basicStroke.getDashArray();
+        if (dashes != null && dashes.length > 0) {
+            sb.append(" stroke-dasharray=\"");
+            for (int i = 0; i < dashes.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                out.number(dashes[i]);
+            }
+            sb.append('"');
+            if (basicStroke.getDashPhase() != 0f) {
+                sb.append(" stroke-dashoffset=\"");
+                out.number(basicStroke.getDashPhase());
+                sb.append('"');
+            }
+        }
+    }
+
+    private void writeTransform(final AffineTransform at) {
+        out.sb.append(" transform=\"");
+        writeMatrix(at);
+        out.sb.append('"');
+    }
+
+    private void writeMatrix(final AffineTransform at) {
+        final StringBuilder sb = out.sb;
+        sb.append("matrix(");
+        out.number(at.getScaleX());
+        sb.append(' ');
+        out.number(at.getShearY());
+        sb.append(' ');
+        out.number(at.getShearX());
+        sb.append(' ');
+        out.number(at.getScaleY());
+        sb.append(' ');
+        out.number(at.getTranslateX());
+        sb.append(' ');
+        out.number(at.getTranslateY());
+        sb.append(')');
+    }
+
+    private void writeEscaped(final String text) {
+        final StringBuilder sb = out.sb;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    // control characters are not allowed in XML
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static String fontFamily(final Font f) {
+        final String family = f.getFamily();
+        switch (family) {
+            case Font.DIALOG:
+            case Font.SANS_SERIF:
+                return "sans-serif";
+            case Font.SERIF:
+                return "serif";
+            case Font.DIALOG_INPUT:
+            case Font.MONOSPACED:
+                return "monospace";
+            default:
+                return family.indexOf(' ') >= 0 ? "'" + family + "'" : family;
+        }
+    }
+
+    private float compositeAlpha() {
+        if (composite instanceof AlphaComposite
+                && ((AlphaComposite) composite).getRule() == AlphaComposite.SRC_OVER) {
+            return ((AlphaComposite) composite).getAlpha();
+        }
+        return 1f;
+    }
+
+    /**
+     * Whether a transform only translates, so it can be added to the coordinates.
+     */
+    private static boolean isTranslation(final AffineTransform at) {
+        return (at.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+    }
+
+    // =========================
+    // Shapes of Graphics
+
+    @Override
+    public void drawLine(final int x1, final int y1, final int x2, final int y2) {
+        draw(new Line2D.Float(x1, y1, x2, y2));
+    }
+
+    @Override
+    public void fillRect(final int x, final int y, final int width, final int height) {
+        fill(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void clearRect(final int x, final int y, final int width, final int height) {
+        final Paint saved = paint;
+        final Composite savedComposite = composite;
+        paint = background;
+        composite = AlphaComposite.SrcOver;
+        fillRect(x, y, width, height);
+        paint = saved;
+        composite = savedComposite;
+    }
+
+    @Override
+    public void drawRoundRect(final int x, final int y, final int width, final int height,
+                              final int arcWidth, final int arcHeight) {
+        draw(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void fillRoundRect(final int x, final int y, final int width, final int height,
+                              final int arcWidth, final int arcHeight) {
+        fill(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void drawOval(final int x, final int y, final int width, final int height) {
+        draw(new Ellipse2D.Float(x, y, width, height));
+    }
+
+    @Override
+    public void fillOval(final int x, final int y, final int width, final int height) {
+        fill(new Ellipse2D.Float(x, y, width, height));
+    }
+
+    @Override
+    public void drawArc(final int x, final int y, final int width, final int height,
+                        final int startAngle, final int arcAngle) {
+        draw(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+    }
+
+    @Override
+    public void fillArc(final int x, final int y, final int width, final int height,
+                        final int startAngle, final int arcAngle) {
+        fill(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+    }
+
+    @Override
+    public void drawPolyline(final int[] xPoints, final int[] yPoints, final int nPoints) {
+        if (nPoints < 2) {
+            return;
+        }
+        final Path2D path = new Path2D.Float(Path2D.WIND_NON_ZERO, nPoints);
+        path.moveTo(xPoints[0], yPoints[0]);
+        for (int i = 1; i < nPoints; i++) {
+            path.lineTo(xPoints[i], yPoints[i]);
+        }
+        draw(path);
+    }
+
+    @Override
+    public void drawPolygon(final int[] xPoints, final int[] yPoints, final int nPoints) {
+        draw(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    @Override
+    public void fillPolygon(final int[] xPoints, final int[] yPoints, final int nPoints) {
+        fill(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    @Override
+    public void copyArea(final int x, final int y, final int width, final int height, final int dx, final int dy) {
+        // the written elements cannot be copied
+    }
+
+    // =========================
+    // State
+
+    @Override
+    public Graphics create() {
+        return new SVGStreamGraphics2D(this);
+    }
+
+    @Override
+    public void dispose() {
+        // the document is completed by endDocument
+    }
+
+    @Override
+    public boolean hit(final Rectangle rect, final Shape s, final boolean onStroke) {
+        final Shape shape = transform.createTransformedShape(onStroke ? stroke.createStrokedShape(s) : s);
+        if (clip != null && !clip.intersects(rect)) {
+            return false;
+        }
+        return shape.intersects(rect);
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return out.metrics.getDeviceConfiguration();
+    }
+
+    @Override
+    public void setComposite(final Composite comp) {
+        if (comp == null) {
+            throw new IllegalArgumentException("Null composite");
+        }
+        this.composite = comp;
+    }
+
+    @Override
+    public Composite getComposite() {
+        return composite;
+    }
+
+    @Override
+    public void setPaint(final Paint paint) {
+        if (paint == null) {
+            return;
+        }
+        this.paint = paint;
+        if (paint instanceof Color) {
+            this.color = (Color) paint;
+        }
+    }
+
+    @Override
+    public Paint getPaint() {
+        return paint;
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void setColor(final Color c) {
+        setPaint(c);
+    }
+
+    @Override
+    public void setPaintMode() {
+        setComposite(AlphaComposite.SrcOver);
+    }
+
+    @Override
+    public void setXORMode(final Color c1) {
+        // not supported in SVG
+    }
+
+    @Override
+    public void setBackground(final Color color) {
+        this.background = color;
+    }
+
+    @Override
+    public Color getBackground() {
+        return background;
+    }
+
+    @Override
+    public void setStroke(final Stroke s) {
+        if (s != null) {
+            this.stroke = s;
+        }
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public void setFont(final Font font) {
+        if (font != null) {
+            this.font = font;
+        }
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(final Font f) {
+        out.metrics.setRenderingHints(hints);
+        return out.metrics.getFontMetrics(f);
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        final Object antialiasing = hints.get(RenderingHints.KEY_TEXT_ANTIALIASING);
+        final Object fractionalMetrics = hints.get(RenderingHints.KEY_FRACTIONALMETRICS);
+        return new FontRenderContext(new AffineTransform(),
+                antialiasing == null ? RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT : antialiasing,
+                fractionalMetrics == null ? RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT : fractionalMetrics);
+    }
+
+    @Override
+    public void setRenderingHint(final RenderingHints.Key hintKey, final Object hintValue) {
+        hints.put(hintKey, hintValue);
+    }
+
+    @Override
+    public Object getRenderingHint(final RenderingHints.Key hintKey) {
+        return hints.get(hintKey);
+    }
+
+    @Override
+    public void setRenderingHints(final Map<?, ?> hints) {
+        this.hints.clear();
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public void addRenderingHints(final Map<?, ?> hints) {
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return (RenderingHints) hints.clone();
+    }
+
+    @Override
+    public void translate(final int x, final int y) {
+        transform.translate(x, y);
+    }
+
+    @Override
+    public void translate(final double tx, final double ty) {
+        transform.translate(tx, ty);
+    }
+
+    @Override
+    public void rotate(final double theta) {
+        transform.rotate(theta);
+    }
+
+    @Override
+    public void rotate(final double theta, final double x, final double y) {
+        transform.rotate(theta, x, y);
+    }
+
+    @Override
+    public void scale(final double sx, final double sy) {
+        transform.scale(sx, sy);
+    }
+
+    @Override
+    public void shear(final double shx, final double shy) {
+        transform.shear(shx, shy);
+    }
+
+    @Override
+    public void transform(final AffineTransform tx) {
+        transform.concatenate(tx);
+    }
+
+    @Override
+    public void setTransform(final AffineTransform tx) {
+        transform = new AffineTransform(tx);
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    // =========================
+    // Clip, kept in device space
+
+    /**
+     * The clip in user space. Like SunGraphics2D, a rectangular clip is
+     * returned as a rectangle as long as the transform is a translation.
+     */
+    @Override
+    public Shape getClip() {
+        if (clip == null) {
+            return null;
+        }
+        final boolean rectangular = clip instanceof Rectangle2D
+                || (clip instanceof Area && ((Area) clip).isRectangular());
+        if (rectangular && isTranslation(transform)) {
+            final Rectangle2D bounds = clip.getBounds2D();
+            return new Rectangle2D.Double(bounds.getX() - transform.getTranslateX(),
+                    bounds.getY() - transform.getTranslateY(), bounds.getWidth(), bounds.getHeight());
+        }
+        try {
+            return transform.createInverse().createTransformedShape(clip);
+        } catch (final NoninvertibleTransformException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        final Shape userClip = getClip();
+        return userClip == null ? null : userClip.getBounds();
+    }
+
+    @Override
+    public void clip(final Shape s) {
+        if (s == null) {
+            setClip(null);
+            return;
+        }
+        final Shape deviceShape = toDevice(s);
+        if (clip == null) {
+            clip = deviceShape;
+        } else if (clip instanceof Rectangle2D && deviceShape instanceof Rectangle2D) {
+            clip = ((Rectangle2D) clip).createIntersection((Rectangle2D) deviceShape);
+        } else {
+            final Area area = new Area(clip);
+            area.intersect(new Area(deviceShape));
+            clip = area;
+        }
+        clipId = null;
+    }
+
+    @Override
+    public void clipRect(final int x, final int y, final int width, final int height) {
+        clip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void setClip(final int x, final int y, final int width, final int height) {
+        setClip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void setClip(final Shape s) {
+        clip = s == null ? null : toDevice(s);
+        clipId = null;
+    }
+
+    /**
+     * Transform a clip to device space, keeping rectangles rectangles.
+     */
+    private Shape toDevice(final Shape s) {
+        final Shape deviceShape = transform.createTransformedShape(s);
+        return s instanceof Rectangle2D && isTranslation(transform) ? deviceShape.getBounds2D() : deviceShape;
+    }
+
+    /**
+     * The document state shared by a graphics and the graphics created from it.
+     */
+    private static final class Output {
+        private final OutputStream os;
+        private final Writer writer;
+
+        // the elements being written
+        private final StringBuilder sb = new StringBuilder(FLUSH_SIZE * 2);
+        private char[] chars = new char[FLUSH_SIZE * 2];
+        private final char[] digits = new char[32];
+        private final double[] coords = new double[6];
+
+        // measures text, as the SVG graphics has no device
+        private final Graphics2D metrics;
+
+        private int precision = 4;
+        private int nextId;
+
+        private boolean styleClasses;
+        private boolean mergePaths;
+
+        // the classes written, by their presentation attributes
+        private final Map<String, String> classes = new HashMap<>();
+
+        // the attributes of the path left open to merge with, null when none
+        private String openPath;
+
+        private Shape lastClip;
+        private String lastClipId;
+        private String lastGradient;
+        private String lastGradientId;
+
+        private Output(final OutputStream os) {
+            this.os = os;
+            this.writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+            this.metrics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        }
+
+        private void endPath() {
+            if (openPath != null) {
+                sb.append("\"/>\n");
+                openPath = null;
+            }
+        }
+
+        private void flushIfFull() throws IOException {
+            if (sb.length() >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            final int length = sb.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            sb.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+            sb.setLength(0);
+        }
+
+        private void number(final double value) {
+            number(value, precision);
+        }
+
+        /**
+         * Append a number rounded to a number of decimals, without trailing zeros.
+         */
+        private void number(final double value, final int decimals) {
+            long scale = 1;
+            for (int i = 0; i < decimals; i++) {
+                scale *= 10;
+            }
+            final double scaled = Math.abs(value) * scale;
+            if (Double.isNaN(value) || Double.isInfinite(value) || scaled >= Long.MAX_VALUE / 10) {
+                sb.append(Double.isNaN(value) ? 0 : Math.round(value));
+                return;
+            }
+            final long rounded = Math.round(scaled);
+            if (rounded == 0) {
+                sb.append('0');
+                return;
+            }
+
+            int position = digits.length;
+            long integer = rounded / scale;
+            long fraction = rounded % scale;
+            boolean significant = false;
+            for (int i = 0; i < decimals; i++) {
+                final int digit = (int) (fraction % 10);
+                fraction /= 10;
+                if (significant || digit != 0) {
+                    digits[--position] = (char) ('0' + digit);
+                    significant = true;
+                }
+            }
+            if (significant) {
+                digits[--position] = '.';
+            }
+            do {
+                digits[--position] = (char) ('0' + integer % 10);
+                integer /= 10;
+            } while (integer > 0);
+            if (value < 0) {
+                digits[--position] = '-';
+            }
+            sb.append(digits, position, digits.length - position);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2011 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *  $Id$
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.StyleHandler;
+import org.apache.batik.util.SVGConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A Batik style handler that gives the elements a CSS class per distinct
+ * style, instead of repeating the presentation attributes on each element.
+ * The classes are added as a style sheet when the document is complete.
+ */
+final class SVGStyleClasses implements StyleHandler {
+
+    // the class names, by their style
+    private final Map<String, String> classes = new LinkedHashMap<>();
+
+    @Override
+    public void setStyle(final Element element, final Map styleMap, final SVGGeneratorContext generatorContext) {
+        if (styleMap.isEmpty()) {
+            return;
+        }
+        // sorted, so the same attributes give the same class
+        final StringBuilder style = new StringBuilder();
+        for (final Object entry : new TreeMap<Object, Object>(styleMap).entrySet()) {
+            final Map.Entry<?, ?> attribute = (Map.Entry<?, ?>) entry;
+            if (style.length() > 0) {
+                style.append(';');
+            }
+            style.append(attribute.getKey()).append(':').append(attribute.getValue());
+        }
+        String name = classes.get(style.toString());
+        if (name == null) {
+            name = "s" + classes.size();
+            classes.put(style.toString(), name);
+        }
+        element.setAttribute(SVGConstants.SVG_CLASS_ATTRIBUTE, name);
+    }
+
+    /**
+     * Add the style sheet with the classes as the first child of the root element.
+     */
+    void addStyleSheet(final Element root) {
+        final StringBuilder css = new StringBuilder();
+        for (final Map.Entry<String, String> entry : classes.entrySet()) {
+            css.append('.').append(entry.getValue()).append('{').append(entry.getKey()).append("}\n");
+        }
+        final Document document = root.getOwnerDocument();
+        final Element styleSheet = document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_STYLE_TAG);
+        styleSheet.setAttribute(SVGConstants.SVG_TYPE_ATTRIBUTE, "text/css");
+        styleSheet.appendChild(document.createTextNode(css.toString()));
+        root.insertBefore(styleSheet, root.getFirstChild());
+    }
+}
@@ -22,12 +22,18 @@
 package org.exist.xquery.modules.jfreechart.render;
 
 import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
 import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.util.SVGConstants;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.exist.xquery.modules.jfreechart.Configuration;
 import org.jfree.chart.JFreeChart;
+import org.w3c.dom.Attr;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import java.awt.*;
 import java.io.IOException;
@@ -54,17 +60,118 @@ public class SVGrenderer implements Renderer {
         final Document document = domImpl.createDocument(null, "svg", null);
 
         // Create an instance of the SVG Generator
-        final SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
+        final SVGGeneratorContext context = SVGGeneratorContext.createDefault(document);
+        if (config.getSvgPrecision() != null) {
+            context.setPrecision(config.getSvgPrecision());
+        }
+        final SVGStyleClasses styleClasses = config.isSvgStyleClasses() ? new SVGStyleClasses() : null;
+        if (styleClasses != null) {
+            context.setStyleHandler(styleClasses);
+        }
+        final SVGGraphics2D svgGenerator = new SVGGraphics2D(context, false);
 
         // draw the chart in the SVG generator
         chart.draw(svgGenerator, bounds);
 
+        final Element root = svgGenerator.getRoot();
+        if (styleClasses != null) {
+            styleClasses.addStyleSheet(root);
+        }
+        if (config.isSvgMergePaths()) {
+            mergeLines(root);
+        }
+
         final Writer out = new OutputStreamWriter(os, StandardCharsets.UTF_8);
-        svgGenerator.stream(out, true /* use css */);
+        svgGenerator.stream(root, out, true /* use css */, false);
         os.flush();
         os.close();
     }
 
+    /**
+     * Replace each run of line elements with the same attributes by a path
+     * with a subpath per line, so the lines are stroked as before.
+     */
+    private static void mergeLines(final Element parent) {
+        Node child = parent.getFirstChild();
+        while (child != null) {
+            if (!(child instanceof Element)) {
+                child = child.getNextSibling();
+                continue;
+            }
+            final Element element = (Element) child;
+            if (!SVGConstants.SVG_LINE_TAG.equals(element.getLocalName())) {
+                mergeLines(element);
+                child = child.getNextSibling();
+                continue;
+            }
+
+            Node next = element.getNextSibling();
+            if (!isSameLineStyle(element, next)) {
+                child = next;
+                continue;
+            }
+            final Element path = parent.getOwnerDocument().createElementNS(
+                    SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_PATH_TAG);
+            final StringBuilder data = new StringBuilder();
+            appendLine(data, element);
+            while (isSameLineStyle(element, next)) {
+                final Node line = next;
+                next = next.getNextSibling();
+                appendLine(data, (Element) line);
+                parent.removeChild(line);
+            }
+            final NamedNodeMap attributes = element.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final Attr attribute = (Attr) attributes.item(i);
+                if (!isLineCoordinate(attribute.getName())) {
+                    path.setAttributeNS(attribute.getNamespaceURI(), attribute.getName(), attribute.getValue());
+                }
+            }
+            path.setAttribute(SVGConstants.SVG_D_ATTRIBUTE, data.toString());
+            parent.replaceChild(path, element);
+            child = next;
+        }
+    }
+
+    private static boolean isSameLineStyle(final Element line, final Node other) {
+        if (!(other instanceof Element) || !SVGConstants.SVG_LINE_TAG.equals(other.getLocalName())) {
+            return false;
+        }
+        final NamedNodeMap attributes = line.getAttributes();
+        final NamedNodeMap otherAttributes = other.getAttributes();
+        if (attributes.getLength() != otherAttributes.getLength()) {
+            return false;
+        }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (!isLineCoordinate(attribute.getName())
+                    && !attribute.getValue().equals(((Element) other).getAttribute(attribute.getName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLineCoordinate(final String name) {
+        return SVGConstants.SVG_X1_ATTRIBUTE.equals(name) || SVGConstants.SVG_Y1_ATTRIBUTE.equals(name)
+                || SVGConstants.SVG_X2_ATTRIBUTE.equals(name) || SVGConstants.SVG_Y2_ATTRIBUTE.equals(name);
+    }
+
+    private static void appendLine(final StringBuilder data, final Element line) {
+        if (data.length() > 0) {
+            data.append(' ');
+        }
+        data.append('M').append(coordinate(line, SVGConstants.SVG_X1_ATTRIBUTE));
+        data.append(' ').append(coordinate(line, SVGConstants.SVG_Y1_ATTRIBUTE));
+        data.append('L').append(coordinate(line, SVGConstants.SVG_X2_ATTRIBUTE));
+        data.append(' ').append(coordinate(line, SVGConstants.SVG_Y2_ATTRIBUTE));
+    }
+
+    private static String coordinate(final Element line, final String name) {
+        final String value = line.getAttribute(name);
+        return value.isEmpty() ? "0" : value;
+    }
+
     @Override
     public String getContentType() {
         return ("image/svg+xml");
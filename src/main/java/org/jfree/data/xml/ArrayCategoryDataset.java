@@ -0,0 +1,224 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -------------------------
+ * ArrayCategoryDataset.java
+ * -------------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CategoryDataset} that stores the values of each row in a
+ * primitive array, with hashed key-to-index maps for the row and column
+ * keys. Keys are kept in the order they were first added, missing values
+ * are stored as NaN.
+ * <p>
+ * Unlike {@link org.jfree.data.category.DefaultCategoryDataset}, adding a
+ * value does not fire a change event; the dataset is meant to be filled
+ * completely before it is handed to a plot.
+ */
+public class ArrayCategoryDataset extends AbstractDataset implements CategoryDataset {
+
+    /**
+     * The row keys.
+     */
+    private final List<Comparable> rowKeys;
+
+    /**
+     * The column keys.
+     */
+    private final List<Comparable> columnKeys;
+
+    /**
+     * The index of each row key.
+     */
+    private final Map<Comparable, Integer> rowIndexes;
+
+    /**
+     * The index of each column key.
+     */
+    private final Map<Comparable, Integer> columnIndexes;
+
+    /**
+     * The values, one array per row. A row array can be shorter than the
+     * number of columns, the remaining values are missing.
+     */
+    private final List<double[]> rows;
+
+    /**
+     * Creates a new, empty dataset.
+     */
+    public ArrayCategoryDataset() {
+        this.rowKeys = new ArrayList<>();
+        this.columnKeys = new ArrayList<>();
+        this.rowIndexes = new HashMap<>();
+        this.columnIndexes = new HashMap<>();
+        this.rows = new ArrayList<>();
+    }
+
+    /**
+     * Adds or replaces a value, without firing a change event.
+     *
+     * @param value     the value, NaN for a missing value.
+     * @param rowKey    the row key.
+     * @param columnKey the column key.
+     */
+    public void addValue(final double value, final Comparable rowKey, final Comparable columnKey) {
+        if (rowKey == null) {
+            throw new IllegalArgumentException("Null 'rowKey' argument.");
+        }
+        if (columnKey == null) {
+            throw new IllegalArgumentException("Null 'columnKey' argument.");
+        }
+
+        Integer row = this.rowIndexes.get(rowKey);
+        if (row == null) {
+            row = this.rowKeys.size();
+            this.rowKeys.add(rowKey);
+            this.rowIndexes.put(rowKey, row);
+            this.rows.add(emptyRow(Math.max(this.columnKeys.size(), 8)));
+        }
+
+        Integer column = this.columnIndexes.get(columnKey);
+        if (column == null) {
+            column = this.columnKeys.size();
+            this.columnKeys.add(columnKey);
+            this.columnIndexes.put(columnKey, column);
+        }
+
+        double[] values = this.rows.get(row);
+        if (column >= values.length) {
+            final int length = values.length;
+            values = Arrays.copyOf(values, Math.max(column + 1, length + (length >> 1)));
+            Arrays.fill(values, length, values.length, Double.NaN);
+            this.rows.set(row, values);
+        }
+        values[column] = value;
+    }
+
+    /**
+     * Adds or replaces a value, without firing a change event.
+     *
+     * @param value     the value, null for a missing value.
+     * @param rowKey    the row key.
+     * @param columnKey the column key.
+     */
+    public void addValue(final Number value, final Comparable rowKey, final Comparable columnKey) {
+        addValue(value == null ? Double.NaN : value.doubleValue(), rowKey, columnKey);
+    }
+
+    private static double[] emptyRow(final int length) {
+        final double[] values = new double[length];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+
+    @Override
+    public Comparable getRowKey(final int row) {
+        return this.rowKeys.get(row);
+    }
+
+    @Override
+    public int getRowIndex(final Comparable key) {
+        final Integer row = this.rowIndexes.get(key);
+        return row == null ? -1 : row;
+    }
+
+    @Override
+    public List getRowKeys() {
+        return Collections.unmodifiableList(this.rowKeys);
+    }
+
+    @Override
+    public Comparable getColumnKey(final int column) {
+        return this.columnKeys.get(column);
+    }
+
+    @Override
+    public int getColumnIndex(final Comparable key) {
+        final Integer column = this.columnIndexes.get(key);
+        return column == null ? -1 : column;
+    }
+
+    @Override
+    public List getColumnKeys() {
+        return Collections.unmodifiableList(this.columnKeys);
+    }
+
+    @Override
+    public Number getValue(final Comparable rowKey, final Comparable columnKey) {
+        final int row = getRowIndex(rowKey);
+        if (row < 0) {
+            throw new UnknownKeyException("Unrecognised rowKey: " + rowKey);
+        }
+        final int column = getColumnIndex(columnKey);
+        if (column < 0) {
+            throw new UnknownKeyException("Unrecognised columnKey: " + columnKey);
+        }
+        return getValue(row, column);
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowKeys.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnKeys.size();
+    }
+
+    @Override
+    public Number getValue(final int row, final int column) {
+        if (column < 0 || column >= this.columnKeys.size()) {
+            throw new IndexOutOfBoundsException("Column index out of bounds: " + column);
+        }
+        final double[] values = this.rows.get(row);
+        if (column >= values.length || Double.isNaN(values[column])) {
+            return null;
+        }
+        return values[column];
+    }
+
+}
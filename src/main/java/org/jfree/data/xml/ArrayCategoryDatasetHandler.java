@@ -0,0 +1,77 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * --------------------------------
+ * ArrayCategoryDatasetHandler.java
+ * --------------------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+/**
+ * A SAX handler for reading an {@link ArrayCategoryDataset} from an XML file.
+ */
+public class ArrayCategoryDatasetHandler extends ArrayKeyedDatasetHandler {
+
+    /**
+     * The dataset under construction.
+     */
+    private final ArrayCategoryDataset dataset;
+
+    /**
+     * Creates a new handler.
+     */
+    public ArrayCategoryDatasetHandler() {
+        super(CATEGORYDATASET_TAG);
+        this.dataset = new ArrayCategoryDataset();
+    }
+
+    /**
+     * Returns the dataset.
+     *
+     * @return The dataset.
+     */
+    public ArrayCategoryDataset getDataset() {
+        return this.dataset;
+    }
+
+    @Override
+    protected boolean hasSeries() {
+        return true;
+    }
+
+    @Override
+    protected void addItem(final Comparable seriesKey, final Comparable key, final double value) {
+        this.dataset.addValue(value, seriesKey, key);
+    }
+
+}
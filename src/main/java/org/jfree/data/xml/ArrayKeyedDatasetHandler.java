@@ -0,0 +1,162 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------------------
+ * ArrayKeyedDatasetHandler.java
+ * -----------------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Base of the SAX handlers reading the keyed datasets,
+ * {@link ArrayPieDatasetHandler} and {@link ArrayCategoryDatasetHandler}.
+ * <p>
+ * Unlike the JFreeChart handlers, which push a sub handler for each
+ * element and collect each series in a map first, the elements are
+ * handled in place and each item is passed to the dataset as soon as it
+ * is complete. The key and value text is collected in one reused buffer.
+ */
+public abstract class ArrayKeyedDatasetHandler extends RootHandler implements DatasetTags {
+
+    /**
+     * The name of the dataset element.
+     */
+    private final String datasetTag;
+
+    /**
+     * Collects the text of the current Key or Value element.
+     */
+    private final NumberTextBuffer textBuffer;
+
+    /**
+     * True while inside a Key or Value element.
+     */
+    private boolean collecting;
+
+    /**
+     * The key of the current series, null outside a series.
+     */
+    private Comparable seriesKey;
+
+    /**
+     * The key of the current item.
+     */
+    private Comparable key;
+
+    /**
+     * The value of the current item, NaN when missing.
+     */
+    private double value;
+
+    /**
+     * Creates a new handler.
+     *
+     * @param datasetTag the name of the dataset element.
+     */
+    protected ArrayKeyedDatasetHandler(final String datasetTag) {
+        this.datasetTag = datasetTag;
+        this.textBuffer = new NumberTextBuffer();
+        this.collecting = false;
+    }
+
+    /**
+     * Returns whether the items are grouped in series.
+     *
+     * @return true for series.
+     */
+    protected abstract boolean hasSeries();
+
+    /**
+     * Adds an item to the dataset.
+     *
+     * @param seriesKey the series key, null when there are no series.
+     * @param key       the item key.
+     * @param value     the value, NaN when missing.
+     */
+    protected abstract void addItem(Comparable seriesKey, Comparable key, double value);
+
+    @Override
+    public void startElement(final String namespaceURI,
+                             final String localName,
+                             final String qName,
+                             final Attributes atts) throws SAXException {
+        if (qName.equals(KEY_TAG) || qName.equals(VALUE_TAG)) {
+            this.textBuffer.clear();
+            this.collecting = true;
+        } else if (qName.equals(ITEM_TAG)) {
+            if (hasSeries() && this.seriesKey == null) {
+                throw new SAXException("Expecting <Series> tag...found " + qName);
+            }
+            this.key = null;
+            this.value = Double.NaN;
+        } else if (qName.equals(SERIES_TAG) && hasSeries()) {
+            this.seriesKey = atts.getValue("name");
+            if (this.seriesKey == null) {
+                throw new SAXException("Series without a name");
+            }
+        } else if (!qName.equals(this.datasetTag)) {
+            throw new SAXException("Element not recognised: " + qName);
+        }
+    }
+
+    @Override
+    public void endElement(final String namespaceURI,
+                           final String localName,
+                           final String qName) throws SAXException {
+        if (qName.equals(KEY_TAG)) {
+            this.key = this.textBuffer.toString();
+            this.collecting = false;
+        } else if (qName.equals(VALUE_TAG)) {
+            this.value = this.textBuffer.parseDouble();
+            this.collecting = false;
+        } else if (qName.equals(ITEM_TAG)) {
+            if (this.key == null) {
+                throw new SAXException("Item without a <Key>");
+            }
+            addItem(this.seriesKey, this.key, this.value);
+        } else if (qName.equals(SERIES_TAG)) {
+            this.seriesKey = null;
+        }
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+        if (this.collecting) {
+            this.textBuffer.append(ch, start, length);
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * --------------------
+ * ArrayPieDataset.java
+ * --------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.general.AbstractDataset;
+import org.jfree.data.general.PieDataset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PieDataset} that stores its values in a primitive array, with a
+ * hashed key-to-index map. Keys are kept in the order they were first
+ * added, missing values are stored as NaN.
+ * <p>
+ * Unlike {@link org.jfree.data.general.DefaultPieDataset}, setting a value
+ * does not fire a change event; the dataset is meant to be filled
+ * completely before it is handed to a plot.
+ */
+public class ArrayPieDataset extends AbstractDataset implements PieDataset {
+
+    /**
+     * The keys.
+     */
+    private final List<Comparable> keys;
+
+    /**
+     * The index of each key.
+     */
+    private final Map<Comparable, Integer> indexes;
+
+    /**
+     * The values.
+     */
+    private final DoubleArrayBuilder values;
+
+    /**
+     * Creates a new, empty dataset.
+     */
+    public ArrayPieDataset() {
+        this.keys = new ArrayList<>();
+        this.indexes = new HashMap<>();
+        this.values = new DoubleArrayBuilder();
+    }
+
+    /**
+     * Adds or replaces a value, without firing a change event.
+     *
+     * @param key   the key.
+     * @param value the value, NaN for a missing value.
+     */
+    public void setValue(final Comparable key, final double value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null 'key' argument.");
+        }
+        final Integer index = this.indexes.get(key);
+        if (index == null) {
+            this.indexes.put(key, this.keys.size());
+            this.keys.add(key);
+            this.values.add(value);
+        } else {
+            this.values.set(index, value);
+        }
+    }
+
+    /**
+     * Adds or replaces a value, without firing a change event.
+     *
+     * @param key   the key.
+     * @param value the value, null for a missing value.
+     */
+    public void setValue(final Comparable key, final Number value) {
+        setValue(key, value == null ? Double.NaN : value.doubleValue());
+    }
+
+    @Override
+    public Comparable getKey(final int index) {
+        return this.keys.get(index);
+    }
+
+    @Override
+    public int getIndex(final Comparable key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null 'key' argument.");
+        }
+        final Integer index = this.indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public List getKeys() {
+        return Collections.unmodifiableList(this.keys);
+    }
+
+    @Override
+    public Number getValue(final Comparable key) {
+        final int index = getIndex(key);
+        if (index < 0) {
+            throw new UnknownKeyException("Key not recognised: " + key);
+        }
+        return getValue(index);
+    }
+
+    @Override
+    public int getItemCount() {
+        return this.keys.size();
+    }
+
+    @Override
+    public Number getValue(final int item) {
+        final double value = this.values.get(item);
+        return Double.isNaN(value) ? null : value;
+    }
+
+}
@@ -0,0 +1,523 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -------------------
+ * ArrayXYDataset.java
+ * -------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ * 18-Oct-2026 : Keep the bounds of culled series, per series bounds;
+ * 18-Oct-2026 : Add sortByX(), equals(), hashCode() and clone();
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+import org.jfree.data.xy.IntervalXYDataset;
+import org.jfree.data.xy.IntervalXYDelegate;
+import org.jfree.data.xy.XYDomainInfo;
+import org.jfree.data.xy.XYRangeInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact {@link IntervalXYDataset} that stores each series as a pair of
+ * parallel primitive arrays. The values are kept in the order they were
+ * supplied; missing Y values are stored as NaN. The domain and range bounds
+ * are computed once, when a series is added.
+ * <p>
+ * The intervals are provided by an {@link IntervalXYDelegate}, just like
+ * for an {@link org.jfree.data.xy.XYSeriesCollection}.
+ */
+public class ArrayXYDataset extends AbstractIntervalXYDataset
+        implements IntervalXYDataset, DomainInfo, RangeInfo, XYDomainInfo, XYRangeInfo {
+
+    /**
+     * The series keys.
+     */
+    private List<Comparable> seriesKeys;
+
+    /**
+     * The X values, one array per series.
+     */
+    private List<double[]> valuesX;
+
+    /**
+     * The Y values, one array per series.
+     */
+    private List<double[]> valuesY;
+
+    /**
+     * The bounds per series: minimum X, maximum X, minimum Y and maximum Y.
+     */
+    private List<double[]> bounds;
+
+    /**
+     * True as long as the X values of all series are in ascending order.
+     */
+    private boolean ascending;
+
+    /**
+     * Delegate that handles the interval width.
+     */
+    private IntervalXYDelegate intervalDelegate;
+
+    /**
+     * Creates a new, empty dataset.
+     */
+    public ArrayXYDataset() {
+        this.seriesKeys = new ArrayList<>();
+        this.valuesX = new ArrayList<>();
+        this.valuesY = new ArrayList<>();
+        this.bounds = new ArrayList<>();
+        this.ascending = true;
+        this.intervalDelegate = new IntervalXYDelegate(this, false);
+        addChangeListener(this.intervalDelegate);
+    }
+
+    /**
+     * Adds a series to the dataset. The arrays are stored as is, not copied.
+     *
+     * @param seriesKey the series key.
+     * @param valuesX   the X values.
+     * @param valuesY   the Y values, NaN for a missing value.
+     */
+    public void addSeries(final Comparable seriesKey, final double[] valuesX, final double[] valuesY) {
+        addSeries(seriesKey, valuesX, valuesY, null, null);
+    }
+
+    /**
+     * Adds a series to the dataset, of which items may have been dropped
+     * (see {@link CullingFilter}). The bounds of the series before culling
+     * are included in the bounds of the dataset, so the axes get the same
+     * automatic range. The arrays are stored as is, not copied.
+     *
+     * @param seriesKey    the series key.
+     * @param valuesX      the X values.
+     * @param valuesY      the Y values, NaN for a missing value.
+     * @param domainBounds the bounds of the X values before culling, null when unknown.
+     * @param rangeBounds  the bounds of the Y values before culling, null when unknown.
+     */
+    public void addSeries(final Comparable seriesKey, final double[] valuesX, final double[] valuesY,
+                          final Range domainBounds, final Range rangeBounds) {
+        if (seriesKey == null) {
+            throw new IllegalArgumentException("Null 'seriesKey' argument.");
+        }
+        if (this.seriesKeys.contains(seriesKey)) {
+            throw new IllegalArgumentException("This dataset already contains a series with the key " + seriesKey);
+        }
+        if (valuesX.length != valuesY.length) {
+            throw new IllegalArgumentException("The X and Y arrays of series " + seriesKey + " differ in length.");
+        }
+
+        double minX = Double.NaN;
+        double maxX = Double.NaN;
+        double minY = Double.NaN;
+        double maxY = Double.NaN;
+        double previousX = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < valuesX.length; i++) {
+            final double x = valuesX[i];
+            if (!Double.isNaN(x)) {
+                if (x < previousX) {
+                    this.ascending = false;
+                }
+                previousX = x;
+                minX = Double.isNaN(minX) ? x : Math.min(minX, x);
+                maxX = Double.isNaN(maxX) ? x : Math.max(maxX, x);
+            }
+            final double y = valuesY[i];
+            if (!Double.isNaN(y)) {
+                minY = Double.isNaN(minY) ? y : Math.min(minY, y);
+                maxY = Double.isNaN(maxY) ? y : Math.max(maxY, y);
+            }
+        }
+
+        if (domainBounds != null) {
+            minX = Double.isNaN(minX) ? domainBounds.getLowerBound() : Math.min(minX, domainBounds.getLowerBound());
+            maxX = Double.isNaN(maxX) ? domainBounds.getUpperBound() : Math.max(maxX, domainBounds.getUpperBound());
+        }
+        if (rangeBounds != null) {
+            minY = Double.isNaN(minY) ? rangeBounds.getLowerBound() : Math.min(minY, rangeBounds.getLowerBound());
+            maxY = Double.isNaN(maxY) ? rangeBounds.getUpperBound() : Math.max(maxY, rangeBounds.getUpperBound());
+        }
+
+        this.seriesKeys.add(seriesKey);
+        this.valuesX.add(valuesX);
+        this.valuesY.add(valuesY);
+        this.bounds.add(new double[]{minX, maxX, minY, maxY});
+        fireDatasetChanged();
+    }
+
+    /**
+     * Returns a dataset with the items of each series in ascending X order,
+     * see {@link SeriesSorter}. The series keep their bounds.
+     *
+     * @return This dataset when already in order, otherwise a new dataset.
+     */
+    public ArrayXYDataset sortByX() {
+        if (this.ascending) {
+            return this;
+        }
+        final ArrayXYDataset result = new ArrayXYDataset();
+        for (int series = 0; series < this.seriesKeys.size(); series++) {
+            final double[][] sorted = SeriesSorter.sortByX(this.valuesX.get(series), this.valuesY.get(series));
+            result.addSeries(this.seriesKeys.get(series), sorted[0], sorted[1],
+                    getSeriesDomainBounds(series), getSeriesRangeBounds(series));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the X values of a series. The array is not copied.
+     *
+     * @param series the series index (zero-based).
+     * @return The X values.
+     */
+    public double[] getXValues(final int series) {
+        return this.valuesX.get(series);
+    }
+
+    /**
+     * Returns the Y values of a series. The array is not copied.
+     *
+     * @param series the series index (zero-based).
+     * @return The Y values.
+     */
+    public double[] getYValues(final int series) {
+        return this.valuesY.get(series);
+    }
+
+    /**
+     * Returns the bounds of the X values of a series, including the items
+     * dropped before the series was added.
+     *
+     * @param series the series index (zero-based).
+     * @return The bounds, null when there are no (non-NaN) values.
+     */
+    public Range getSeriesDomainBounds(final int series) {
+        final double[] seriesBounds = this.bounds.get(series);
+        return Double.isNaN(seriesBounds[0]) ? null : new Range(seriesBounds[0], seriesBounds[1]);
+    }
+
+    /**
+     * Returns the bounds of the Y values of a series, including the items
+     * dropped before the series was added.
+     *
+     * @param series the series index (zero-based).
+     * @return The bounds, null when there are no (non-NaN) values.
+     */
+    public Range getSeriesRangeBounds(final int series) {
+        final double[] seriesBounds = this.bounds.get(series);
+        return Double.isNaN(seriesBounds[2]) ? null : new Range(seriesBounds[2], seriesBounds[3]);
+    }
+
+    @Override
+    public DomainOrder getDomainOrder() {
+        return this.ascending ? DomainOrder.ASCENDING : DomainOrder.NONE;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return this.seriesKeys.size();
+    }
+
+    @Override
+    public Comparable getSeriesKey(final int series) {
+        return this.seriesKeys.get(series);
+    }
+
+    @Override
+    public int getItemCount(final int series) {
+        return this.valuesX.get(series).length;
+    }
+
+    @Override
+    public double getXValue(final int series, final int item) {
+        return this.valuesX.get(series)[item];
+    }
+
+    @Override
+    public Number getX(final int series, final int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public double getYValue(final int series, final int item) {
+        return this.valuesY.get(series)[item];
+    }
+
+    @Override
+    public Number getY(final int series, final int item) {
+        final double y = getYValue(series, item);
+        return Double.isNaN(y) ? null : y;
+    }
+
+    @Override
+    public Number getStartX(final int series, final int item) {
+        return this.intervalDelegate.getStartX(series, item);
+    }
+
+    @Override
+    public double getStartXValue(final int series, final int item) {
+        return this.intervalDelegate.getStartXValue(series, item);
+    }
+
+    @Override
+    public Number getEndX(final int series, final int item) {
+        return this.intervalDelegate.getEndX(series, item);
+    }
+
+    @Override
+    public double getEndXValue(final int series, final int item) {
+        return this.intervalDelegate.getEndXValue(series, item);
+    }
+
+    @Override
+    public Number getStartY(final int series, final int item) {
+        return getY(series, item);
+    }
+
+    @Override
+    public double getStartYValue(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public Number getEndY(final int series, final int item) {
+        return getY(series, item);
+    }
+
+    @Override
+    public double getEndYValue(final int series, final int item) {
+        return getYValue(series, item);
+    }
+
+    /**
+     * Returns the interval width used for the X intervals.
+     *
+     * @return The interval width.
+     */
+    public double getIntervalWidth() {
+        return this.intervalDelegate.getIntervalWidth();
+    }
+
+    @Override
+    public double getDomainLowerBound(final boolean includeInterval) {
+        final Range range = getDomainBounds(includeInterval);
+        return range == null ? Double.NaN : range.getLowerBound();
+    }
+
+    @Override
+    public double getDomainUpperBound(final boolean includeInterval) {
+        final Range range = getDomainBounds(includeInterval);
+        return range == null ? Double.NaN : range.getUpperBound();
+    }
+
+    @Override
+    public Range getDomainBounds(final boolean includeInterval) {
+        return addInterval(getBounds(0, null), includeInterval);
+    }
+
+    @Override
+    public Range getDomainBounds(final List visibleSeriesKeys, final boolean includeInterval) {
+        return addInterval(getBounds(0, visibleSeriesKeys), includeInterval);
+    }
+
+    private Range addInterval(final Range range, final boolean includeInterval) {
+        if (range == null || !includeInterval) {
+            return range;
+        }
+        final double width = this.intervalDelegate.getIntervalWidth();
+        final double factor = this.intervalDelegate.getIntervalPositionFactor();
+        return new Range(range.getLowerBound() - factor * width,
+                range.getUpperBound() + (1.0 - factor) * width);
+    }
+
+    @Override
+    public double getRangeLowerBound(final boolean includeInterval) {
+        final Range range = getRangeBounds(includeInterval);
+        return range == null ? Double.NaN : range.getLowerBound();
+    }
+
+    @Override
+    public double getRangeUpperBound(final boolean includeInterval) {
+        final Range range = getRangeBounds(includeInterval);
+        return range == null ? Double.NaN : range.getUpperBound();
+    }
+
+    @Override
+    public Range getRangeBounds(final boolean includeInterval) {
+        return getBounds(2, null);
+    }
+
+    /**
+     * Returns the range of the Y values of the visible series, for the
+     * items with an X value in a range. The cached bounds are used when the
+     * range covers all X values of a series, which is also the only case in
+     * which the values of a culled series are complete.
+     *
+     * @param visibleSeriesKeys the keys of the visible series.
+     * @param xRange            the range of the X values.
+     * @param includeInterval   ignored, the Y values have no interval.
+     * @return The bounds, or null when there are no (non-NaN) values.
+     */
+    @Override
+    public Range getRangeBounds(final List visibleSeriesKeys, final Range xRange, final boolean includeInterval) {
+        double lower = Double.POSITIVE_INFINITY;
+        double upper = Double.NEGATIVE_INFINITY;
+        for (final Object key : visibleSeriesKeys) {
+            final int series = this.seriesKeys.indexOf(key);
+            if (series < 0) {
+                continue;
+            }
+            final double[] seriesBounds = this.bounds.get(series);
+            if (Double.isNaN(seriesBounds[2])) {
+                continue;
+            }
+            if (xRange.contains(seriesBounds[0]) && xRange.contains(seriesBounds[1])) {
+                lower = Math.min(lower, seriesBounds[2]);
+                upper = Math.max(upper, seriesBounds[3]);
+                continue;
+            }
+            final double[] x = this.valuesX.get(series);
+            final double[] y = this.valuesY.get(series);
+            for (int i = 0; i < x.length; i++) {
+                if (!Double.isNaN(y[i]) && xRange.contains(x[i])) {
+                    lower = Math.min(lower, y[i]);
+                    upper = Math.max(upper, y[i]);
+                }
+            }
+        }
+        return lower > upper ? null : new Range(lower, upper);
+    }
+
+    /**
+     * Combines the cached bounds of the series.
+     *
+     * @param offset            0 for the domain bounds, 2 for the range bounds.
+     * @param visibleSeriesKeys the keys of the series to include, null for all series.
+     * @return The bounds, or null when there are no (non-NaN) values.
+     */
+    private Range getBounds(final int offset, final List visibleSeriesKeys) {
+        double lower = Double.POSITIVE_INFINITY;
+        double upper = Double.NEGATIVE_INFINITY;
+        for (int series = 0; series < this.bounds.size(); series++) {
+            final double[] seriesBounds = this.bounds.get(series);
+            if (!Double.isNaN(seriesBounds[offset])
+                    && (visibleSeriesKeys == null || visibleSeriesKeys.contains(this.seriesKeys.get(series)))) {
+                lower = Math.min(lower, seriesBounds[offset]);
+                upper = Math.max(upper, seriesBounds[offset + 1]);
+            }
+        }
+        return lower > upper ? null : new Range(lower, upper);
+    }
+
+    /**
+     * Tests this dataset for equality with an arbitrary object.
+     *
+     * @param obj the object (null permitted).
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ArrayXYDataset)) {
+            return false;
+        }
+        final ArrayXYDataset that = (ArrayXYDataset) obj;
+        if (!this.intervalDelegate.equals(that.intervalDelegate)) {
+            return false;
+        }
+        if (!this.seriesKeys.equals(that.seriesKeys)) {
+            return false;
+        }
+        for (int series = 0; series < this.seriesKeys.size(); series++) {
+            if (!Arrays.equals(this.valuesX.get(series), that.valuesX.get(series))
+                    || !Arrays.equals(this.valuesY.get(series), that.valuesY.get(series))
+                    || !Arrays.equals(this.bounds.get(series), that.bounds.get(series))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        int result = this.seriesKeys.hashCode();
+        for (int series = 0; series < this.seriesKeys.size(); series++) {
+            result = 31 * result + Arrays.hashCode(this.valuesX.get(series));
+            result = 31 * result + Arrays.hashCode(this.valuesY.get(series));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a clone of this dataset, with copies of the value arrays.
+     *
+     * @return A clone.
+     * @throws CloneNotSupportedException if there is a problem.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final ArrayXYDataset clone = (ArrayXYDataset) super.clone();
+        clone.seriesKeys = new ArrayList<>(this.seriesKeys);
+        clone.valuesX = copy(this.valuesX);
+        clone.valuesY = copy(this.valuesY);
+        clone.bounds = copy(this.bounds);
+        clone.intervalDelegate = new IntervalXYDelegate(clone, false);
+        clone.intervalDelegate.setFixedIntervalWidth(this.intervalDelegate.getFixedIntervalWidth());
+        clone.intervalDelegate.setAutoWidth(this.intervalDelegate.isAutoWidth());
+        clone.intervalDelegate.setIntervalPositionFactor(this.intervalDelegate.getIntervalPositionFactor());
+        clone.addChangeListener(clone.intervalDelegate);
+        return clone;
+    }
+
+    private static List<double[]> copy(final List<double[]> arrays) {
+        final List<double[]> result = new ArrayList<>(arrays.size());
+        for (final double[] array : arrays) {
+            result.add(array.clone());
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,178 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ----------------------
+ * BoundedXYZDataset.java
+ * ----------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.Range;
+import org.jfree.data.xy.DefaultXYZDataset;
+import org.jfree.data.xy.XYDomainInfo;
+import org.jfree.data.xy.XYRangeInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DefaultXYZDataset} of which items may have been dropped (see
+ * {@link CullingFilter}). The bounds of the series before culling are
+ * included in the bounds of the dataset, so the axes get the same automatic
+ * range. The bounds of each series are computed once, when it is added.
+ */
+public class BoundedXYZDataset extends DefaultXYZDataset implements XYDomainInfo, XYRangeInfo {
+
+    /**
+     * The bounds per series key: minimum X, maximum X, minimum Y and maximum Y.
+     */
+    private Map<Comparable, double[]> bounds;
+
+    /**
+     * Creates a new, empty dataset.
+     */
+    public BoundedXYZDataset() {
+        this.bounds = new HashMap<>();
+    }
+
+    @Override
+    public void addSeries(final Comparable seriesKey, final double[][] data) {
+        addSeries(seriesKey, data, null, null);
+    }
+
+    /**
+     * Adds a series, or replaces the series with the same key.
+     *
+     * @param seriesKey    the series key.
+     * @param data         the X, Y and Z values.
+     * @param domainBounds the bounds of the X values before culling, null when unknown.
+     * @param rangeBounds  the bounds of the Y values before culling, null when unknown.
+     */
+    public void addSeries(final Comparable seriesKey, final double[][] data,
+                          final Range domainBounds, final Range rangeBounds) {
+        final Range x = Range.combine(findBounds(data[0]), domainBounds);
+        final Range y = Range.combine(findBounds(data[1]), rangeBounds);
+        this.bounds.put(seriesKey, new double[]{
+                x == null ? Double.NaN : x.getLowerBound(), x == null ? Double.NaN : x.getUpperBound(),
+                y == null ? Double.NaN : y.getLowerBound(), y == null ? Double.NaN : y.getUpperBound()});
+        super.addSeries(seriesKey, data);
+    }
+
+    @Override
+    public void removeSeries(final Comparable seriesKey) {
+        this.bounds.remove(seriesKey);
+        super.removeSeries(seriesKey);
+    }
+
+    @Override
+    public Range getDomainBounds(final List visibleSeriesKeys, final boolean includeInterval) {
+        return getBounds(0, visibleSeriesKeys);
+    }
+
+    /**
+     * Returns the range of the Y values of the visible series, for the
+     * items with an X value in a range. The cached bounds are used when the
+     * range covers all X values of a series.
+     *
+     * @param visibleSeriesKeys the keys of the visible series.
+     * @param xRange            the range of the X values.
+     * @param includeInterval   ignored, the values have no interval.
+     * @return The bounds, or null when there are no (non-NaN) values.
+     */
+    @Override
+    public Range getRangeBounds(final List visibleSeriesKeys, final Range xRange, final boolean includeInterval) {
+        double lower = Double.POSITIVE_INFINITY;
+        double upper = Double.NEGATIVE_INFINITY;
+        for (final Object key : visibleSeriesKeys) {
+            final double[] seriesBounds = this.bounds.get(key);
+            if (seriesBounds == null || Double.isNaN(seriesBounds[2])) {
+                continue;
+            }
+            if (xRange.contains(seriesBounds[0]) && xRange.contains(seriesBounds[1])) {
+                lower = Math.min(lower, seriesBounds[2]);
+                upper = Math.max(upper, seriesBounds[3]);
+                continue;
+            }
+            final int series = indexOf((Comparable) key);
+            for (int item = 0; item < getItemCount(series); item++) {
+                final double y = getYValue(series, item);
+                if (!Double.isNaN(y) && xRange.contains(getXValue(series, item))) {
+                    lower = Math.min(lower, y);
+                    upper = Math.max(upper, y);
+                }
+            }
+        }
+        return lower > upper ? null : new Range(lower, upper);
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final BoundedXYZDataset clone = (BoundedXYZDataset) super.clone();
+        clone.bounds = new HashMap<>(this.bounds);
+        return clone;
+    }
+
+    /**
+     * Combines the cached bounds of the visible series.
+     *
+     * @param offset            0 for the domain bounds, 2 for the range bounds.
+     * @param visibleSeriesKeys the keys of the visible series.
+     * @return The bounds, or null when there are no (non-NaN) values.
+     */
+    private Range getBounds(final int offset, final List visibleSeriesKeys) {
+        double lower = Double.POSITIVE_INFINITY;
+        double upper = Double.NEGATIVE_INFINITY;
+        for (final Object key : visibleSeriesKeys) {
+            final double[] seriesBounds = this.bounds.get(key);
+            if (seriesBounds != null && !Double.isNaN(seriesBounds[offset])) {
+                lower = Math.min(lower, seriesBounds[offset]);
+                upper = Math.max(upper, seriesBounds[offset + 1]);
+            }
+        }
+        return lower > upper ? null : new Range(lower, upper);
+    }
+
+    private static Range findBounds(final double[] values) {
+        double lower = Double.POSITIVE_INFINITY;
+        double upper = Double.NEGATIVE_INFINITY;
+        for (final double value : values) {
+            if (!Double.isNaN(value)) {
+                lower = Math.min(lower, value);
+                upper = Math.max(upper, value);
+            }
+        }
+        return lower > upper ? null : new Range(lower, upper);
+    }
+
+}
@@ -0,0 +1,249 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ------------------
+ * CullingFilter.java
+ * ------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.Range;
+
+/**
+ * Drops the items of a series that cannot be seen in a {@link CullingWindow},
+ * while they are read in drawing order. Depending on the
+ * {@link CullingWindow.Mode} an item is kept when it or an adjacent item is
+ * visible, or when the line to an adjacent item may cross the window, so
+ * one neighbour on each side of the visible part is kept. Items with a
+ * missing X or Y value are always kept, as they mark gaps. The decision on
+ * an item waits for the next one, so a series must end with
+ * {@link #flush()}.
+ * <p>
+ * The filter keeps the bounds of all items it was given, dropped or not, so
+ * a dataset can report the same bounds as without culling and the axes get
+ * the same automatic range.
+ * <p>
+ * For bubbles the Z value is the diameter in X units and the Y values are
+ * not culled, as the height of a bubble in Y units is only known once the
+ * chart is drawn.
+ */
+public class CullingFilter {
+
+    /**
+     * The receiver of the items that are kept.
+     */
+    public interface ItemSink {
+
+        /**
+         * Adds an item.
+         *
+         * @param valueX the X value.
+         * @param valueY the Y value.
+         * @param valueZ the Z value, NaN for XY items.
+         */
+        void addItem(double valueX, double valueY, double valueZ);
+    }
+
+    /**
+     * The window.
+     */
+    private final CullingWindow window;
+
+    /**
+     * Whether the items are bubbles sized by their Z value.
+     */
+    private final boolean bubbles;
+
+    /**
+     * The receiver of the items that are kept.
+     */
+    private final ItemSink sink;
+
+    /**
+     * The item waiting for its next item.
+     */
+    private boolean pending;
+    private boolean pendingKept;
+    private boolean pendingVisible;
+    private double pendingX;
+    private double pendingY;
+    private double pendingZ;
+
+    /**
+     * Whether items were dropped since the last item passed on.
+     */
+    private boolean dropped;
+
+    /**
+     * Whether a line may be drawn from the last item passed on, and its X
+     * value.
+     */
+    private boolean joined;
+    private double joinedX;
+
+    /**
+     * The bounds of all items: minimum X, maximum X, minimum Y and maximum Y.
+     */
+    private double minX;
+    private double maxX;
+    private double minY;
+    private double maxY;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param window  the window.
+     * @param bubbles the items are bubbles sized by their Z value.
+     * @param sink    the receiver of the items that are kept.
+     */
+    public CullingFilter(final CullingWindow window, final boolean bubbles, final ItemSink sink) {
+        this.window = window;
+        this.bubbles = bubbles;
+        this.sink = sink;
+        this.pending = false;
+        this.dropped = false;
+        this.joined = false;
+        this.minX = Double.NaN;
+        this.maxX = Double.NaN;
+        this.minY = Double.NaN;
+        this.maxY = Double.NaN;
+    }
+
+    /**
+     * Adds an item, which is passed on once it is known to be needed.
+     *
+     * @param valueX the X value.
+     * @param valueY the Y value.
+     * @param valueZ the Z value, NaN for XY items.
+     */
+    public void addItem(final double valueX, final double valueY, final double valueZ) {
+        if (!Double.isNaN(valueX)) {
+            this.minX = Double.isNaN(this.minX) ? valueX : Math.min(this.minX, valueX);
+            this.maxX = Double.isNaN(this.maxX) ? valueX : Math.max(this.maxX, valueX);
+        }
+        if (!Double.isNaN(valueY)) {
+            this.minY = Double.isNaN(this.minY) ? valueY : Math.min(this.minY, valueY);
+            this.maxY = Double.isNaN(this.maxY) ? valueY : Math.max(this.maxY, valueY);
+        }
+
+        if (Double.isNaN(valueX) || Double.isNaN(valueY)) {
+            flush();
+            passOn(valueX, valueY, valueZ);
+            return;
+        }
+
+        final boolean visible = intersects(valueX, valueY, valueZ, valueX, valueY, valueZ);
+        final boolean kept;
+        if (this.pending) {
+            final boolean link = this.window.getMode() == CullingWindow.Mode.POINTS
+                    ? this.pendingVisible || visible
+                    : intersects(this.pendingX, this.pendingY, this.pendingZ, valueX, valueY, valueZ);
+            if (this.pendingKept || link) {
+                passOn(this.pendingX, this.pendingY, this.pendingZ);
+            } else {
+                this.dropped = true;
+            }
+            kept = link || visible;
+        } else {
+            kept = visible;
+        }
+
+        this.pending = true;
+        this.pendingKept = kept;
+        this.pendingVisible = visible;
+        this.pendingX = valueX;
+        this.pendingY = valueY;
+        this.pendingZ = valueZ;
+    }
+
+    /**
+     * Passes on the last item when it is needed, at the end of a series.
+     */
+    public void flush() {
+        if (this.pending) {
+            if (this.pendingKept) {
+                passOn(this.pendingX, this.pendingY, this.pendingZ);
+            } else {
+                this.dropped = true;
+            }
+        }
+        this.pending = false;
+    }
+
+    /**
+     * Returns the bounds of the X values of all items.
+     *
+     * @return The bounds, null when there are no (non-NaN) values.
+     */
+    public Range getDomainBounds() {
+        return Double.isNaN(this.minX) ? null : new Range(this.minX, this.maxX);
+    }
+
+    /**
+     * Returns the bounds of the Y values of all items.
+     *
+     * @return The bounds, null when there are no (non-NaN) values.
+     */
+    public Range getRangeBounds() {
+        return Double.isNaN(this.minY) ? null : new Range(this.minY, this.maxY);
+    }
+
+    /**
+     * Passes on an item, after a missing value when items were dropped
+     * since a kept item that a line would be drawn from.
+     */
+    private void passOn(final double valueX, final double valueY, final double valueZ) {
+        if (this.dropped && this.joined && this.window.getMode() == CullingWindow.Mode.LINES) {
+            this.sink.addItem(this.joinedX, Double.NaN, Double.NaN);
+        }
+        this.sink.addItem(valueX, valueY, valueZ);
+        this.dropped = false;
+        this.joined = !Double.isNaN(valueX) && !Double.isNaN(valueY);
+        this.joinedX = valueX;
+    }
+
+    /**
+     * Returns whether the bounding box of two items may overlap the window.
+     */
+    private boolean intersects(final double x1, final double y1, final double z1,
+                               final double x2, final double y2, final double z2) {
+        if (this.bubbles) {
+            final double r1 = Double.isNaN(z1) ? 0 : Math.abs(z1) / 2;
+            final double r2 = Double.isNaN(z2) ? 0 : Math.abs(z2) / 2;
+            return this.window.intersects(Math.min(x1 - r1, x2 - r2), Math.max(x1 + r1, x2 + r2),
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        return this.window.intersects(Math.min(x1, x2), Math.max(x1, x2), Math.min(y1, y2), Math.max(y1, y2));
+    }
+
+}
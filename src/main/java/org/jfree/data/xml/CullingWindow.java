@@ -0,0 +1,141 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ------------------
+ * CullingWindow.java
+ * ------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+/**
+ * The visible part of a XY plot, used to drop items that cannot be seen
+ * while a dataset is read. Each bound may be open (infinite).
+ */
+public class CullingWindow {
+
+    /**
+     * How the items of a series are drawn, which decides the neighbours
+     * that must be kept.
+     */
+    public enum Mode {
+
+        /**
+         * Each item is drawn on its own. An item is kept when it or an
+         * adjacent item is visible.
+         */
+        POINTS,
+
+        /**
+         * Adjacent items are joined by lines, which break at missing
+         * values. An item is kept when a line to an adjacent item may cross
+         * the window, and a missing value is added where items are dropped
+         * between kept items.
+         */
+        LINES,
+
+        /**
+         * Adjacent items are joined into a filled area. Items are kept as
+         * for {@link #LINES}, but no missing values are added, as an area
+         * is drawn down to zero at a missing value.
+         */
+        AREA
+    }
+
+    /**
+     * The bounds.
+     */
+    private final double domainLower;
+    private final double domainUpper;
+    private final double rangeLower;
+    private final double rangeUpper;
+
+    /**
+     * How the items are drawn.
+     */
+    private final Mode mode;
+
+    /**
+     * Creates a new window.
+     *
+     * @param domainLower the lower bound of the X values, null when open.
+     * @param domainUpper the upper bound of the X values, null when open.
+     * @param rangeLower  the lower bound of the Y values, null when open.
+     * @param rangeUpper  the upper bound of the Y values, null when open.
+     * @param mode        how the items are drawn.
+     */
+    public CullingWindow(final Double domainLower, final Double domainUpper,
+                         final Double rangeLower, final Double rangeUpper, final Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Null 'mode' argument.");
+        }
+        this.domainLower = domainLower == null ? Double.NEGATIVE_INFINITY : domainLower;
+        this.domainUpper = domainUpper == null ? Double.POSITIVE_INFINITY : domainUpper;
+        this.rangeLower = rangeLower == null ? Double.NEGATIVE_INFINITY : rangeLower;
+        this.rangeUpper = rangeUpper == null ? Double.POSITIVE_INFINITY : rangeUpper;
+        this.mode = mode;
+    }
+
+    /**
+     * Returns how the items are drawn.
+     *
+     * @return The mode.
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Returns whether any of the bounds is set.
+     *
+     * @return true when items may be dropped.
+     */
+    public boolean isBounded() {
+        return this.domainLower != Double.NEGATIVE_INFINITY || this.domainUpper != Double.POSITIVE_INFINITY
+                || this.rangeLower != Double.NEGATIVE_INFINITY || this.rangeUpper != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns whether a rectangle overlaps the window, including its edges.
+     *
+     * @param minX the smallest X value.
+     * @param maxX the largest X value.
+     * @param minY the smallest Y value.
+     * @param maxY the largest Y value.
+     * @return true when the rectangle overlaps.
+     */
+    public boolean intersects(final double minX, final double maxX, final double minY, final double maxY) {
+        return minX <= this.domainUpper && maxX >= this.domainLower
+                && minY <= this.rangeUpper && maxY >= this.rangeLower;
+    }
+
+}
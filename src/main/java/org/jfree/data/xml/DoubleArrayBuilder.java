@@ -0,0 +1,154 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------------
+ * DoubleArrayBuilder.java
+ * ---------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of primitive doubles, used to collect series values
+ * while a dataset is being read without boxing each value.
+ */
+public class DoubleArrayBuilder {
+
+    /**
+     * The default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The values.
+     */
+    private double[] values;
+
+    /**
+     * The number of values in use.
+     */
+    private int size;
+
+    /**
+     * Creates a new, empty buffer.
+     */
+    public DoubleArrayBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new, empty buffer.
+     *
+     * @param capacity the initial capacity.
+     */
+    public DoubleArrayBuilder(final int capacity) {
+        this.values = new double[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    /**
+     * Appends a value, growing the buffer by half its size when full.
+     *
+     * @param value the value.
+     */
+    public void add(final double value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values,
+                    this.values.length + (this.values.length >> 1) + 1);
+        }
+        this.values[this.size++] = value;
+    }
+
+    /**
+     * Returns the value at an index.
+     *
+     * @param index the index.
+     * @return The value.
+     */
+    public double get(final int index) {
+        if (index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Replaces the value at an index.
+     *
+     * @param index the index.
+     * @param value the value.
+     */
+    public void set(final int index, final double value) {
+        if (index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+        this.values[index] = value;
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all values, keeping the allocated capacity.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns the values as an array of exactly {@link #size()} elements and
+     * empties the buffer. A full backing array is handed out as is, so it is
+     * only copied when it has spare capacity.
+     *
+     * @return The values.
+     */
+    public double[] toArray() {
+        final double[] result;
+        if (this.size == this.values.length) {
+            result = this.values;
+            this.values = new double[DEFAULT_CAPACITY];
+        } else {
+            result = Arrays.copyOf(this.values, this.size);
+        }
+        this.size = 0;
+        return result;
+    }
+
+}
@@ -0,0 +1,454 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * --------------------
+ * NumberTextBuffer.java
+ * --------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ * 18-Oct-2026 : Parse ISO dateTime values into epoch milliseconds;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+
+/**
+ * A reusable character buffer for the text content of numeric elements,
+ * which parses its content into a primitive double without creating
+ * intermediate {@link String} or {@link Double} objects for plain decimal
+ * numbers with an exact mantissa below 2^53 (see {@link #parseDouble()}).
+ */
+public class NumberTextBuffer {
+
+    /**
+     * Exactly representable powers of ten.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The largest mantissa that converts to a double without rounding.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * The maximum number of significant digits collected in the mantissa.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * The characters.
+     */
+    private char[] text;
+
+    /**
+     * The number of characters in use.
+     */
+    private int length;
+
+    /**
+     * Creates a new, empty buffer.
+     */
+    public NumberTextBuffer() {
+        this.text = new char[32];
+        this.length = 0;
+    }
+
+    /**
+     * Appends characters to the buffer.
+     *
+     * @param ch     character buffer.
+     * @param start  the start index.
+     * @param length the number of characters.
+     */
+    public void append(final char[] ch, final int start, final int length) {
+        final int required = this.length + length;
+        if (required > this.text.length) {
+            this.text = Arrays.copyOf(this.text, Math.max(required, this.text.length << 1));
+        }
+        System.arraycopy(ch, start, this.text, this.length, length);
+        this.length = required;
+    }
+
+    /**
+     * Appends the characters of a string to the buffer.
+     *
+     * @param str the string.
+     */
+    public void append(final String str) {
+        final int required = this.length + str.length();
+        if (required > this.text.length) {
+            this.text = Arrays.copyOf(this.text, Math.max(required, this.text.length << 1));
+        }
+        str.getChars(0, str.length(), this.text, this.length);
+        this.length = required;
+    }
+
+    /**
+     * Returns the number of characters in the buffer.
+     *
+     * @return The number of characters.
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Removes all characters from the buffer.
+     */
+    public void clear() {
+        this.length = 0;
+    }
+
+    /**
+     * Returns the content of the buffer.
+     *
+     * @return The content.
+     */
+    @Override
+    public String toString() {
+        return new String(this.text, 0, this.length);
+    }
+
+    /**
+     * Parses the content of the buffer, ignoring leading and trailing
+     * whitespace. Plain decimal numbers whose significant digits (at most
+     * 18 are collected) form an integer below 2^53, with a decimal exponent
+     * within +/-22, are converted in place; other numbers and notations are
+     * handed to {@link Double#parseDouble(String)}.
+     *
+     * @return The value, or NaN when the content is empty, NaN or not a number.
+     */
+    public double parseDouble() {
+        int start = 0;
+        int end = this.length;
+        while (start < end && this.text[start] <= ' ') {
+            start++;
+        }
+        while (end > start && this.text[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        int pos = start;
+        boolean negative = false;
+        if (this.text[pos] == '-' || this.text[pos] == '+') {
+            negative = this.text[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean truncated = false;
+
+        // integer part
+        while (pos < end && isDigit(this.text[pos])) {
+            final int digit = this.text[pos++] - '0';
+            seenDigit = true;
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                truncated |= digit != 0;
+            }
+        }
+
+        // fraction part
+        if (pos < end && this.text[pos] == '.') {
+            pos++;
+            while (pos < end && isDigit(this.text[pos])) {
+                final int digit = this.text[pos++] - '0';
+                seenDigit = true;
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+        }
+
+        if (!seenDigit) {
+            return parseFallback(start, end);
+        }
+
+        // exponent part
+        if (pos < end && (this.text[pos] == 'e' || this.text[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (this.text[pos] == '-' || this.text[pos] == '+')) {
+                negativeExponent = this.text[pos] == '-';
+                pos++;
+            }
+            if (pos == end) {
+                return parseFallback(start, end);
+            }
+            int value = 0;
+            while (pos < end && isDigit(this.text[pos])) {
+                if (value < 10000) {
+                    value = value * 10 + (this.text[pos] - '0');
+                }
+                pos++;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (pos != end || truncated) {
+            return parseFallback(start, end);
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0d : 0.0d;
+        }
+
+        if (mantissa < MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so a single operation is correctly rounded
+            final double value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        return parseFallback(start, end);
+    }
+
+    /**
+     * Parses the content of the buffer as an ISO 8601 date or dateTime,
+     * ignoring leading and trailing whitespace. Values without a time zone
+     * are read as UTC. The common layout
+     * <code>yyyy-MM-dd[THH:mm[:ss[.fff]]][Z|+HH:mm|-HH:mm]</code> is converted
+     * in place; other notations are handed to {@link DateTimeFormatter}.
+     *
+     * @return The number of milliseconds since 1970-01-01T00:00:00Z, or NaN
+     * when the content is empty or not a date.
+     */
+    public double parseDateTime() {
+        int start = 0;
+        int end = this.length;
+        while (start < end && this.text[start] <= ' ') {
+            start++;
+        }
+        while (end > start && this.text[end - 1] <= ' ') {
+            end--;
+        }
+        if (!isDate(start, end)) {
+            return Double.NaN;
+        }
+
+        final int year = parseDigits(start, 4);
+        final int month = parseDigits(start + 5, 2);
+        final int day = parseDigits(start + 8, 2);
+        if (this.text[start + 7] != '-' || month < 1 || month > 12 || day < 1
+                || day > daysInMonth(year, month)) {
+            return parseDateTimeFallback(start, end);
+        }
+
+        int pos = start + 10;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        if (pos < end && this.text[pos] == 'T') {
+            if (pos + 6 > end || this.text[pos + 3] != ':') {
+                return parseDateTimeFallback(start, end);
+            }
+            hour = parseDigits(pos + 1, 2);
+            minute = parseDigits(pos + 4, 2);
+            pos += 6;
+            if (pos < end && this.text[pos] == ':') {
+                if (pos + 3 > end) {
+                    return parseDateTimeFallback(start, end);
+                }
+                second = parseDigits(pos + 1, 2);
+                pos += 3;
+                if (pos < end && this.text[pos] == '.') {
+                    pos++;
+                    int scale = 100;
+                    final int fractionStart = pos;
+                    while (pos < end && isDigit(this.text[pos])) {
+                        millis += (this.text[pos++] - '0') * scale;
+                        scale /= 10;
+                    }
+                    if (pos == fractionStart) {
+                        return parseDateTimeFallback(start, end);
+                    }
+                }
+            }
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+                return parseDateTimeFallback(start, end);
+            }
+        }
+
+        int offsetMinutes = 0;
+        if (pos < end && this.text[pos] == 'Z') {
+            pos++;
+        } else if (pos < end && (this.text[pos] == '+' || this.text[pos] == '-')) {
+            if (pos + 6 != end || this.text[pos + 3] != ':') {
+                return parseDateTimeFallback(start, end);
+            }
+            final int offsetHours = parseDigits(pos + 1, 2);
+            final int offsetMins = parseDigits(pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMins < 0 || offsetMins > 59) {
+                return parseDateTimeFallback(start, end);
+            }
+            offsetMinutes = offsetHours * 60 + offsetMins;
+            if (this.text[pos] == '-') {
+                offsetMinutes = -offsetMinutes;
+            }
+            pos = end;
+        }
+        if (pos != end) {
+            return parseDateTimeFallback(start, end);
+        }
+
+        final long minutes = (daysFromEpoch(year, month, day) * 24 + hour) * 60 + minute - offsetMinutes;
+        return minutes * 60000L + second * 1000L + millis;
+    }
+
+    /**
+     * Parses the content of the buffer as a date or dateTime when it starts
+     * like one (<code>yyyy-</code>), and as a number otherwise.
+     *
+     * @return The value, or NaN when the content is neither.
+     * @see #parseDateTime()
+     * @see #parseDouble()
+     */
+    public double parseDoubleOrDateTime() {
+        int start = 0;
+        while (start < this.length && this.text[start] <= ' ') {
+            start++;
+        }
+        return isDate(start, this.length) ? parseDateTime() : parseDouble();
+    }
+
+    /**
+     * Checks whether the characters start with a four digit year and a dash.
+     */
+    private boolean isDate(final int start, final int end) {
+        return end - start >= 10 && isDigit(this.text[start]) && isDigit(this.text[start + 1])
+                && isDigit(this.text[start + 2]) && isDigit(this.text[start + 3])
+                && this.text[start + 4] == '-';
+    }
+
+    /**
+     * Parses a fixed number of digits, -1 when any of them is not a digit.
+     */
+    private int parseDigits(final int start, final int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(this.text[i])) {
+                return -1;
+            }
+            value = value * 10 + (this.text[i] - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and a date of the
+     * proleptic Gregorian calendar.
+     */
+    private static long daysFromEpoch(final int year, final int month, final int day) {
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = Math.floorDiv(y, 400);
+        final long yearOfEra = y - era * 400;
+        final long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private double parseDateTimeFallback(final int start, final int end) {
+        final String value = new String(this.text, start, end - start);
+        try {
+            if (value.indexOf('T') < 0) {
+                final TemporalAccessor date = DateTimeFormatter.ISO_DATE.parse(value);
+                final ZoneOffset offset = date.isSupported(ChronoField.OFFSET_SECONDS)
+                        ? ZoneOffset.from(date) : ZoneOffset.UTC;
+                return LocalDate.from(date).atStartOfDay(offset).toInstant().toEpochMilli();
+            }
+            final TemporalAccessor dateTime = DateTimeFormatter.ISO_DATE_TIME.parseBest(value,
+                    OffsetDateTime::from, LocalDateTime::from);
+            if (dateTime instanceof OffsetDateTime) {
+                return ((OffsetDateTime) dateTime).toInstant().toEpochMilli();
+            }
+            return ((LocalDateTime) dateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (final DateTimeParseException | ArithmeticException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isDigit(final char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private double parseFallback(final int start, final int end) {
+        try {
+            return Double.parseDouble(new String(this.text, start, end - start));
+        } catch (final NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ----------------------
+ * SAXParserProvider.java
+ * ----------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides SAX parsers to the dataset readers. One parser is cached per
+ * thread; a parser is reset when it is returned so it can be reused for the
+ * next dataset read on the same thread.
+ */
+public final class SAXParserProvider {
+
+    /**
+     * The shared factory, only accessed while holding its lock.
+     */
+    private static final SAXParserFactory FACTORY = SAXParserFactory.newInstance();
+
+    /**
+     * The idle parser of the current thread, if any.
+     */
+    private static final ThreadLocal<SAXParser> IDLE_PARSER = new ThreadLocal<>();
+
+    /**
+     * Number of parsers created.
+     */
+    private static final AtomicLong CREATED = new AtomicLong();
+
+    /**
+     * Number of times an idle parser was reused.
+     */
+    private static final AtomicLong REUSED = new AtomicLong();
+
+    private SAXParserProvider() {
+    }
+
+    /**
+     * Borrows a parser, reusing the idle parser of the current thread when
+     * available. The parser must be handed back with
+     * {@link #returnParser(SAXParser)}.
+     *
+     * @return A parser.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     * @throws SAXException if a parser cannot be created.
+     */
+    public static SAXParser borrowParser()
+            throws ParserConfigurationException, SAXException {
+        final SAXParser parser = IDLE_PARSER.get();
+        if (parser != null) {
+            IDLE_PARSER.remove();
+            REUSED.incrementAndGet();
+            return parser;
+        }
+
+        CREATED.incrementAndGet();
+        synchronized (FACTORY) {
+            return FACTORY.newSAXParser();
+        }
+    }
+
+    /**
+     * Returns a parser. The parser is reset and kept as the idle parser of
+     * the current thread; it is discarded when it cannot be reset.
+     *
+     * @param parser the parser.
+     */
+    public static void returnParser(final SAXParser parser) {
+        try {
+            parser.reset();
+        } catch (final UnsupportedOperationException e) {
+            return;
+        }
+        if (IDLE_PARSER.get() == null) {
+            IDLE_PARSER.set(parser);
+        }
+    }
+
+    /**
+     * Parses a stream with a borrowed parser.
+     *
+     * @param in      the input stream.
+     * @param handler the handler receiving the SAX events.
+     * @throws IOException if there is an I/O error.
+     * @throws SAXException for parse errors.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     */
+    public static void parse(final InputStream in, final DefaultHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        final SAXParser parser = borrowParser();
+        try {
+            parser.parse(in, handler);
+        } finally {
+            returnParser(parser);
+        }
+    }
+
+    /**
+     * Returns the number of parsers created since startup.
+     *
+     * @return The number of created parsers.
+     */
+    public static long getCreatedCount() {
+        return CREATED.get();
+    }
+
+    /**
+     * Returns the number of times a cached parser was reused since startup.
+     *
+     * @return The number of reuses.
+     */
+    public static long getReusedCount() {
+        return REUSED.get();
+    }
+
+}
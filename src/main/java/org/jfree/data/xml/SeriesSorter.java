@@ -0,0 +1,131 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------
+ * SeriesSorter.java
+ * -----------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+/**
+ * Sorts the items of a series, kept as parallel primitive arrays, on their
+ * X value, as an {@link org.jfree.data.xy.XYSeries} does when its items are
+ * added, but without boxing the items. The sort is stable, so items with
+ * the same X value keep their order. Missing (NaN) X values sort last.
+ */
+public final class SeriesSorter {
+
+    private SeriesSorter() {
+    }
+
+    /**
+     * Sort the items of a series on their X value.
+     *
+     * @param valuesX the X values.
+     * @param valuesY the Y values.
+     * @return The X and Y values; the arrays themselves when already in order.
+     */
+    public static double[][] sortByX(final double[] valuesX, final double[] valuesY) {
+        if (isAscending(valuesX)) {
+            return new double[][]{valuesX, valuesY};
+        }
+        final int[] order = sortByValue(valuesX);
+        return new double[][]{reorder(valuesX, order), reorder(valuesY, order)};
+    }
+
+    /**
+     * Checks if the values are in ascending order, with NaN values last.
+     *
+     * @param values the values.
+     * @return true when in order.
+     */
+    public static boolean isAscending(final double[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (Double.compare(values[i - 1], values[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the indexes of the values in ascending order of the values,
+     * with a bottom-up merge sort that keeps the order of equal values.
+     * Missing (NaN) values sort last.
+     *
+     * @param values the values.
+     * @return The indexes.
+     */
+    public static int[] sortByValue(final double[] values) {
+        int[] order = new int[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[values.length];
+        for (int width = 1; width < order.length; width <<= 1) {
+            for (int low = 0; low < order.length; low += width << 1) {
+                final int middle = Math.min(low + width, order.length);
+                final int high = Math.min(low + (width << 1), order.length);
+                int left = low;
+                int right = middle;
+                for (int k = low; k < high; k++) {
+                    if (right >= high || (left < middle
+                            && Double.compare(values[order[left]], values[order[right]]) <= 0)) {
+                        buffer[k] = order[left++];
+                    } else {
+                        buffer[k] = order[right++];
+                    }
+                }
+            }
+            final int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the values in the given order.
+     *
+     * @param values the values.
+     * @param order  the indexes of the values.
+     * @return A new array.
+     */
+    public static double[] reorder(final double[] values, final int[] order) {
+        final double[] result = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = values[order[i]];
+        }
+        return result;
+    }
+}
@@ -35,13 +35,16 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Add auto sort option, default to ArrayXYDataset;
+ * 18-Oct-2026 : Add culling window;
+ * 18-Oct-2026 : Add item sink;
+ * 18-Oct-2026 : Sort by default, without an XYSeriesCollection;
  *
  */
 
 package org.jfree.data.xml;
 
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeriesCollection;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -54,13 +57,89 @@ public class XYDatasetHandler extends RootHandler implements XYZDatasetTags {
     /**
      * The dataset under construction.
      */
-    private XYSeriesCollection dataset;
+    private XYDataset dataset;
+
+    /**
+     * Sort the items of each series on their X value.
+     */
+    private boolean autoSort;
+
+    /**
+     * The visible window, null when not culling.
+     */
+    private CullingWindow cullingWindow;
+
+    /**
+     * The receiver of the items, null when building a dataset.
+     */
+    private XYItemSink itemSink;
 
     /**
      * Creates a new handler.
      */
     public XYDatasetHandler() {
         this.dataset = null;
+        this.autoSort = true;
+        this.cullingWindow = null;
+        this.itemSink = null;
+    }
+
+    /**
+     * Returns whether the items of each series are sorted on their X value.
+     *
+     * @return true when sorting.
+     */
+    public boolean isAutoSort() {
+        return this.autoSort;
+    }
+
+    /**
+     * Sets whether the items of each series are sorted on their X value, as
+     * by default. Otherwise the items are kept in document order. Either way
+     * the dataset is an {@link ArrayXYDataset}.
+     *
+     * @param autoSort sort the items.
+     */
+    public void setAutoSort(final boolean autoSort) {
+        this.autoSort = autoSort;
+    }
+
+    /**
+     * Returns the window outside of which items are dropped.
+     *
+     * @return The window, null when not culling.
+     */
+    public CullingWindow getCullingWindow() {
+        return this.cullingWindow;
+    }
+
+    /**
+     * Sets the window outside of which items are dropped, keeping the
+     * neighbours of visible items. Sorted series are culled once sorted.
+     *
+     * @param window the window, null to keep all items.
+     */
+    public void setCullingWindow(final CullingWindow window) {
+        this.cullingWindow = window;
+    }
+
+    /**
+     * Returns the receiver of the items.
+     *
+     * @return The sink, null when building a dataset.
+     */
+    public XYItemSink getItemSink() {
+        return this.itemSink;
+    }
+
+    /**
+     * Sets the receiver of the items, which then gets each item as it is
+     * read. The dataset stays empty, sorting and culling are not done.
+     *
+     * @param sink the sink, null to build a dataset.
+     */
+    public void setItemSink(final XYItemSink sink) {
+        this.itemSink = sink;
     }
 
     /**
@@ -77,7 +156,7 @@ public class XYDatasetHandler extends RootHandler implements XYZDatasetTags {
      *
      * @param series the dataset.
      */
-    public void setDataset(final XYSeriesCollection series) {
+    public void setDataset(final XYDataset series) {
         this.dataset = series;
     }
 
@@ -99,9 +178,11 @@ public class XYDatasetHandler extends RootHandler implements XYZDatasetTags {
         if (current != this) {
             current.startElement(namespaceURI, localName, qName, atts);
         } else if (qName.equals(XYDATASET_TAG)) {
-            this.dataset = new XYSeriesCollection();
+            this.dataset = new ArrayXYDataset();
         } else if (qName.equals(XYZDatasetTags.SERIES_TAG)) {
-            final XYSeriesHandler subhandler = new XYSeriesHandler(this);
+            final XYSeriesHandler subhandler = this.itemSink != null
+                    ? new XYSeriesHandler(this, this.itemSink)
+                    : new XYSeriesHandler(this, this.autoSort, this.cullingWindow);
             getSubHandlers().push(subhandler);
             subhandler.startElement(namespaceURI, localName, qName, atts);
         } else {
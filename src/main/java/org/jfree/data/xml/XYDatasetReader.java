@@ -35,6 +35,10 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Reuse parsers through SAXParserProvider;
+ * 18-Oct-2026 : Accept a preconfigured XYDatasetHandler;
+ * 18-Oct-2026 : Accept a preconfigured XYZDatasetHandler;
+ * 18-Oct-2026 : Read the items of a XYDataset into an item sink;
  *
  */
 
@@ -47,8 +51,6 @@ import org.jfree.data.xy.XYZDataset;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -83,13 +85,23 @@ public class XYDatasetReader {
      */
     public static XYDataset readXYDatasetFromXML(final InputStream in)
             throws IOException {
+        return readXYDatasetFromXML(in, new XYDatasetHandler());
+    }
+
+    /**
+     * Reads a {@link XYDataset} from a stream, using a preconfigured handler.
+     *
+     * @param in      the input stream.
+     * @param handler the dataset handler.
+     * @return A dataset.
+     * @throws IOException if there is an I/O error.
+     */
+    public static XYDataset readXYDatasetFromXML(final InputStream in, final XYDatasetHandler handler)
+            throws IOException {
 
         XYDataset result = null;
-        final SAXParserFactory factory = SAXParserFactory.newInstance();
         try {
-            final SAXParser parser = factory.newSAXParser();
-            final XYDatasetHandler handler = new XYDatasetHandler();
-            parser.parse(in, handler);
+            SAXParserProvider.parse(in, handler);
             result = handler.getDataset();
         } catch (final SAXException | ParserConfigurationException e) {
             LOGGER.error(e.getMessage(),e);
@@ -98,6 +110,25 @@ public class XYDatasetReader {
 
     }
 
+    /**
+     * Reads the items of a {@link XYDataset} from a stream into the item
+     * sink of the handler, see {@link XYDatasetHandler#setItemSink(XYItemSink)}.
+     *
+     * @param in      the input stream.
+     * @param handler the dataset handler, with an item sink.
+     * @throws IOException if there is an I/O error or the XML is not valid.
+     */
+    public static void readXYItemsFromXML(final InputStream in, final XYDatasetHandler handler)
+            throws IOException {
+
+        try {
+            SAXParserProvider.parse(in, handler);
+        } catch (final SAXException | ParserConfigurationException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+    }
+
     /**
      * Reads a {@link XYZDataset} from a file.
      *
@@ -120,14 +151,23 @@ public class XYDatasetReader {
      */
     public static XYZDataset readXYZDatasetFromXML(final InputStream in)
             throws IOException {
+        return readXYZDatasetFromXML(in, new XYZDatasetHandler());
+    }
 
-        XYZDataset result = null;
+    /**
+     * Reads a {@link XYZDataset} from a stream, using a preconfigured handler.
+     *
+     * @param in      the stream.
+     * @param handler the dataset handler.
+     * @return A dataset.
+     * @throws IOException if there is a problem reading the file.
+     */
+    public static XYZDataset readXYZDatasetFromXML(final InputStream in, final XYZDatasetHandler handler)
+            throws IOException {
 
-        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        XYZDataset result = null;
         try {
-            final SAXParser parser = factory.newSAXParser();
-            final XYZDatasetHandler handler = new XYZDatasetHandler();
-            parser.parse(in, handler);
+            SAXParserProvider.parse(in, handler);
             result = handler.getDataset();
         } catch (final SAXException | ParserConfigurationException e) {
             LOGGER.error(e.getMessage(),e);
@@ -0,0 +1,63 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ---------------
+ * XYItemSink.java
+ * ---------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+/**
+ * The receiver of the items of XY series as they are read, for charts that
+ * aggregate the items instead of drawing each of them. Series are numbered
+ * in the order they are added; the items of different series may arrive
+ * interleaved, as in a table with a column per series.
+ */
+public interface XYItemSink {
+
+    /**
+     * Adds a series, the next series number.
+     *
+     * @param key the series key.
+     */
+    void addSeries(Comparable key);
+
+    /**
+     * Adds an item to a series.
+     *
+     * @param series the series number, counting from 0.
+     * @param valueX the X value.
+     * @param valueY the Y value, NaN when missing.
+     */
+    void addItem(int series, double valueX, double valueY);
+}
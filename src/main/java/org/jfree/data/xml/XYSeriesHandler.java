@@ -35,19 +35,31 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Build an ArrayXYDataset unless sorting is requested;
+ * 18-Oct-2026 : Drop items outside a culling window;
+ * 18-Oct-2026 : Pass the items to an item sink;
+ * 18-Oct-2026 : Sort the primitive buffers instead of using an XYSeriesCollection;
  *
  */
 
 package org.jfree.data.xml;
 
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.data.xy.XYDataset;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.util.ArrayList;
+
 /**
- * A handler for reading a series for a XY dataset.
+ * A handler for reading a series for a XY dataset. The values are collected
+ * in primitive buffers and handed to an {@link ArrayXYDataset}. When auto
+ * sorting is requested, a series that is not in ascending X order is sorted
+ * once it is read, see {@link SeriesSorter}. Items outside a culling window
+ * are dropped: while they are read when the items are kept in document
+ * order, or else after sorting, as their neighbours are only known then.
+ * With an {@link XYItemSink} the items are passed on as they are read, and
+ * no dataset is built.
  */
 public class XYSeriesHandler extends DefaultHandler
         implements XYZDatasetTags {
@@ -57,22 +69,86 @@ public class XYSeriesHandler extends DefaultHandler
      */
     private final RootHandler root;
     /**
-     * The values.
+     * Sort the items of each series on their X value.
+     */
+    private final boolean autoSort;
+    /**
+     * The series keys.
+     */
+    private final ArrayList<Comparable> seriesKeys;
+    /**
+     * The values, one primitive buffer per series.
+     */
+    private final ArrayList<DoubleArrayBuilder> valuesX;
+    private final ArrayList<DoubleArrayBuilder> valuesY;
+    /**
+     * The visible window, null when not culling.
      */
-    private final XYSeriesCollection values;
+    private final CullingWindow window;
+    /**
+     * The filters dropping invisible items while reading, one per series
+     * when culling items in document order.
+     */
+    private final ArrayList<CullingFilter> filters;
+    /**
+     * The receiver of the items, null when building a dataset.
+     */
+    private final XYItemSink sink;
     /**
      * The series key.
      */
     private Comparable seriesKey;
 
     /**
-     * Creates a new item handler.
+     * Creates a new item handler that keeps the items in document order.
      *
      * @param root the root handler.
      */
     public XYSeriesHandler(final RootHandler root) {
+        this(root, false);
+    }
+
+    /**
+     * Creates a new item handler.
+     *
+     * @param root     the root handler.
+     * @param autoSort sort the items of each series on their X value.
+     */
+    public XYSeriesHandler(final RootHandler root, final boolean autoSort) {
+        this(root, autoSort, null);
+    }
+
+    /**
+     * Creates a new item handler.
+     *
+     * @param root     the root handler.
+     * @param autoSort sort the items of each series on their X value.
+     * @param window   the visible window, null when not culling.
+     */
+    public XYSeriesHandler(final RootHandler root, final boolean autoSort, final CullingWindow window) {
+        this(root, autoSort, window == null || !window.isBounded() ? null : window, null);
+    }
+
+    /**
+     * Creates a new item handler that passes the items to a sink.
+     *
+     * @param root the root handler.
+     * @param sink the receiver of the items.
+     */
+    public XYSeriesHandler(final RootHandler root, final XYItemSink sink) {
+        this(root, false, null, sink);
+    }
+
+    private XYSeriesHandler(final RootHandler root, final boolean autoSort, final CullingWindow window,
+                            final XYItemSink sink) {
         this.root = root;
-        this.values = new XYSeriesCollection();
+        this.autoSort = autoSort;
+        this.seriesKeys = new ArrayList<>();
+        this.valuesX = new ArrayList<>();
+        this.valuesY = new ArrayList<>();
+        this.window = window;
+        this.filters = new ArrayList<>();
+        this.sink = sink;
     }
 
     /**
@@ -81,12 +157,24 @@ public class XYSeriesHandler extends DefaultHandler
      * @param key the key.
      */
     public void setSeriesKey(final Comparable key) {
+        if (!this.filters.isEmpty()) {
+            this.filters.get(this.filters.size() - 1).flush();
+        }
         this.seriesKey = key;
-        this.values.addSeries(new XYSeries(this.seriesKey));
+        this.seriesKeys.add(this.seriesKey);
+        if (this.sink != null) {
+            this.sink.addSeries(this.seriesKey);
+        } else {
+            this.valuesX.add(new DoubleArrayBuilder());
+            this.valuesY.add(new DoubleArrayBuilder());
+            if (this.window != null && !this.autoSort) {
+                this.filters.add(new CullingFilter(this.window, false, this::addKeptItem));
+            }
+        }
     }
 
     public int getSeriesCount() {
-        return this.values.getSeriesCount();
+        return this.seriesKeys.size();
     }
 
     /**
@@ -97,7 +185,20 @@ public class XYSeriesHandler extends DefaultHandler
      */
     public void addItem(final double valueX, final double valueY) {
         final int series = getSeriesCount() - 1;
-        this.values.getSeries(series).add(valueX, valueY);
+        if (this.sink != null) {
+            this.sink.addItem(series, valueX, valueY);
+        } else if (!this.filters.isEmpty()) {
+            this.filters.get(series).addItem(valueX, valueY, Double.NaN);
+        } else {
+            this.valuesX.get(series).add(valueX);
+            this.valuesY.get(series).add(valueY);
+        }
+    }
+
+    private void addKeptItem(final double valueX, final double valueY, final double valueZ) {
+        final int series = getSeriesCount() - 1;
+        this.valuesX.get(series).add(valueX);
+        this.valuesY.get(series).add(valueY);
     }
 
     /**
@@ -106,8 +207,58 @@ public class XYSeriesHandler extends DefaultHandler
      * @param valueX the X value.
      */
     public void addItem(final double valueX) {
-        final int series = getSeriesCount() - 1;
-        this.values.getSeries(series).add(valueX, null);
+        addItem(valueX, Double.NaN);
+    }
+
+    /**
+     * Creates the dataset from the collected values.
+     *
+     * @return The dataset.
+     */
+    private XYDataset createDataset() {
+        if (!this.filters.isEmpty()) {
+            this.filters.get(this.filters.size() - 1).flush();
+        }
+        final ArrayXYDataset dataset = new ArrayXYDataset();
+        final int seriesCount = getSeriesCount();
+        for (int series = 0; series < seriesCount; series++) {
+            final Comparable key = this.seriesKeys.get(series);
+            final double[] seriesX = this.valuesX.get(series).toArray();
+            final double[] seriesY = this.valuesY.get(series).toArray();
+            if (!this.filters.isEmpty()) {
+                // report the bounds of the dropped items too
+                final CullingFilter filter = this.filters.get(series);
+                dataset.addSeries(key, seriesX, seriesY, filter.getDomainBounds(), filter.getRangeBounds());
+            } else if (this.autoSort) {
+                final double[][] sorted = SeriesSorter.sortByX(seriesX, seriesY);
+                addCulled(dataset, key, sorted[0], sorted[1]);
+            } else {
+                dataset.addSeries(key, seriesX, seriesY);
+            }
+        }
+        return dataset;
+    }
+
+    /**
+     * Adds a sorted series, without the items outside the window.
+     */
+    private void addCulled(final ArrayXYDataset dataset, final Comparable key,
+                           final double[] seriesX, final double[] seriesY) {
+        if (this.window == null) {
+            dataset.addSeries(key, seriesX, seriesY);
+            return;
+        }
+        final DoubleArrayBuilder keptX = new DoubleArrayBuilder();
+        final DoubleArrayBuilder keptY = new DoubleArrayBuilder();
+        final CullingFilter filter = new CullingFilter(this.window, false, (x, y, z) -> {
+            keptX.add(x);
+            keptY.add(y);
+        });
+        for (int item = 0; item < seriesX.length; item++) {
+            filter.addItem(seriesX[item], seriesY[item], Double.NaN);
+        }
+        filter.flush();
+        dataset.addSeries(key, keptX.toArray(), keptY.toArray(), filter.getDomainBounds(), filter.getRangeBounds());
     }
 
     /**
@@ -157,7 +308,9 @@ public class XYSeriesHandler extends DefaultHandler
                            final String qName) {
         if (this.root instanceof XYDatasetHandler) {
             final XYDatasetHandler handler = (XYDatasetHandler) this.root;
-            handler.setDataset(values);
+            if (this.sink == null) {
+                handler.setDataset(createDataset());
+            }
             this.root.popSubHandler();
         }
 
@@ -35,12 +35,13 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Add culling window;
  *
  */
 
 package org.jfree.data.xml;
 
-import org.jfree.data.xy.DefaultXYZDataset;
+import org.jfree.data.Range;
 import org.jfree.data.xy.XYZDataset;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -54,13 +55,38 @@ public class XYZDatasetHandler extends RootHandler implements XYZDatasetTags {
     /**
      * The dataset under construction.
      */
-    private DefaultXYZDataset dataset;
+    private BoundedXYZDataset dataset;
+
+    /**
+     * The visible window, null when not culling.
+     */
+    private CullingWindow cullingWindow;
 
     /**
      * Creates a new handler.
      */
     public XYZDatasetHandler() {
         this.dataset = null;
+        this.cullingWindow = null;
+    }
+
+    /**
+     * Returns the window outside of which items are dropped.
+     *
+     * @return The window, null when not culling.
+     */
+    public CullingWindow getCullingWindow() {
+        return this.cullingWindow;
+    }
+
+    /**
+     * Sets the window outside of which bubbles are dropped, keeping the
+     * neighbours of visible bubbles.
+     *
+     * @param window the window, null to keep all items.
+     */
+    public void setCullingWindow(final CullingWindow window) {
+        this.cullingWindow = window;
     }
 
     /**
@@ -80,8 +106,23 @@ public class XYZDatasetHandler extends RootHandler implements XYZDatasetTags {
      * @param value     the value.
      */
     public void addSeries(final Comparable seriesKey, final double[] valuesX, final double[] valuesY, final double[] valuesZ) {
+        addSeries(seriesKey, valuesX, valuesY, valuesZ, null, null);
+    }
+
+    /**
+     * Adds a series of which items may have been dropped.
+     *
+     * @param seriesKey    the series key.
+     * @param valuesX      the X values.
+     * @param valuesY      the Y values.
+     * @param valuesZ      the Z values.
+     * @param domainBounds the bounds of the X values before culling, null when unknown.
+     * @param rangeBounds  the bounds of the Y values before culling, null when unknown.
+     */
+    public void addSeries(final Comparable seriesKey, final double[] valuesX, final double[] valuesY, final double[] valuesZ,
+                          final Range domainBounds, final Range rangeBounds) {
         final double[][] values = new double[][]{valuesX, valuesY, valuesZ};
-        this.dataset.addSeries(seriesKey, values);
+        this.dataset.addSeries(seriesKey, values, domainBounds, rangeBounds);
     }
 
     /**
@@ -103,9 +144,9 @@ public class XYZDatasetHandler extends RootHandler implements XYZDatasetTags {
         if (current != this) {
             current.startElement(namespaceURI, localName, qName, atts);
         } else if (qName.equals(XYZDatasetTags.XYZDATASET_TAG)) {
-            this.dataset = new DefaultXYZDataset();
+            this.dataset = new BoundedXYZDataset();
         } else if (qName.equals(XYZDatasetTags.SERIES_TAG)) {
-            final XYZSeriesHandler subhandler = new XYZSeriesHandler(this);
+            final XYZSeriesHandler subhandler = new XYZSeriesHandler(this, this.cullingWindow);
             getSubHandlers().push(subhandler);
             subhandler.startElement(namespaceURI, localName, qName, atts);
         } else {
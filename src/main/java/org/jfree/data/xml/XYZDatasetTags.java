@@ -35,6 +35,7 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Add tags for the compact formats;
  *
  */
 
@@ -100,4 +101,25 @@ public interface XYZDatasetTags {
      */
     String Z_VALUE_TAG = "Z";
 
+    /**
+     * The 'Values' element name, holding all items of a series as a
+     * whitespace or comma separated list of numbers.
+     */
+    String VALUES_TAG = "Values";
+
+    /**
+     * The 'x' attribute name of a compact 'Item' element.
+     */
+    String X_ATTRIBUTE = "x";
+
+    /**
+     * The 'y' attribute name of a compact 'Item' element.
+     */
+    String Y_ATTRIBUTE = "y";
+
+    /**
+     * The 'z' attribute name of a compact 'Item' element.
+     */
+    String Z_ATTRIBUTE = "z";
+
 }
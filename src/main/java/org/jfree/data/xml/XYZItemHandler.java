@@ -35,6 +35,10 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Keep values as primitives (NaN when missing);
+ * 18-Oct-2026 : Read compact items and Values blocks, no longer repeat
+ *               the last item at the end of a series;
+ * 18-Oct-2026 : Read ISO dateTime X values as epoch milliseconds;
  *
  */
 
@@ -60,19 +64,24 @@ public class XYZItemHandler extends DefaultHandler implements XYZDatasetTags {
     private final DefaultHandler parent;
 
     /**
-     * The valueX.
+     * The valueX, NaN when missing.
      */
-    private Number valueX;
+    private double valueX;
 
     /**
-     * The valueY.
+     * The valueY, NaN when missing.
      */
-    private Number valueY;
+    private double valueY;
 
     /**
-     * The valueZ.
+     * The valueZ, NaN when missing.
      */
-    private Number valueZ;
+    private double valueZ;
+
+    /**
+     * Text buffer shared by the value handlers of this item handler.
+     */
+    private final NumberTextBuffer textBuffer;
 
     /**
      * Creates a new item handler.
@@ -83,9 +92,19 @@ public class XYZItemHandler extends DefaultHandler implements XYZDatasetTags {
     public XYZItemHandler(final RootHandler root, final DefaultHandler parent) {
         this.root = root;
         this.parent = parent;
-        this.valueX = null;
-        this.valueY = null;
-        this.valueZ = null;
+        this.valueX = Double.NaN;
+        this.valueY = Double.NaN;
+        this.valueZ = Double.NaN;
+        this.textBuffer = new NumberTextBuffer();
+    }
+
+    /**
+     * Returns the text buffer to be reused by the value handlers.
+     *
+     * @return The text buffer.
+     */
+    NumberTextBuffer getTextBuffer() {
+        return this.textBuffer;
     }
 
     /**
@@ -94,47 +113,99 @@ public class XYZItemHandler extends DefaultHandler implements XYZDatasetTags {
      * @return The valueX.
      */
     public Number getXValue() {
-        return this.valueX;
+        return toNumber(this.valueX);
     }
 
     public void setXValue(final Number valueX) {
+        this.valueX = toDouble(valueX);
+    }
+
+    /**
+     * Sets the X value without boxing.
+     *
+     * @param valueX the value, NaN when missing.
+     */
+    public void setXValue(final double valueX) {
         this.valueX = valueX;
     }
 
     public Number getYValue() {
-        return this.valueY;
+        return toNumber(this.valueY);
     }
 
     public void setYValue(final Number valueY) {
+        this.valueY = toDouble(valueY);
+    }
+
+    /**
+     * Sets the Y value without boxing.
+     *
+     * @param valueY the value, NaN when missing.
+     */
+    public void setYValue(final double valueY) {
         this.valueY = valueY;
     }
 
     public Number getZValue() {
-        return this.valueZ;
+        return toNumber(this.valueZ);
     }
 
     public void setZValue(final Number valueZ) {
+        this.valueZ = toDouble(valueZ);
+    }
+
+    /**
+     * Sets the Z value without boxing.
+     *
+     * @param valueZ the value, NaN when missing.
+     */
+    public void setZValue(final double valueZ) {
         this.valueZ = valueZ;
     }
 
+    private static Number toNumber(final double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static double toDouble(final Number value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
     public void addSeriesItem() {
         if (this.parent instanceof XYSeriesHandler) {
             final XYSeriesHandler handler = (XYSeriesHandler) this.parent;
-            if (this.valueY != null) {
-                handler.addItem((double) this.valueX, (double) this.valueY);
+            if (!Double.isNaN(this.valueY)) {
+                handler.addItem(this.valueX, this.valueY);
             } else {
-                handler.addItem((double) this.valueX);
+                handler.addItem(this.valueX);
             }
             //System.out.println("addSeriesItem: X: " + this.valueX + " Y: " + this.valueY);
         } else if (this.parent instanceof XYZSeriesHandler) {
             final XYZSeriesHandler handler = (XYZSeriesHandler) this.parent;
-            handler.addItem((double) this.valueX, (double) this.valueY, (double) this.valueZ);
+            handler.addItem(this.valueX, this.valueY, this.valueZ);
             //System.out.println("addSeriesItem: X: " + this.valueX + " Y: " + this.valueY + " Z: " + this.valueZ);
         }
     }
 
     /**
-     * The start of an element.
+     * Parses an attribute value, NaN when the attribute is missing. The X
+     * value may also be an ISO dateTime.
+     */
+    private double parseAttribute(final Attributes atts, final String name) {
+        final String value = atts.getValue(name);
+        if (value == null) {
+            return Double.NaN;
+        }
+        this.textBuffer.clear();
+        this.textBuffer.append(value);
+        return X_ATTRIBUTE.equals(name)
+                ? this.textBuffer.parseDoubleOrDateTime()
+                : this.textBuffer.parseDouble();
+    }
+
+    /**
+     * The start of an element. An 'Item' with an 'x' attribute carries its
+     * values in attributes and is handled without a value handler.
      *
      * @param namespaceURI the namespace.
      * @param localName    the element name.
@@ -147,19 +218,27 @@ public class XYZItemHandler extends DefaultHandler implements XYZDatasetTags {
                              final String localName,
                              final String qName,
                              final Attributes atts) throws SAXException {
-        if (qName.equals(ITEM_TAG) || qName.equals(X_VALUE_TAG) || qName.equals(Y_VALUE_TAG) || qName.equals(Z_VALUE_TAG)) {
+        if (qName.equals(ITEM_TAG) && atts.getValue(X_ATTRIBUTE) != null) {
+            this.valueX = parseAttribute(atts, X_ATTRIBUTE);
+            this.valueY = parseAttribute(atts, Y_ATTRIBUTE);
+            this.valueZ = parseAttribute(atts, Z_ATTRIBUTE);
+        } else if (qName.equals(VALUES_TAG)) {
+            final XYZValuesHandler subhandler = new XYZValuesHandler(this.root, this);
+            this.root.pushSubHandler(subhandler);
+        } else if (qName.equals(ITEM_TAG) || qName.equals(X_VALUE_TAG) || qName.equals(Y_VALUE_TAG) || qName.equals(Z_VALUE_TAG)) {
             final XYZValueHandler subhandler = new XYZValueHandler(this.root, this);
             this.root.pushSubHandler(subhandler);
         } else {
             throw new SAXException(
-                    "Expected <Item>, <X>, <Y>, or <Z>...found " + qName
+                    "Expected <Item>, <Values>, <X>, <Y>, or <Z>...found " + qName
             );
         }
 
     }
 
     /**
-     * The end of an element.
+     * The end of an element: either a compact 'Item', or the end of the
+     * series.
      *
      * @param namespaceURI the namespace.
      * @param localName    the element name.
@@ -180,8 +259,9 @@ public class XYZItemHandler extends DefaultHandler implements XYZDatasetTags {
         //    this.root.popSubHandler();
         //}
         //else
-        if (this.parent instanceof XYSeriesHandler || this.parent instanceof XYZSeriesHandler) {
+        if (qName.equals(ITEM_TAG)) {
             addSeriesItem();
+        } else if (this.parent instanceof XYSeriesHandler || this.parent instanceof XYZSeriesHandler) {
             this.root.popSubHandler();
         }
     }
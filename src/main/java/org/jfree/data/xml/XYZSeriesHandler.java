@@ -35,6 +35,8 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Store values in primitive buffers;
+ * 18-Oct-2026 : Drop items outside a culling window;
  *
  */
 
@@ -47,7 +49,8 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.util.ArrayList;
 
 /**
- * A handler for reading a series for a XYZ dataset.
+ * A handler for reading a series for a XYZ dataset. Bubbles outside a
+ * culling window are dropped.
  */
 public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
 
@@ -62,11 +65,21 @@ public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
     private final ArrayList<Comparable> seriesKeys;
 
     /**
-     * The values.
+     * The values, one primitive buffer per series.
      */
-    private final ArrayList<ArrayList<Double>> valuesX;
-    private final ArrayList<ArrayList<Double>> valuesY;
-    private final ArrayList<ArrayList<Double>> valuesZ;
+    private final ArrayList<DoubleArrayBuilder> valuesX;
+    private final ArrayList<DoubleArrayBuilder> valuesY;
+    private final ArrayList<DoubleArrayBuilder> valuesZ;
+
+    /**
+     * The visible window, null when not culling.
+     */
+    private final CullingWindow window;
+
+    /**
+     * The filters dropping invisible items, one per series when culling.
+     */
+    private final ArrayList<CullingFilter> filters;
 
     /**
      * Creates a new item handler.
@@ -74,11 +87,23 @@ public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
      * @param root the root handler.
      */
     public XYZSeriesHandler(final RootHandler root) {
+        this(root, null);
+    }
+
+    /**
+     * Creates a new item handler.
+     *
+     * @param root   the root handler.
+     * @param window the visible window, null when not culling.
+     */
+    public XYZSeriesHandler(final RootHandler root, final CullingWindow window) {
         this.root = root;
         this.seriesKeys = new ArrayList<>();
         this.valuesX = new ArrayList<>();
         this.valuesY = new ArrayList<>();
         this.valuesZ = new ArrayList<>();
+        this.window = window == null || !window.isBounded() ? null : window;
+        this.filters = new ArrayList<>();
     }
 
     /**
@@ -87,10 +112,16 @@ public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
      * @param key the key.
      */
     public void setSeriesKey(final Comparable key) {
+        if (!this.filters.isEmpty()) {
+            this.filters.get(this.filters.size() - 1).flush();
+        }
         this.seriesKeys.add(key);
-        this.valuesX.add(new ArrayList<>());
-        this.valuesY.add(new ArrayList<>());
-        this.valuesZ.add(new ArrayList<>());
+        this.valuesX.add(new DoubleArrayBuilder());
+        this.valuesY.add(new DoubleArrayBuilder());
+        this.valuesZ.add(new DoubleArrayBuilder());
+        if (this.window != null) {
+            this.filters.add(new CullingFilter(this.window, true, this::addKeptItem));
+        }
     }
 
 
@@ -117,6 +148,14 @@ public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
      * @param valueZ the Z value.
      */
     public void addItem(final double valueX, final double valueY, final double valueZ) {
+        if (this.window != null) {
+            this.filters.get(getSeriesCount() - 1).addItem(valueX, valueY, valueZ);
+        } else {
+            addKeptItem(valueX, valueY, valueZ);
+        }
+    }
+
+    private void addKeptItem(final double valueX, final double valueY, final double valueZ) {
         final int series = getSeriesCount() - 1;
         this.valuesX.get(series).add(valueX);
         this.valuesY.get(series).add(valueY);
@@ -171,19 +210,18 @@ public class XYZSeriesHandler extends DefaultHandler implements XYZDatasetTags {
 
         if (this.root instanceof XYZDatasetHandler) {
             final XYZDatasetHandler handler = (XYZDatasetHandler) this.root;
+            if (!this.filters.isEmpty()) {
+                this.filters.get(this.filters.size() - 1).flush();
+            }
             final int seriesCount = getSeriesCount();
-            final int itemCount = this.valuesX.get(0).size();
             for (int series = 0; series < seriesCount; series++) {
-                final double[] valuesX = new double[itemCount];
-                final double[] valuesY = new double[itemCount];
-                final double[] valuesZ = new double[itemCount];
-                for (int key = 0; key < itemCount; key++) {
-                    valuesX[key] = this.valuesX.get(series).get(key);
-                    valuesY[key] = this.valuesY.get(series).get(key);
-                    valuesZ[key] = this.valuesZ.get(series).get(key);
-                    //System.out.println("XYZSeriesHandler::values: " + getSeriesKey(series) + ":" + this.valuesX.get(series).get(key) + ":" + this.valuesY.get(series).get(key) + ":" + this.valuesZ.get(series).get(key));
-                }
-                handler.addSeries(getSeriesKey(series), valuesX, valuesY, valuesZ);
+                final CullingFilter filter = this.window == null ? null : this.filters.get(series);
+                handler.addSeries(getSeriesKey(series),
+                        this.valuesX.get(series).toArray(),
+                        this.valuesY.get(series).toArray(),
+                        this.valuesZ.get(series).toArray(),
+                        filter == null ? null : filter.getDomainBounds(),
+                        filter == null ? null : filter.getRangeBounds());
             }
             this.root.popSubHandler();
         }
@@ -35,6 +35,8 @@
  * Changes
  * -------
  * 27-Apr-2014 : Version 1 (ljo);
+ * 18-Oct-2026 : Parse values from a reusable character buffer;
+ * 18-Oct-2026 : Read ISO dateTime X values as epoch milliseconds;
  *
  */
 
@@ -60,9 +62,10 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
     private final XYZItemHandler itemHandler;
 
     /**
-     * Storage for the current CDATA
+     * Storage for the current CDATA, shared with the other value handlers
+     * of the item handler.
      */
-    private final StringBuffer currentText;
+    private final NumberTextBuffer currentText;
 
     /**
      * Creates a new XYZ value handler.
@@ -73,7 +76,8 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
     public XYZValueHandler(final RootHandler rootHandler, final XYZItemHandler itemHandler) {
         this.rootHandler = rootHandler;
         this.itemHandler = itemHandler;
-        this.currentText = new StringBuffer();
+        this.currentText = itemHandler.getTextBuffer();
+        this.currentText.clear();
     }
 
     /**
@@ -111,17 +115,10 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
     public void endElement(final String namespaceURI,
                            final String localName,
                            final String qName) throws SAXException {
-        Double value;
-        try {
-            value = Double.valueOf(getCurrentText());
-            if (value.isNaN()) {
-                value = null;
-            }
-        } catch (final NumberFormatException e1) {
-            value = null;
-        }
         if ((qName.equals(Z_VALUE_TAG) && rootHandler instanceof XYZDatasetHandler)
                 || (qName.equals(Y_VALUE_TAG) && rootHandler instanceof XYDatasetHandler)) {
+            // NaN marks a missing value
+            final double value = this.currentText.parseDouble();
             if (qName.equals(Z_VALUE_TAG)) {
                 this.itemHandler.setZValue(value);
             } else if (qName.equals(Y_VALUE_TAG)) {
@@ -132,6 +129,9 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
             //    new XYZValueHandler(this.rootHandler, this.itemHandler)
             //);
         } else if (qName.equals(X_VALUE_TAG) || (qName.equals(Y_VALUE_TAG) && rootHandler instanceof XYZDatasetHandler)) {
+            final double value = qName.equals(X_VALUE_TAG)
+                    ? this.currentText.parseDoubleOrDateTime()
+                    : this.currentText.parseDouble();
             if (qName.equals(X_VALUE_TAG)) {
                 this.itemHandler.setXValue(value);
             } else if (qName.equals(Y_VALUE_TAG)) {
@@ -156,9 +156,7 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
      */
     @Override
     public void characters(final char[] ch, final int start, final int length) {
-        if (this.currentText != null) {
-            this.currentText.append(String.copyValueOf(ch, start, length));
-        }
+        this.currentText.append(ch, start, length);
     }
 
     /**
@@ -174,7 +172,7 @@ public class XYZValueHandler extends DefaultHandler implements XYZDatasetTags {
      * Removes all text from the textbuffer at the end of a CDATA section.
      */
     protected void clearCurrentText() {
-        this.currentText.delete(0, this.currentText.length());
+        this.currentText.clear();
     }
 
 }
@@ -0,0 +1,191 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * ------------------
+ * XYZValuesHandler.java
+ * ------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A handler for reading a 'Values' element, which holds all items of a
+ * series as numbers separated by whitespace and/or commas, e.g.
+ * <code>&lt;Values&gt;1 1.5, 2 2.5&lt;/Values&gt;</code>. Each group of two
+ * (XY) or three (XYZ) consecutive numbers forms one item; NaN marks a
+ * missing value. The X value may also be an ISO dateTime, read as epoch
+ * milliseconds. The numbers are tokenized while the characters stream in.
+ */
+public class XYZValuesHandler extends DefaultHandler implements XYZDatasetTags {
+
+    /**
+     * The root handler.
+     */
+    private final RootHandler rootHandler;
+
+    /**
+     * The item handler.
+     */
+    private final XYZItemHandler itemHandler;
+
+    /**
+     * The number of values per item.
+     */
+    private final int dimension;
+
+    /**
+     * Storage for the current number.
+     */
+    private final NumberTextBuffer currentText;
+
+    /**
+     * Position of the next value within the current item.
+     */
+    private int position;
+
+    /**
+     * Creates a new values handler.
+     *
+     * @param rootHandler the root handler.
+     * @param itemHandler the item handler.
+     */
+    public XYZValuesHandler(final RootHandler rootHandler, final XYZItemHandler itemHandler) {
+        this.rootHandler = rootHandler;
+        this.itemHandler = itemHandler;
+        this.dimension = rootHandler instanceof XYZDatasetHandler ? 3 : 2;
+        this.currentText = itemHandler.getTextBuffer();
+        this.currentText.clear();
+        this.position = 0;
+    }
+
+    /**
+     * The start of an element.
+     *
+     * @param namespaceURI the namespace.
+     * @param localName    the element name.
+     * @param qName        the element name.
+     * @param atts         the attributes.
+     * @throws SAXException for errors.
+     */
+    @Override
+    public void startElement(final String namespaceURI,
+                             final String localName,
+                             final String qName,
+                             final Attributes atts) throws SAXException {
+        throw new SAXException("Expecting text content in <Values> but found " + qName);
+    }
+
+    /**
+     * The end of an element.
+     *
+     * @param namespaceURI the namespace.
+     * @param localName    the element name.
+     * @param qName        the element name.
+     * @throws SAXException for errors.
+     */
+    @Override
+    public void endElement(final String namespaceURI,
+                           final String localName,
+                           final String qName) throws SAXException {
+        if (!qName.equals(VALUES_TAG)) {
+            throw new SAXException("Expecting </Values> but found " + qName);
+        }
+        endToken();
+        if (this.position != 0) {
+            throw new SAXException("Incomplete item at the end of <Values>, expecting "
+                    + this.dimension + " numbers per item");
+        }
+        this.rootHandler.popSubHandler();
+    }
+
+    /**
+     * Receives some (or all) of the text in the current element.
+     *
+     * @param ch     character buffer.
+     * @param start  the start index.
+     * @param length the length of the valid character data.
+     */
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+        final int end = start + length;
+        int tokenStart = start;
+        for (int i = start; i < end; i++) {
+            final char c = ch[i];
+            if (c <= ' ' || c == ',') {
+                if (i > tokenStart) {
+                    this.currentText.append(ch, tokenStart, i - tokenStart);
+                }
+                endToken();
+                tokenStart = i + 1;
+            }
+        }
+        if (end > tokenStart) {
+            // the number may continue in the next chunk
+            this.currentText.append(ch, tokenStart, end - tokenStart);
+        }
+    }
+
+    /**
+     * Completes the current number, if any, and adds the item once all its
+     * values are known.
+     */
+    private void endToken() {
+        if (this.currentText.length() == 0) {
+            return;
+        }
+        final double value = this.position == 0
+                ? this.currentText.parseDoubleOrDateTime()
+                : this.currentText.parseDouble();
+        this.currentText.clear();
+        switch (this.position) {
+            case 0:
+                this.itemHandler.setXValue(value);
+                break;
+            case 1:
+                this.itemHandler.setYValue(value);
+                break;
+            default:
+                this.itemHandler.setZValue(value);
+                break;
+        }
+        this.position++;
+        if (this.position == this.dimension) {
+            this.itemHandler.addSeriesItem();
+            this.position = 0;
+        }
+    }
+
+}
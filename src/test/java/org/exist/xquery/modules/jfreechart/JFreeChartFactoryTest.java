@@ -0,0 +1,81 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart;
+
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.DateAxis;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.IntervalXYDataset;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link JFreeChartFactory}.
+ */
+public class JFreeChartFactoryTest {
+
+    /**
+     * The bars of a XYBarChart are drawn from sorted items, also when the
+     * items are otherwise kept in document order.
+     */
+    @Test
+    public void xyBarChartSortsItemsWithoutAutoSort() throws Exception {
+        final JFreeChart chart = JFreeChartFactory.createJFreeChart("XYBarChart",
+                TestConfigurations.parse("<autoSort>false</autoSort><dataFormat>csv</dataFormat>"),
+                new CsvDatasetSource(new StringReader("x,a\n40,4\n10,1\n30,3\n20,2\n"), ','));
+        final IntervalXYDataset dataset = (IntervalXYDataset) chart.getXYPlot().getDataset();
+        assertEquals(DomainOrder.ASCENDING, dataset.getDomainOrder());
+        for (int item = 0; item < dataset.getItemCount(0); item++) {
+            assertEquals(10.0 * (item + 1), dataset.getXValue(0, item), 0.0);
+            assertEquals(item + 1, dataset.getYValue(0, item), 0.0);
+        }
+    }
+
+    @Test
+    public void timeSeriesChartAppliesDomainBoundsAsDateTimes() throws Exception {
+        final JFreeChart chart = JFreeChartFactory.createJFreeChart("TimeSeriesChart",
+                TestConfigurations.parse("<dataFormat>csv</dataFormat>"
+                        + "<domainLowerBound>2026-01-02</domainLowerBound>"
+                        + "<domainUpperBound>2026-01-05T12:00:00Z</domainUpperBound>"),
+                new CsvDatasetSource(new StringReader("time,a\n2026-01-01,1\n2026-01-03,2\n2026-01-09,3\n"), ','));
+        final ValueAxis domainAxis = chart.getXYPlot().getDomainAxis();
+        assertTrue(domainAxis instanceof DateAxis);
+        assertEquals(Instant.parse("2026-01-02T00:00:00Z").toEpochMilli(), domainAxis.getLowerBound(), 0.0);
+        assertEquals(Instant.parse("2026-01-05T12:00:00Z").toEpochMilli(), domainAxis.getUpperBound(), 0.0);
+    }
+
+    @Test
+    public void timeSeriesChartAppliesDomainBoundsAsMilliseconds() throws Exception {
+        final JFreeChart chart = JFreeChartFactory.createJFreeChart("TimeSeriesChart",
+                TestConfigurations.parse("<dataFormat>csv</dataFormat>"
+                        + "<domainLowerBound>86400000</domainLowerBound><domainUpperBound>172800000</domainUpperBound>"),
+                new CsvDatasetSource(new StringReader("time,a\n1970-01-01,1\n1970-01-04,2\n"), ','));
+        assertEquals(86_400_000, chart.getXYPlot().getDomainAxis().getLowerBound(), 0.0);
+        assertEquals(172_800_000, chart.getXYPlot().getDomainAxis().getUpperBound(), 0.0);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart;
+
+import org.exist.xquery.XPathException;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Creates the chart configuration of tests from the options as XML text.
+ */
+public final class TestConfigurations {
+
+    private TestConfigurations() {
+    }
+
+    /**
+     * Parse a configuration.
+     *
+     * @param options The option elements, like {@code <width>400</width>}
+     * @return The configuration
+     */
+    public static Configuration parse(final String options)
+            throws XPathException, IOException, SAXException, ParserConfigurationException {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Configuration config = new Configuration();
+        config.parse(factory.newDocumentBuilder().parse(new ByteArrayInputStream(
+                ("<configuration>" + options + "</configuration>").getBytes(StandardCharsets.UTF_8)))
+                .getDocumentElement());
+        return config;
+    }
+}
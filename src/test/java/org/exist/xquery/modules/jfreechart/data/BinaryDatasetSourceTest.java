@@ -0,0 +1,123 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BinaryDatasetSource}.
+ */
+public class BinaryDatasetSourceTest {
+
+    @Test
+    public void readXYDataset() throws IOException {
+        final ByteBuffer data = allocate(1024);
+        data.putInt(2);
+        putHeader(data, "a", 2);
+        putHeader(data, "b", 1);
+        data.putDouble(1).putDouble(2).putDouble(10).putDouble(20);
+        data.putDouble(3).putDouble(30);
+
+        final XYDataset dataset = source(data).readXYDataset(new Configuration(), null);
+
+        assertEquals(2, dataset.getSeriesCount());
+        assertEquals("a", dataset.getSeriesKey(0));
+        assertEquals(2, dataset.getItemCount(0));
+        assertEquals(20.0, dataset.getYValue(0, 1), 0.0);
+        assertEquals(1, dataset.getItemCount(1));
+        assertEquals(30.0, dataset.getYValue(1, 0), 0.0);
+    }
+
+    @Test
+    public void readLargeXYZDataset() throws IOException {
+        final int count = 100_000;
+        final ByteBuffer data = allocate(64 + count * 3 * Double.BYTES);
+        data.putInt(1);
+        putHeader(data, "large", count);
+        for (int axis = 1; axis <= 3; axis++) {
+            for (int item = 0; item < count; item++) {
+                data.putDouble(item * axis);
+            }
+        }
+
+        final XYZDataset dataset = source(data).readXYZDataset(new Configuration(), null);
+
+        assertEquals(count, dataset.getItemCount(0));
+        assertEquals((count - 1) * 3.0, dataset.getZValue(0, count - 1), 0.0);
+    }
+
+    /**
+     * A few bytes declaring the largest point count fail as truncated,
+     * without allocating the declared arrays.
+     */
+    @Test(expected = EOFException.class)
+    public void truncatedPointsAreNotAllocated() throws IOException {
+        final ByteBuffer data = allocate(64);
+        data.putInt(1);
+        putHeader(data, "huge", Integer.MAX_VALUE);
+        data.putDouble(1);
+
+        source(data).readXYZDataset(new Configuration(), null);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedSeriesAreNotAllocated() throws IOException {
+        final ByteBuffer data = allocate(64);
+        data.putInt(Integer.MAX_VALUE);
+        putHeader(data, "a", 0);
+
+        source(data).readXYDataset(new Configuration(), null);
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeCount() throws IOException {
+        final ByteBuffer data = allocate(64);
+        data.putInt(1);
+        putHeader(data, "a", -1);
+
+        source(data).readXYDataset(new Configuration(), null);
+    }
+
+    private static ByteBuffer allocate(final int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putHeader(final ByteBuffer data, final String name, final int count) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        data.putInt(bytes.length).put(bytes).putInt(count);
+    }
+
+    private static BinaryDatasetSource source(final ByteBuffer data) {
+        return new BinaryDatasetSource(new ByteArrayInputStream(data.array(), 0, data.position()));
+    }
+}
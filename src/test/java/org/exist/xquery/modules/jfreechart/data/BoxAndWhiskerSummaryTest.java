@@ -0,0 +1,87 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.jfree.data.statistics.BoxAndWhiskerCategoryDataset;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BoxAndWhiskerSummary}, sketching the values as they are read.
+ */
+public class BoxAndWhiskerSummaryTest {
+
+    @Test
+    public void seriesWithTheSameNameAreOneCategory() throws Exception {
+        final StringBuilder text = new StringBuilder("x,a,b,a\n");
+        final List<Double> valuesA = new ArrayList<>();
+        final List<Double> valuesB = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            final double first = (i * 37) % 61;
+            final double second = i == 50 ? 1000 : i;
+            final double third = -(i % 7);
+            text.append(i).append(',').append(first).append(',').append(second).append(',').append(third).append('\n');
+            valuesA.add(first);
+            valuesA.add(third);
+            valuesB.add(second);
+        }
+
+        final BoxAndWhiskerCategoryDataset dataset = BoxAndWhiskerSummary.create(
+                new CsvDatasetSource(new StringReader(text.toString()), ','), new Configuration());
+
+        assertEquals(2, dataset.getColumnCount());
+        assertEquals("a", dataset.getColumnKey(0));
+        assertEquals("b", dataset.getColumnKey(1));
+        assertItem(valuesA, dataset, 0);
+        assertItem(valuesB, dataset, 1);
+        assertEquals(1, dataset.getOutliers(0, 1).size());
+    }
+
+    /**
+     * The values fit the sketch, so the statistics are exact.
+     */
+    private static void assertItem(final List<Double> values, final BoxAndWhiskerCategoryDataset dataset,
+                                   final int column) {
+        Collections.sort(values);
+        double sum = 0;
+        for (final double value : values) {
+            sum += value;
+        }
+        assertEquals(sum / values.size(), dataset.getMeanValue(0, column).doubleValue(), 1e-9);
+        assertEquals(quantile(values, 0.25), dataset.getQ1Value(0, column).doubleValue(), 1e-9);
+        assertEquals(quantile(values, 0.5), dataset.getMedianValue(0, column).doubleValue(), 1e-9);
+        assertEquals(quantile(values, 0.75), dataset.getQ3Value(0, column).doubleValue(), 1e-9);
+    }
+
+    private static double quantile(final List<Double> sorted, final double q) {
+        final double position = q * (sorted.size() - 1);
+        final int index = (int) position;
+        final double value = sorted.get(index);
+        return index + 1 < sorted.size() ? value + (position - index) * (sorted.get(index + 1) - value) : value;
+    }
+}
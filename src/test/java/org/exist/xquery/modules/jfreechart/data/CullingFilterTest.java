@@ -0,0 +1,230 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.CullingFilter;
+import org.jfree.data.xml.CullingWindow;
+import org.jfree.data.xml.XYItemSink;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYZDataset;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CullingFilter} as used while reading. The charts of the
+ * culled datasets are compared pixel for pixel with the charts of all
+ * items, drawn without antialiasing.
+ */
+public class CullingFilterTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 300;
+    private static final int POINTS = 20_000;
+
+    private static final String DOMAIN_BOUNDS = "<domainLowerBound>5000</domainLowerBound>"
+            + "<domainUpperBound>6500</domainUpperBound>";
+    private static final String BOUNDS = DOMAIN_BOUNDS
+            + "<rangeLowerBound>-20</rangeLowerBound><rangeUpperBound>20</rangeUpperBound>";
+
+    @Test
+    public void lineChartWithBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", BOUNDS, randomWalk(false), true);
+    }
+
+    @Test
+    public void lineChartWithoutBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", "", randomWalk(false), false);
+    }
+
+    @Test
+    public void areaChartWithBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYAreaChart", DOMAIN_BOUNDS, randomWalk(false), true);
+    }
+
+    @Test
+    public void areaChartWithoutBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYAreaChart", "", randomWalk(false), false);
+    }
+
+    @Test
+    public void scatterPlotWithBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("ScatterPlot", BOUNDS, randomWalk(false), true);
+    }
+
+    @Test
+    public void scatterPlotWithoutBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("ScatterPlot", "", randomWalk(false), false);
+    }
+
+    @Test
+    public void shuffledInputIsSortedAndPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", BOUNDS, randomWalk(true), true);
+    }
+
+    @Test
+    public void unsortedLineChartIsPixelIdentical() throws Exception {
+        // the lines between the items in document order cross the window
+        assertPixelIdentical("XYLineChart", BOUNDS + "<autoSort>false</autoSort>", randomWalk(true), true);
+    }
+
+    @Test
+    public void unsortedScatterPlotIsPixelIdentical() throws Exception {
+        assertPixelIdentical("ScatterPlot", BOUNDS + "<autoSort>false</autoSort>", randomWalk(true), true);
+    }
+
+    @Test
+    public void lineCrossingTheWindowIsKept() throws Exception {
+        final String csv = "x,a\n-3000,50\n-2000,-50\n-1000,-10\n1000,10\n2000,50\n3000,-50\n";
+        final String options = "<domainLowerBound>0</domainLowerBound><domainUpperBound>100</domainUpperBound>"
+                + "<rangeLowerBound>-20</rangeLowerBound><rangeUpperBound>20</rangeUpperBound>";
+        final JFreeChart culled = assertPixelIdentical("XYLineChart", options, csv, true);
+
+        final XYDataset dataset = culled.getXYPlot().getDataset();
+        assertTrue(dataset.getItemCount(0) >= 2);
+        boolean crossing = false;
+        for (int item = 0; item < dataset.getItemCount(0); item++) {
+            crossing |= dataset.getXValue(0, item) == -1000 && dataset.getXValue(0, item + 1) == 1000;
+        }
+        assertTrue("kept the items on both sides of the window", crossing);
+
+        // the line is drawn in the series paint
+        final BufferedImage image = culled.createBufferedImage(WIDTH, HEIGHT);
+        final int paint = ((Color) culled.getXYPlot().getRenderer().getSeriesPaint(0)).getRGB();
+        int drawn = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                drawn += image.getRGB(x, y) == paint ? 1 : 0;
+            }
+        }
+        assertTrue("line pixels: " + drawn, drawn > WIDTH / 4);
+    }
+
+    /**
+     * Compare the chart of the culled dataset with the chart of all items.
+     *
+     * @return The chart of the culled dataset.
+     */
+    private static JFreeChart assertPixelIdentical(final String chartType, final String options, final String csv,
+                                                   final boolean culling) throws Exception {
+        final Configuration config = TestConfigurations.parse("<width>" + WIDTH + "</width><height>" + HEIGHT
+                + "</height><dataFormat>csv</dataFormat><antiAlias>false</antiAlias>" + options);
+        final JFreeChart culled = JFreeChartFactory.createJFreeChart(chartType, config, source(csv));
+        final JFreeChart full = JFreeChartFactory.createJFreeChart(chartType, config, new UnculledSource(source(csv)));
+        final XYDataset all = full.getXYPlot().getDataset();
+
+        final int kept = culled.getXYPlot().getDataset().getItemCount(0);
+        if (culling) {
+            assertTrue("items kept: " + kept, kept < all.getItemCount(0));
+        } else {
+            assertEquals(all.getItemCount(0), kept);
+        }
+
+        final BufferedImage expected = full.createBufferedImage(WIDTH, HEIGHT);
+        final BufferedImage actual = culled.createBufferedImage(WIDTH, HEIGHT);
+        int differences = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    differences++;
+                }
+            }
+        }
+        assertEquals("Differing pixels", 0, differences);
+        return culled;
+    }
+
+    /**
+     * A source that ignores the culling window.
+     */
+    private static final class UnculledSource implements DatasetSource {
+
+        private final DatasetSource source;
+
+        private UnculledSource(final DatasetSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public PieDataset readPieDataset(final Configuration config) throws IOException {
+            return source.readPieDataset(config);
+        }
+
+        @Override
+        public CategoryDataset readCategoryDataset(final Configuration config) throws IOException {
+            return source.readCategoryDataset(config);
+        }
+
+        @Override
+        public XYDataset readXYDataset(final Configuration config, final CullingWindow window) throws IOException {
+            return source.readXYDataset(config, null);
+        }
+
+        @Override
+        public void readXYItems(final Configuration config, final XYItemSink sink) throws IOException {
+            source.readXYItems(config, sink);
+        }
+
+        @Override
+        public XYZDataset readXYZDataset(final Configuration config, final CullingWindow window) throws IOException {
+            return source.readXYZDataset(config, null);
+        }
+    }
+
+    private static CsvDatasetSource source(final String csv) {
+        return new CsvDatasetSource(new StringReader(csv), ',');
+    }
+
+    /**
+     * A random walk with noise, as CSV, optionally in random order.
+     */
+    private static String randomWalk(final boolean shuffle) {
+        final Random random = new Random(42);
+        final List<String> records = new ArrayList<>(POINTS);
+        double walk = 0;
+        for (int i = 0; i < POINTS; i++) {
+            walk += random.nextGaussian();
+            records.add(i * 0.5 + "," + (walk + random.nextGaussian() * 5) + "\n");
+        }
+        if (shuffle) {
+            Collections.shuffle(records, random);
+        }
+        final StringBuilder csv = new StringBuilder("x,a\n");
+        records.forEach(csv::append);
+        return csv.toString();
+    }
+}
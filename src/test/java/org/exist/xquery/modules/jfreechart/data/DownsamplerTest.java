@@ -0,0 +1,137 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.XPathException;
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.xy.XYDataset;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Downsampler}. The M4 charts are compared pixel for pixel
+ * with the charts of all points, drawn without antialiasing.
+ */
+public class DownsamplerTest {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 300;
+    private static final int POINTS = 200_000;
+
+    @Test
+    public void m4LineChartIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", "");
+    }
+
+    @Test
+    public void m4AreaChartIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYAreaChart", "");
+    }
+
+    @Test
+    public void m4LineChartWithinDomainBoundsIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart",
+                "<domainLowerBound>12345.6</domainLowerBound><domainUpperBound>87654.3</domainUpperBound>");
+    }
+
+    @Test
+    public void m4HorizontalLineChartIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", "<orientation>Horizontal</orientation>");
+    }
+
+    @Test
+    public void m4ThickLineChartIsPixelIdentical() throws Exception {
+        assertPixelIdentical("XYLineChart", "<lineWidth>3</lineWidth>");
+    }
+
+    @Test
+    public void m4KeepsAtMostTenPointsPerColumn() throws Exception {
+        final JFreeChart chart = createChart("XYLineChart", "<downsample>m4</downsample>");
+        final XYDataset dataset = chart.getXYPlot().getDataset();
+        for (int series = 0; series < dataset.getSeriesCount(); series++) {
+            assertTrue(dataset.getItemCount(series) <= 10 * WIDTH);
+        }
+    }
+
+    private static void assertPixelIdentical(final String chartType, final String options) throws Exception {
+        final String aliased = options + "<antiAlias>false</antiAlias>";
+        final BufferedImage full = createChart(chartType, aliased).createBufferedImage(WIDTH, HEIGHT);
+        final BufferedImage reduced = createChart(chartType, aliased + "<downsample>m4</downsample>")
+                .createBufferedImage(WIDTH, HEIGHT);
+
+        int differences = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (full.getRGB(x, y) != reduced.getRGB(x, y)) {
+                    differences++;
+                }
+            }
+        }
+        assertEquals("Differing pixels", 0, differences);
+    }
+
+    private static JFreeChart createChart(final String chartType, final String options)
+            throws XPathException, IOException, SAXException, ParserConfigurationException {
+        final Configuration config = TestConfigurations.parse(
+                "<width>" + WIDTH + "</width><height>" + HEIGHT + "</height>" + options);
+        return JFreeChartFactory.createJFreeChart(chartType, config, new BinaryDatasetSource(
+                new ByteArrayInputStream(noisySeries())));
+    }
+
+    /**
+     * Two series of random walks with noise, as packed binary data.
+     */
+    private static byte[] noisySeries() {
+        final Random random = new Random(42);
+        final ByteBuffer data = ByteBuffer.allocate(64 + 2 * 2 * POINTS * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(2);
+        for (final String name : new String[]{"a", "b"}) {
+            data.putInt(1).put(name.getBytes(StandardCharsets.UTF_8)).putInt(POINTS);
+        }
+        for (int series = 0; series < 2; series++) {
+            for (int i = 0; i < POINTS; i++) {
+                data.putDouble(i * 0.5);
+            }
+            double walk = series * 20;
+            for (int i = 0; i < POINTS; i++) {
+                walk += random.nextGaussian() * 0.1;
+                data.putDouble(walk + random.nextGaussian() * 3);
+            }
+        }
+        return Arrays.copyOf(data.array(), data.position());
+    }
+}
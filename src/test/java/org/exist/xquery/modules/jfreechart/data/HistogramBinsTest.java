@@ -0,0 +1,119 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.jfree.data.xy.IntervalXYDataset;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link HistogramBins}, counting the observations as they are read.
+ */
+public class HistogramBinsTest {
+
+    private static final String CSV = "x,a,b\n1,0.5,3\n2,1.5,\n3,2.5,7\n4,-0.5,7\n";
+
+    @Test
+    public void binWidthAlignsBinsToMultiples() throws Exception {
+        final IntervalXYDataset dataset = HistogramBins.create(csv(CSV), TestConfigurations.parse("<binWidth>1</binWidth>"));
+
+        assertEquals(2, dataset.getSeriesCount());
+        assertBins(dataset, 0, -1, 1, new double[]{1, 1, 1, 1});
+        assertBins(dataset, 1, 3, 1, new double[]{1, 0, 0, 0, 2});
+    }
+
+    @Test
+    public void binsWithBoundsSkipValuesOutside() throws Exception {
+        final IntervalXYDataset dataset = HistogramBins.create(csv(CSV),
+                TestConfigurations.parse("<bins>2</bins><domainLowerBound>0</domainLowerBound><domainUpperBound>4</domainUpperBound>"));
+
+        assertBins(dataset, 0, 0, 2, new double[]{2, 1});
+        assertBins(dataset, 1, 0, 2, new double[]{0, 1});
+    }
+
+    @Test
+    public void binsWithoutBoundsCoverTheValues() throws Exception {
+        final IntervalXYDataset dataset = HistogramBins.create(csv(CSV), TestConfigurations.parse("<bins>3</bins>"));
+
+        assertBins(dataset, 0, -0.5, 1, new double[]{1, 1, 2});
+        // the maximum belongs to the last bin
+        assertBins(dataset, 1, 3, 4.0 / 3, new double[]{1, 0, 2});
+    }
+
+    @Test
+    public void freedmanDiaconisCountsEachValue() throws Exception {
+        final StringBuilder text = new StringBuilder("x,a\n");
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 1000; i++) {
+            text.append(i).append(',').append(Math.sin(i) * i).append('\n');
+            max = Math.max(max, Math.sin(i) * i);
+        }
+        final IntervalXYDataset dataset = HistogramBins.create(csv(text.toString()), TestConfigurations.parse(""));
+
+        double total = 0;
+        for (int item = 0; item < dataset.getItemCount(0); item++) {
+            total += dataset.getYValue(0, item);
+        }
+        assertEquals(1000, total, 0);
+        assertEquals(max, dataset.getEndXValue(0, dataset.getItemCount(0) - 1), 1e-9);
+    }
+
+    @Test
+    public void xmlItemsAreBinnedAsRead() throws Exception {
+        final String xml = "<XYDataset>"
+                + "<Series name='a'><Item><X>1</X><Y>0.5</Y></Item><Item><X>2</X><Y>1.5</Y></Item>"
+                + "<Item><X>3</X><Y>2.5</Y></Item><Item><X>4</X><Y>-0.5</Y></Item></Series>"
+                + "</XYDataset>";
+        final IntervalXYDataset dataset = HistogramBins.create(new StreamDatasetSource(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))), TestConfigurations.parse("<binWidth>1</binWidth>"));
+
+        assertEquals(1, dataset.getSeriesCount());
+        assertEquals("a", dataset.getSeriesKey(0));
+        assertBins(dataset, 0, -1, 1, new double[]{1, 1, 1, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyBinsAreRefusedWhileReading() throws Exception {
+        HistogramBins.create(csv(CSV), TestConfigurations.parse("<binWidth>0.00001</binWidth>"));
+    }
+
+    private static void assertBins(final IntervalXYDataset dataset, final int series, final double start,
+                                   final double width, final double[] counts) {
+        final double[] actual = new double[dataset.getItemCount(series)];
+        for (int item = 0; item < actual.length; item++) {
+            actual[item] = dataset.getYValue(series, item);
+            assertEquals(start + item * width, dataset.getStartXValue(series, item), 1e-9);
+            assertEquals(start + (item + 1) * width, dataset.getEndXValue(series, item), 1e-9);
+        }
+        assertArrayEquals(counts, actual, 0);
+    }
+
+    private static DatasetSource csv(final String text) {
+        return new CsvDatasetSource(new StringReader(text), ',');
+    }
+}
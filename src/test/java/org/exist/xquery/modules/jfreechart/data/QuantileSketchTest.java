@@ -0,0 +1,99 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link QuantileSketch}.
+ */
+public class QuantileSketchTest {
+
+    private static final int VALUES = 1_000_000;
+
+    @Test
+    public void mergeOfSmallSketchesIsExact() {
+        final QuantileSketch first = new QuantileSketch(QuantileSketch.DEFAULT_K);
+        final QuantileSketch second = new QuantileSketch(QuantileSketch.DEFAULT_K);
+        for (int i = 1; i <= 50; i++) {
+            first.update(i);
+            second.update(100 + i);
+        }
+        first.merge(second);
+
+        assertEquals(100, first.getCount());
+        assertEquals(1, first.getMin(), 0);
+        assertEquals(150, first.getMax(), 0);
+        assertEquals((1275 + 6275) / 100.0, first.getMean(), 1e-9);
+        assertEquals(75.5, first.getQuantile(0.5), 1e-9);
+        assertEquals(100, first.getValues().length);
+        // the other sketch is left as it is
+        assertEquals(50, second.getCount());
+        assertEquals(101, second.getMin(), 0);
+    }
+
+    @Test
+    public void mergedSketchesStayBoundedAndAccurate() {
+        final Random random = new Random(7);
+        final double[] values = new double[VALUES];
+        final QuantileSketch merged = new QuantileSketch(QuantileSketch.DEFAULT_K);
+        for (int part = 0; part < 10; part++) {
+            final QuantileSketch sketch = new QuantileSketch(QuantileSketch.DEFAULT_K);
+            for (int i = part * VALUES / 10; i < (part + 1) * VALUES / 10; i++) {
+                values[i] = random.nextGaussian() * (part + 1);
+                sketch.update(values[i]);
+            }
+            merged.merge(sketch);
+        }
+        Arrays.sort(values);
+
+        assertEquals(VALUES, merged.getCount());
+        assertEquals(values[0], merged.getMin(), 0);
+        assertEquals(values[VALUES - 1], merged.getMax(), 0);
+        assertTrue(merged.getValues().length < 4 * QuantileSketch.DEFAULT_K);
+        for (final double q : new double[]{0.01, 0.25, 0.5, 0.75, 0.99}) {
+            final int rank = Arrays.binarySearch(values, merged.getQuantile(q));
+            final double error = Math.abs((rank < 0 ? -rank - 1 : rank) - q * (VALUES - 1)) / VALUES;
+            assertTrue("rank error " + error + " at " + q, error < 0.02);
+        }
+    }
+
+    @Test
+    public void mergeWithItselfDoublesTheWeights() {
+        final QuantileSketch sketch = new QuantileSketch(QuantileSketch.DEFAULT_K);
+        for (int i = 0; i < 10; i++) {
+            sketch.update(i);
+        }
+        sketch.merge(sketch);
+
+        assertEquals(20, sketch.getCount());
+        assertEquals(4.5, sketch.getMean(), 1e-9);
+        assertArrayEquals(new double[]{0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9},
+                sketch.getValues(), 0);
+    }
+}
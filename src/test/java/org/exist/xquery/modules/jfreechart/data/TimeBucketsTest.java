@@ -0,0 +1,86 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.jfree.data.xy.XYDataset;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link TimeBuckets}, aggregating the items as they are read.
+ */
+public class TimeBucketsTest {
+
+    @Test
+    public void weekBucketsStartOnMonday() throws Exception {
+        final XYDataset dataset = aggregate("x,a\n"
+                        + "2024-01-03T10:00:00Z,1\n"
+                        + "2024-01-07T23:59:59Z,3\n"
+                        + "2024-01-08T00:00:00Z,2\n",
+                "<bucket>week</bucket><aggregate>sum</aggregate>");
+
+        assertBuckets(dataset, new String[]{"2024-01-01T00:00:00Z", "2024-01-08T00:00:00Z"}, new double[]{4, 2});
+    }
+
+    @Test
+    public void bucketOriginShiftsTheBuckets() throws Exception {
+        final XYDataset dataset = aggregate("x,a\n"
+                        + "2024-01-01T05:00:00Z,1\n"
+                        + "2024-01-01T07:00:00Z,2\n"
+                        + "2024-01-02T05:59:59Z,4\n",
+                "<bucket>day</bucket><bucketOrigin>2000-01-01T06:00:00Z</bucketOrigin><aggregate>max</aggregate>");
+
+        assertBuckets(dataset, new String[]{"2023-12-31T06:00:00Z", "2024-01-01T06:00:00Z"}, new double[]{1, 4});
+    }
+
+    @Test
+    public void bucketsStartedAgainAreCombined() throws Exception {
+        final XYDataset dataset = aggregate("x,a,b\n"
+                        + "2024-01-01T02:10:00Z,1,\n"
+                        + "2024-01-01T01:10:00Z,2,5\n"
+                        + "2024-01-01T02:50:00Z,4,\n"
+                        + "2024-01-01T01:20:00Z,,7\n",
+                "<bucket>hour</bucket>");
+
+        assertBuckets(dataset, new String[]{"2024-01-01T01:00:00Z", "2024-01-01T02:00:00Z"}, new double[]{2, 2.5});
+        assertEquals(2, dataset.getItemCount(1));
+        assertEquals(6, dataset.getYValue(1, 0), 0);
+        assertEquals(Double.NaN, dataset.getYValue(1, 1), 0);
+    }
+
+    private static void assertBuckets(final XYDataset dataset, final String[] starts, final double[] values) {
+        assertEquals(starts.length, dataset.getItemCount(0));
+        for (int item = 0; item < starts.length; item++) {
+            assertEquals(Instant.parse(starts[item]).toEpochMilli(), dataset.getXValue(0, item), 0);
+            assertEquals(values[item], dataset.getYValue(0, item), 0);
+        }
+    }
+
+    private static XYDataset aggregate(final String csv, final String options) throws Exception {
+        return TimeBuckets.aggregate(new CsvDatasetSource(new StringReader(csv), ','),
+                TestConfigurations.parse(options));
+    }
+}
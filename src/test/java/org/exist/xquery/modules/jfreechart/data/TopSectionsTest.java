@@ -0,0 +1,96 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.data;
+
+import org.exist.xquery.XPathException;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xml.ArrayCategoryDataset;
+import org.jfree.data.xml.ArrayPieDataset;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link TopSections}.
+ */
+public class TopSectionsTest {
+
+    @Test
+    public void smallestSectionsAreMergedInOrder() throws Exception {
+        final PieDataset pie = TopSections.limit(pie("a", 5, "b", 1, "c", 7, "d", 2),
+                TestConfigurations.parse("<maxSections>2</maxSections>"));
+
+        assertEquals(Arrays.asList("a", "c", "Other"), pie.getKeys());
+        assertEquals(3.0, pie.getValue("Other").doubleValue(), 0);
+    }
+
+    @Test
+    public void keptSectionNamedOtherIsAddedTo() throws Exception {
+        final PieDataset pie = TopSections.limit(pie("Other", 5, "b", 1, "c", 7, "d", 2),
+                TestConfigurations.parse("<maxSections>2</maxSections>"));
+
+        assertEquals(Arrays.asList("Other", "c"), pie.getKeys());
+        assertEquals(8.0, pie.getValue("Other").doubleValue(), 0);
+        assertEquals(7.0, pie.getValue("c").doubleValue(), 0);
+    }
+
+    @Test
+    public void keptCategoryNamedOtherIsAddedTo() throws Exception {
+        final ArrayCategoryDataset dataset = new ArrayCategoryDataset();
+        dataset.addValue(5, "Other", "pie 1");
+        dataset.addValue(1, "b", "pie 1");
+        dataset.addValue(7, "c", "pie 1");
+        dataset.addValue(6, "Other", "pie 2");
+        dataset.addValue(2, "b", "pie 2");
+        dataset.addValue(8, "c", "pie 2");
+
+        final CategoryDataset limited = TopSections.limit(dataset,
+                TestConfigurations.parse("<maxSections>2</maxSections>"));
+
+        assertEquals(Arrays.asList("Other", "c"), limited.getRowKeys());
+        assertEquals(6.0, limited.getValue("Other", "pie 1").doubleValue(), 0);
+        assertEquals(8.0, limited.getValue("Other", "pie 2").doubleValue(), 0);
+        assertEquals(8.0, limited.getValue("c", "pie 2").doubleValue(), 0);
+    }
+
+    @Test
+    public void piesWithinMaxSectionsAreKept() throws Exception {
+        final PieDataset dataset = pie("a", 5, "b", 1);
+        assertEquals(dataset, TopSections.limit(dataset, TestConfigurations.parse("<maxSections>2</maxSections>")));
+    }
+
+    @Test(expected = XPathException.class)
+    public void maxSectionsBelowOneIsRefused() throws Exception {
+        TestConfigurations.parse("<maxSections>0</maxSections>");
+    }
+
+    private static PieDataset pie(final Object... keysAndValues) {
+        final ArrayPieDataset dataset = new ArrayPieDataset();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            dataset.setValue((String) keysAndValues[i], ((Integer) keysAndValues[i + 1]).doubleValue());
+        }
+        return dataset;
+    }
+}
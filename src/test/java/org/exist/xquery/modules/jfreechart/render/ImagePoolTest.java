@@ -0,0 +1,132 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ImagePool}.
+ */
+public class ImagePoolTest {
+
+    // the bytes of a 10 by 10 ARGB image
+    private static final long IMAGE_BYTES = 10 * 10 * 4;
+
+    @Test
+    public void releasedImageIsReused() {
+        final ImagePool pool = new ImagePool(4 * IMAGE_BYTES);
+        final BufferedImage image = pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        pool.release(image);
+        assertEquals(IMAGE_BYTES, pool.getPooledBytes());
+
+        assertSame(image, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(0, pool.getPooledBytes());
+        // another size or type is not taken from the pool
+        pool.release(image);
+        assertNotSame(image, pool.acquire(10, 11, BufferedImage.TYPE_INT_ARGB));
+        assertNotSame(image, pool.acquire(10, 10, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    public void reusedImageIsCleared() {
+        final ImagePool pool = new ImagePool(4 * IMAGE_BYTES);
+        final BufferedImage argb = paint(pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        final BufferedImage rgb = paint(pool.acquire(10, 10, BufferedImage.TYPE_INT_RGB));
+        pool.release(argb);
+        pool.release(rgb);
+
+        assertSame(argb, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertSame(rgb, pool.acquire(10, 10, BufferedImage.TYPE_INT_RGB));
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                assertEquals(0, argb.getRGB(x, y));
+                assertEquals(0xff000000, rgb.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedSizeIsEvicted() {
+        final ImagePool pool = new ImagePool(2 * IMAGE_BYTES);
+        final BufferedImage square = pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        final BufferedImage wide = pool.acquire(20, 5, BufferedImage.TYPE_INT_ARGB);
+        final BufferedImage tall = pool.acquire(5, 20, BufferedImage.TYPE_INT_ARGB);
+        pool.release(square);
+        pool.release(wide);
+
+        // the square size is used again, so the wide size is the least recently used one
+        assertSame(square, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        pool.release(square);
+        pool.release(tall);
+        assertEquals(1, pool.getEvictions());
+        assertEquals(2 * IMAGE_BYTES, pool.getPooledBytes());
+
+        assertNotSame(wide, pool.acquire(20, 5, BufferedImage.TYPE_INT_ARGB));
+        assertSame(square, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertSame(tall, pool.acquire(5, 20, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @Test
+    public void imageOverTheBudgetIsNotPooled() {
+        final ImagePool pool = new ImagePool(IMAGE_BYTES - 1);
+        final BufferedImage image = pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        pool.release(image);
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(0, pool.getEvictions());
+        assertNotSame(image, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        final ImagePool pool = new ImagePool(4 * IMAGE_BYTES);
+        assertEquals(0, pool.getHitRate(), 0.0);
+        final BufferedImage image = pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        pool.release(image);
+        pool.release(pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+
+        assertEquals(2, pool.getHits());
+        assertEquals(2, pool.getMisses());
+        assertEquals(0.5, pool.getHitRate(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudgetIsRejected() {
+        new ImagePool(-1);
+    }
+
+    private static BufferedImage paint(final BufferedImage image) {
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.jfree.chart.JFreeChart;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link JPGrenderer}. The images are read again by ImageIO.
+ */
+public class JPGrendererTest {
+
+    @Test
+    public void subsampling444() throws Exception {
+        assertSubsampling("444", 1, 1);
+    }
+
+    @Test
+    public void subsampling422() throws Exception {
+        assertSubsampling("422", 2, 1);
+    }
+
+    @Test
+    public void subsampling420() throws Exception {
+        assertSubsampling("420", 2, 2);
+    }
+
+    /**
+     * Render twice, as each image gets a writer of its own, and read back the
+     * sampling factors of the luminance relative to the chrominance.
+     */
+    private static void assertSubsampling(final String subsampling, final int horizontal, final int vertical)
+            throws Exception {
+        final Configuration config = TestConfigurations.parse("<width>320</width><height>200</height>"
+                + "<dataFormat>csv</dataFormat><jpegSubsampling>" + subsampling + "</jpegSubsampling>");
+        for (int i = 0; i < 2; i++) {
+            final JFreeChart chart = JFreeChartFactory.createJFreeChart("XYLineChart", config,
+                    new CsvDatasetSource(new StringReader("x,a\n1,4\n2,1\n3,3\n"), ','));
+            final byte[] jpeg = new JPGrenderer().render(chart, config);
+
+            final ImageReader reader = ImageIO.getImageReadersByFormatName("jpeg").next();
+            try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+                reader.setInput(iis);
+                final BufferedImage image = reader.read(0);
+                assertEquals(320, image.getWidth());
+                assertEquals(200, image.getHeight());
+
+                final IIOMetadata metadata = reader.getImageMetadata(0);
+                final Node tree = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+                final Element luminance = (Element) ((Element) tree).getElementsByTagName("componentSpec").item(0);
+                assertEquals(subsampling, String.valueOf(horizontal), luminance.getAttribute("HsamplingFactor"));
+                assertEquals(subsampling, String.valueOf(vertical), luminance.getAttribute("VsamplingFactor"));
+                final Element chrominance = (Element) ((Element) tree).getElementsByTagName("componentSpec").item(1);
+                assertEquals("1", chrominance.getAttribute("HsamplingFactor"));
+                assertEquals("1", chrominance.getAttribute("VsamplingFactor"));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
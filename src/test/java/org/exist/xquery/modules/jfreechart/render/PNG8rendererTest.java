@@ -0,0 +1,163 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.jfree.chart.JFreeChart;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PNG8renderer} and {@link ChartPalette}. The images are
+ * decoded again by ImageIO.
+ */
+public class PNG8rendererTest {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 250;
+
+    @Test
+    public void chartWithFewColorsRoundTripsExactly() throws Exception {
+        final Configuration config = config("<antiAlias>false</antiAlias>");
+        final JFreeChart chart = createChart(config);
+        chart.setTextAntiAlias(false);
+
+        final BufferedImage truecolor = ImageIO.read(new ByteArrayInputStream(new PNGrenderer().render(chart, config)));
+        assertTrue(new ChartPalette(chart, truecolor).isExact());
+
+        final byte[] png = new PNG8renderer().render(chart, config);
+        assertEquals(3, PngEncoderTest.colorType(png));
+        final BufferedImage indexed = ImageIO.read(new ByteArrayInputStream(png));
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(x + "," + y, truecolor.getRGB(x, y), indexed.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void translucentColorsComeFirst() throws Exception {
+        final Configuration config = config("");
+        final JFreeChart chart = createChart(config);
+        chart.setBackgroundPaint(new Color(255, 255, 255, 0));
+
+        final byte[] png = new PNG8renderer().render(chart, config);
+        final byte[] palette = chunk(png, "PLTE");
+        final byte[] alpha = chunk(png, "tRNS");
+        assertNotNull(palette);
+        assertNotNull(alpha);
+        assertTrue(palette.length / 3 <= ChartPalette.MAX_COLORS);
+        // the transparency chunk ends with the last translucent entry, all entries after it are opaque
+        assertTrue(alpha.length < palette.length / 3);
+        assertTrue((alpha[alpha.length - 1] & 0xff) != 0xff);
+
+        final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(WIDTH, decoded.getWidth());
+        assertEquals(HEIGHT, decoded.getHeight());
+        assertEquals(0, decoded.getRGB(0, 0) >>> 24);
+        final Set<Integer> colors = new HashSet<>();
+        for (int entry = 0; entry < palette.length / 3; entry++) {
+            final int a = entry < alpha.length ? alpha[entry] & 0xff : 0xff;
+            colors.add(a << 24 | (palette[3 * entry] & 0xff) << 16 | (palette[3 * entry + 1] & 0xff) << 8
+                    | palette[3 * entry + 2] & 0xff);
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int pixel = decoded.getRGB(x, y);
+                assertTrue(Integer.toHexString(pixel), colors.contains(pixel) || pixel >>> 24 == 0);
+            }
+        }
+    }
+
+    @Test
+    public void pixelsGetTheNearestColorBeyondTheCache() throws Exception {
+        // more distinct colors than are counted and cached
+        final BufferedImage image = new BufferedImage(512, 256, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xff000000 | x << 15 | y << 4 | (x + y) & 0xf);
+            }
+        }
+        final ChartPalette palette = new ChartPalette(createChart(config("")), image);
+        assertFalse(palette.isExact());
+        final int[] colors = palette.getColors();
+        assertEquals(ChartPalette.MAX_COLORS, colors.length);
+
+        final byte[] indices = palette.getIndices(image);
+        for (int y = 0; y < image.getHeight(); y += 3) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                final int pixel = image.getRGB(x, y);
+                long best = Long.MAX_VALUE;
+                for (final int color : colors) {
+                    best = Math.min(best, ChartPalette.distance(pixel, color));
+                }
+                assertEquals(x + "," + y, best,
+                        ChartPalette.distance(pixel, colors[indices[y * image.getWidth() + x] & 0xff]));
+            }
+        }
+    }
+
+    private static Configuration config(final String options) throws Exception {
+        return TestConfigurations.parse("<width>" + WIDTH + "</width><height>" + HEIGHT
+                + "</height><dataFormat>csv</dataFormat><title>Palette</title>" + options);
+    }
+
+    private static JFreeChart createChart(final Configuration config) throws Exception {
+        return JFreeChartFactory.createJFreeChart("XYLineChart", config,
+                new CsvDatasetSource(new StringReader("x,a,b\n1,4,2\n2,1,3\n3,3,5\n4,6,1\n"), ','));
+    }
+
+    /**
+     * The data of a chunk, null when there is none.
+     */
+    private static byte[] chunk(final byte[] png, final String type) throws IOException {
+        final ByteBuffer chunks = ByteBuffer.wrap(png, 8, png.length - 8);
+        while (chunks.hasRemaining()) {
+            final int length = chunks.getInt();
+            final byte[] name = new byte[4];
+            chunks.get(name);
+            if (type.equals(new String(name, "US-ASCII"))) {
+                final byte[] data = new byte[length];
+                chunks.get(data);
+                return data;
+            }
+            chunks.position(chunks.position() + length + 4);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.jfree.chart.JFreeChart;
+import org.junit.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PNGrenderer}.
+ */
+public class PNGrendererTest {
+
+    @Test
+    public void compressionQualityMapsToTheLevel() {
+        for (int level = 0; level <= 9; level++) {
+            final float quality = PNGrenderer.compressionQuality(level);
+            assertTrue(quality >= 0f && quality <= 1f);
+            // as the ImageIO PNG writer derives the level
+            assertEquals(level, (int) (9 * (1f - quality)));
+        }
+    }
+
+    @Test
+    public void imageIOWriterUsesTheLevel() throws Exception {
+        final BufferedImage image = PngEncoderTest.createImage(BufferedImage.TYPE_INT_RGB, 200, 100);
+        final byte[] stored = writeImageIO(image, 0);
+        final byte[] fast = writeImageIO(image, 1);
+        final byte[] best = writeImageIO(image, 9);
+        PngEncoderTest.assertSameImage("level 0", image, stored);
+        PngEncoderTest.assertSameImage("level 9", image, best);
+        assertTrue(PngEncoderTest.idat(stored).length > 100 * (3 * 200 + 1));
+        assertTrue(best.length <= fast.length);
+        assertEquals(0, (PngEncoderTest.idat(stored)[1] & 0xff) >> 6);
+        assertEquals(3, (PngEncoderTest.idat(best)[1] & 0xff) >> 6);
+    }
+
+    @Test
+    public void writerWithoutCompressionWritesNothing() throws Exception {
+        final UncompressedWriter writer = new UncompressedWriter();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertFalse(PNGrenderer.writeImageIO(writer,
+                new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), 6, os));
+        assertEquals(0, os.size());
+        assertTrue(writer.disposed);
+    }
+
+    @Test
+    public void chartIsRenderedWithEachEncoder() throws Exception {
+        for (final String options : new String[]{"",
+                "<pngCompressionLevel>1</pngCompressionLevel>",
+                "<pngEncoder>deflate</pngEncoder><pngFilter>paeth</pngFilter>",
+                "<pngParallelThreshold>1</pngParallelThreshold>"}) {
+            final Configuration config = TestConfigurations.parse(
+                    "<width>300</width><height>200</height><dataFormat>csv</dataFormat>" + options);
+            final JFreeChart chart = JFreeChartFactory.createJFreeChart("XYLineChart", config,
+                    new CsvDatasetSource(new StringReader("x,a\n1,4\n2,1\n3,3\n"), ','));
+            final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(
+                    new PNGrenderer().render(chart, config)));
+            assertNotNull(options, decoded);
+            assertEquals(options, 300, decoded.getWidth());
+            assertEquals(options, 200, decoded.getHeight());
+        }
+    }
+
+    private static byte[] writeImageIO(final BufferedImage image, final int level) throws Exception {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertTrue(PNGrenderer.writeImageIO(ImageIO.getImageWritersByFormatName("png").next(), image, level, os));
+        return os.toByteArray();
+    }
+
+    /**
+     * A writer that cannot set the compression, like the PNG writer of Java 8.
+     */
+    private static final class UncompressedWriter extends ImageWriter {
+
+        private boolean disposed;
+
+        private UncompressedWriter() {
+            super(null);
+        }
+
+        @Override
+        public ImageWriteParam getDefaultWriteParam() {
+            return new ImageWriteParam(Locale.ROOT);
+        }
+
+        @Override
+        public IIOMetadata getDefaultStreamMetadata(final ImageWriteParam param) {
+            return null;
+        }
+
+        @Override
+        public IIOMetadata getDefaultImageMetadata(final ImageTypeSpecifier imageType, final ImageWriteParam param) {
+            return null;
+        }
+
+        @Override
+        public IIOMetadata convertStreamMetadata(final IIOMetadata inData, final ImageWriteParam param) {
+            return null;
+        }
+
+        @Override
+        public IIOMetadata convertImageMetadata(final IIOMetadata inData, final ImageTypeSpecifier imageType,
+                                                final ImageWriteParam param) {
+            return null;
+        }
+
+        @Override
+        public void write(final IIOMetadata streamMetadata, final IIOImage image, final ImageWriteParam param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link PngEncoder}. The images are decoded again by ImageIO and
+ * compared pixel for pixel.
+ */
+public class PngEncoderTest {
+
+    // 3001 bytes per filtered row, so 600 rows are more than 3 bands of 512 KB
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 600;
+
+    private static final int[] LEVELS = {0, 1, 6, 9};
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void parallelDeflateRoundTrips() throws Exception {
+        final BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, WIDTH, HEIGHT);
+        final int filteredLength = 3 * WIDTH + 1;
+        assertTrue(HEIGHT * filteredLength > 3 * 512 * 1024);
+
+        for (final PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            for (final int level : LEVELS) {
+                final String message = filter + " level " + level;
+                final byte[] parallel = encode(image, filter, level, 1);
+                assertSameImage(message, image, parallel);
+
+                // the bands form one zlib stream, with the Adler-32 of all rows
+                final byte[] rows = inflate(message, parallel);
+                assertEquals(message, HEIGHT * filteredLength, rows.length);
+                assertArrayEquals(message, inflate(message, encode(image, filter, level, 0)), rows);
+            }
+        }
+    }
+
+    @Test
+    public void parallelDeflateOfTranslucentImageRoundTrips() throws Exception {
+        final BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB, WIDTH, HEIGHT);
+        final byte[] png = encode(image, PngEncoder.Filter.ADAPTIVE, 6, 1);
+        assertEquals(6, colorType(png));
+        assertSameImage("RGBA", image, png);
+        assertEquals(HEIGHT * (4 * WIDTH + 1), inflate("RGBA", png).length);
+    }
+
+    @Test
+    public void eachFilterRoundTrips() throws Exception {
+        final BufferedImage rgb = createImage(BufferedImage.TYPE_INT_RGB, 301, 97);
+        final BufferedImage translucent = createImage(BufferedImage.TYPE_INT_ARGB, 301, 97);
+        for (final PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            final byte[] rgbPng = encode(rgb, filter, 6, 0);
+            assertEquals(filter + " RGB", 2, colorType(rgbPng));
+            assertSameImage(filter + " RGB", rgb, rgbPng);
+
+            final byte[] rgbaPng = encode(translucent, filter, 6, 0);
+            assertEquals(filter + " RGBA", 6, colorType(rgbaPng));
+            assertSameImage(filter + " RGBA", translucent, rgbaPng);
+        }
+    }
+
+    @Test
+    public void opaqueImageWithAlphaIsWrittenAsRGB() throws Exception {
+        final BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB, 64, 32);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, image.getRGB(x, y) | 0xff000000);
+            }
+        }
+        assertTrue(PngRowFilter.isOpaque(image));
+        final byte[] png = encode(image, PngEncoder.Filter.PAETH, 6, 0);
+        assertEquals(2, colorType(png));
+        assertSameImage("opaque ARGB", image, png);
+
+        image.setRGB(63, 31, 0x80ffffff);
+        assertFalse(PngRowFilter.isOpaque(image));
+        assertEquals(6, colorType(encode(image, PngEncoder.Filter.PAETH, 6, 0)));
+    }
+
+    @Test
+    public void encoderIsReusedForOtherImages() throws Exception {
+        final PngEncoder encoder = new PngEncoder(POOL);
+        for (final BufferedImage image : new BufferedImage[]{
+                createImage(BufferedImage.TYPE_INT_RGB, 120, 40),
+                createImage(BufferedImage.TYPE_INT_ARGB, 120, 40),
+                createImage(BufferedImage.TYPE_INT_RGB, 77, 13),
+                createImage(BufferedImage.TYPE_3BYTE_BGR, 77, 13)}) {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            encoder.encode(image, os);
+            assertSameImage("type " + image.getType(), image, os.toByteArray());
+        }
+    }
+
+    @Test
+    public void adaptiveFilterPicksPerRow() throws Exception {
+        final BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 200, 100);
+        final byte[] rows = inflate("ADAPTIVE", encode(image, PngEncoder.Filter.ADAPTIVE, 6, 0));
+        final int filteredLength = 3 * 200 + 1;
+        final boolean[] used = new boolean[5];
+        for (int y = 0; y < 100; y++) {
+            used[rows[y * filteredLength]] = true;
+        }
+        int types = 0;
+        for (final boolean type : used) {
+            types += type ? 1 : 0;
+        }
+        assertTrue("filter types used: " + types, types > 1);
+    }
+
+    @Test
+    public void compressionLevelIsApplied() throws Exception {
+        final BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 200, 100);
+        final byte[] stored = encode(image, PngEncoder.Filter.NONE, 0, 0);
+        final byte[] fast = encode(image, PngEncoder.Filter.NONE, 1, 0);
+        final byte[] best = encode(image, PngEncoder.Filter.NONE, 9, 0);
+        assertSameImage("level 0", image, stored);
+        assertSameImage("level 9", image, best);
+        assertTrue(idat(stored).length > 100 * (3 * 200 + 1));
+        assertTrue(fast.length < stored.length);
+        assertTrue(best.length <= fast.length);
+        // the zlib header announces the level
+        assertEquals(0, (idat(stored)[1] & 0xff) >> 6);
+        assertEquals(3, (idat(best)[1] & 0xff) >> 6);
+    }
+
+    @Test
+    public void compressionLevelIsValidated() {
+        final PngEncoder encoder = new PngEncoder();
+        encoder.setCompressionLevel(Deflater.DEFAULT_COMPRESSION);
+        for (final int level : new int[]{-2, 10}) {
+            try {
+                encoder.setCompressionLevel(level);
+                fail("level " + level);
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    static byte[] encode(final BufferedImage image, final PngEncoder.Filter filter, final int level,
+                         final int parallelThreshold) throws IOException {
+        final PngEncoder encoder = new PngEncoder(POOL);
+        encoder.setFilter(filter);
+        encoder.setCompressionLevel(level);
+        encoder.setParallelThreshold(parallelThreshold);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        encoder.encode(image, os);
+        return os.toByteArray();
+    }
+
+    /**
+     * The color type of the IHDR chunk.
+     */
+    static int colorType(final byte[] png) {
+        return png[8 + 8 + 9];
+    }
+
+    /**
+     * Decode with ImageIO and compare the pixels.
+     */
+    static void assertSameImage(final String message, final BufferedImage expected, final byte[] png)
+            throws IOException {
+        final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(message, expected.getWidth(), decoded.getWidth());
+        assertEquals(message, expected.getHeight(), decoded.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != decoded.getRGB(x, y)) {
+                    throw new AssertionError(message + ": pixel " + x + "," + y + " is "
+                            + Integer.toHexString(decoded.getRGB(x, y)) + " instead of "
+                            + Integer.toHexString(expected.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inflate the IDAT chunks with the zlib wrapper, checking the Adler-32 of the trailer.
+     */
+    static byte[] inflate(final String message, final byte[] png) throws DataFormatException {
+        final byte[] idat = idat(png);
+        final Inflater inflater = new Inflater();
+        inflater.setInput(idat);
+        final ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[64 * 1024];
+        while (!inflater.finished()) {
+            final int count = inflater.inflate(buffer);
+            assertTrue(message + ": truncated stream", count > 0 || !inflater.needsInput());
+            rows.write(buffer, 0, count);
+        }
+        assertEquals(message + ": data after the stream", 0, inflater.getRemaining());
+        inflater.end();
+
+        final byte[] inflated = rows.toByteArray();
+        final Adler32 adler = new Adler32();
+        adler.update(inflated);
+        assertEquals(message + ": Adler-32", adler.getValue(),
+                ByteBuffer.wrap(idat, idat.length - 4, 4).getInt() & 0xffffffffL);
+        return inflated;
+    }
+
+    /**
+     * The data of the IDAT chunks, concatenated.
+     */
+    static byte[] idat(final byte[] png) {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final ByteBuffer chunks = ByteBuffer.wrap(png, 8, png.length - 8);
+        while (chunks.hasRemaining()) {
+            final int length = chunks.getInt();
+            final byte[] type = new byte[4];
+            chunks.get(type);
+            if (Arrays.equals(type, new byte[]{'I', 'D', 'A', 'T'})) {
+                data.write(png, chunks.position(), length);
+            }
+            chunks.position(chunks.position() + length + 4);
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * Shapes on a gradient with some noise, with varying alpha for images with alpha.
+     */
+    static BufferedImage createImage(final int type, final int width, final int height) {
+        final BufferedImage image = new BufferedImage(width, height, type);
+        final Random random = new Random(7);
+        final boolean alpha = image.getColorModel().hasAlpha();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int noise = random.nextInt(8);
+                final int a = alpha ? (x * 255 / width) : 255;
+                image.setRGB(x, y, (a << 24) | ((x + noise) & 0xff) << 16 | ((y + noise) & 0xff) << 8 | (x ^ y) & 0xff);
+            }
+        }
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(width / 4, height / 4, width / 2, height / 8);
+        g2.setColor(new Color(200, 30, 30, 128));
+        g2.fillOval(width / 3, height / 3, width / 3, height / 3);
+        g2.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2009-2015 The eXist-db Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+package org.exist.xquery.modules.jfreechart.render;
+
+import org.exist.xquery.modules.jfreechart.Configuration;
+import org.exist.xquery.modules.jfreechart.JFreeChartFactory;
+import org.exist.xquery.modules.jfreechart.TestConfigurations;
+import org.exist.xquery.modules.jfreechart.data.CsvDatasetSource;
+import org.jfree.chart.JFreeChart;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SVGStreamGraphics2D}. The charts are rendered by
+ * {@link SVGSTREAMrenderer} and parsed again.
+ */
+public class SVGStreamGraphics2DTest {
+
+    private static final String SVG_NS = "http://www.w3.org/2000/svg";
+
+    @Test
+    public void rectangularClipIsReturnedAsRectangle() throws Exception {
+        final SVGStreamGraphics2D g2 = new SVGStreamGraphics2D(new ByteArrayOutputStream(), 100, 100);
+        g2.translate(10, 20);
+        g2.setClip(new Rectangle2D.Double(1, 2, 30, 40));
+        g2.clip(new Rectangle(0, 0, 20, 20));
+
+        final Shape clip = g2.getClip();
+        assertTrue(clip instanceof Rectangle2D);
+        assertEquals(new Rectangle2D.Double(1, 2, 19, 18), clip);
+        assertEquals(new Rectangle(1, 2, 19, 18), g2.getClipBounds());
+
+        g2.rotate(Math.PI / 2);
+        assertFalse(g2.getClip() instanceof Rectangle2D);
+        g2.dispose();
+    }
+
+    @Test
+    public void chartIsWellFormedWithClipsAndGradients() throws Exception {
+        final Document svg = render("XYLineChart", "", true);
+
+        final NodeList clipPaths = svg.getElementsByTagNameNS(SVG_NS, "clipPath");
+        assertTrue(clipPaths.getLength() > 0);
+        final Set<String> clipIds = ids(clipPaths);
+        // the plot area is clipped to a rectangle
+        assertEquals(1, ((Element) clipPaths.item(0)).getElementsByTagNameNS(SVG_NS, "rect").getLength());
+
+        final NodeList gradients = svg.getElementsByTagNameNS(SVG_NS, "linearGradient");
+        assertEquals(1, gradients.getLength());
+        final Set<String> gradientIds = ids(gradients);
+        assertEquals(2, ((Element) gradients.item(0)).getElementsByTagNameNS(SVG_NS, "stop").getLength());
+
+        boolean clipped = false;
+        boolean gradientFill = false;
+        final NodeList elements = svg.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            final Element element = (Element) elements.item(i);
+            final String clipPath = element.getAttribute("clip-path");
+            if (!clipPath.isEmpty()) {
+                assertTrue(clipPath, clipIds.contains(reference(clipPath)));
+                clipped = true;
+            }
+            final String fill = element.getAttribute("fill");
+            if (fill.startsWith("url(")) {
+                assertTrue(fill, gradientIds.contains(reference(fill)));
+                gradientFill = true;
+            }
+        }
+        assertTrue("clipped element", clipped);
+        assertTrue("gradient fill", gradientFill);
+    }
+
+    @Test
+    public void styleClassesAreDefinedBeforeUse() throws Exception {
+        final Document svg = render("XYLineChart", "<svgStyleClasses>true</svgStyleClasses>", false);
+
+        final Set<String> defined = new HashSet<>();
+        int used = 0;
+        final NodeList elements = svg.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            final Element element = (Element) elements.item(i);
+            if ("style".equals(element.getLocalName())) {
+                final String css = element.getTextContent();
+                assertTrue(css, css.startsWith(".") && css.endsWith("}"));
+                defined.add(css.substring(1, css.indexOf('{')));
+            } else if (element.hasAttribute("class")) {
+                assertTrue(element.getAttribute("class"), defined.contains(element.getAttribute("class")));
+                // the presentation attributes are in the class
+                assertFalse(element.hasAttribute("stroke") || element.hasAttribute("fill"));
+                used++;
+            }
+        }
+        assertTrue(defined.size() > 1);
+        assertTrue(used > defined.size());
+    }
+
+    @Test
+    public void linesWithTheSameStyleAreMerged() throws Exception {
+        final Document separate = render("XYLineChart", "", false);
+        final Document merged = render("XYLineChart", "<svgMergePaths>true</svgMergePaths>", false);
+
+        final int separatePaths = separate.getElementsByTagNameNS(SVG_NS, "path").getLength();
+        final NodeList paths = merged.getElementsByTagNameNS(SVG_NS, "path");
+        assertTrue(paths.getLength() < separatePaths);
+        assertEquals(moveTos(separate.getElementsByTagNameNS(SVG_NS, "path")), moveTos(paths));
+
+        int maxMoveTos = 0;
+        for (int i = 0; i < paths.getLength(); i++) {
+            maxMoveTos = Math.max(maxMoveTos, count(((Element) paths.item(i)).getAttribute("d"), 'M'));
+        }
+        // the line of the series, a subpath per item
+        assertTrue(maxMoveTos >= 49);
+    }
+
+    private static Document render(final String chartType, final String options, final boolean gradient)
+            throws Exception {
+        final Configuration config = TestConfigurations.parse(
+                "<width>400</width><height>300</height><dataFormat>csv</dataFormat>" + options);
+        final StringBuilder csv = new StringBuilder("x,a\n");
+        for (int i = 0; i < 50; i++) {
+            csv.append(i).append(',').append((i * 37) % 11).append('\n');
+        }
+        final JFreeChart chart = JFreeChartFactory.createJFreeChart(chartType, config,
+                new CsvDatasetSource(new StringReader(csv.toString()), ','));
+        if (gradient) {
+            chart.setBackgroundPaint(new GradientPaint(0, 0, Color.WHITE, 0, 300, Color.LIGHT_GRAY));
+        }
+
+        final byte[] bytes = new SVGSTREAMrenderer().render(chart, config);
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(bytes));
+    }
+
+    private static Set<String> ids(final NodeList elements) {
+        final Set<String> ids = new HashSet<>();
+        for (int i = 0; i < elements.getLength(); i++) {
+            ids.add(((Element) elements.item(i)).getAttribute("id"));
+        }
+        return ids;
+    }
+
+    private static String reference(final String url) {
+        return url.substring("url(#".length(), url.length() - 1);
+    }
+
+    private static int moveTos(final NodeList paths) {
+        int moveTos = 0;
+        for (int i = 0; i < paths.getLength(); i++) {
+            moveTos += count(((Element) paths.item(i)).getAttribute("d"), 'M');
+        }
+        return moveTos;
+    }
+
+    private static int count(final String s, final char c) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
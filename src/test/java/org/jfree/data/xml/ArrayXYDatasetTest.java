@@ -0,0 +1,141 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -----------------------
+ * ArrayXYDatasetTest.java
+ * -----------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYDataset;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ArrayXYDataset} and {@link SeriesSorter}.
+ */
+public class ArrayXYDatasetTest {
+
+    private static final String UNSORTED = "<XYDataset><Series name='a'>"
+            + "<Item><X>3</X><Y>30</Y></Item><Item><X>1</X><Y>10</Y></Item>"
+            + "<Item><X>2</X><Y>20</Y></Item><Item><X>1</X><Y>11</Y></Item>"
+            + "</Series></XYDataset>";
+
+    @Test
+    public void sortByXIsStable() {
+        final double[][] sorted = SeriesSorter.sortByX(new double[]{3, 1, Double.NaN, 2, 1},
+                new double[]{30, 10, 99, 20, 11});
+        assertArrayEquals(new double[]{1, 1, 2, 3, Double.NaN}, sorted[0], 0.0);
+        assertArrayEquals(new double[]{10, 11, 20, 30, 99}, sorted[1], 0.0);
+    }
+
+    @Test
+    public void sortedSeriesAreNotCopied() {
+        final double[] valuesX = {1, 2, 2, 5};
+        final double[] valuesY = {4, 3, 2, 1};
+        final double[][] sorted = SeriesSorter.sortByX(valuesX, valuesY);
+        assertSame(valuesX, sorted[0]);
+        assertSame(valuesY, sorted[1]);
+
+        final ArrayXYDataset dataset = new ArrayXYDataset();
+        dataset.addSeries("a", valuesX, valuesY);
+        assertSame(dataset, dataset.sortByX());
+    }
+
+    @Test
+    public void sortByXKeepsTheBounds() {
+        final ArrayXYDataset dataset = new ArrayXYDataset();
+        dataset.addSeries("a", new double[]{4, 2}, new double[]{1, 2}, new Range(0, 9), new Range(-1, 5));
+        dataset.addSeries("b", new double[]{1, 3}, new double[]{7, 8});
+        assertEquals(DomainOrder.NONE, dataset.getDomainOrder());
+
+        final ArrayXYDataset sorted = dataset.sortByX();
+        assertEquals(DomainOrder.ASCENDING, sorted.getDomainOrder());
+        assertArrayEquals(new double[]{2, 4}, sorted.getXValues(0), 0.0);
+        assertArrayEquals(new double[]{2, 1}, sorted.getYValues(0), 0.0);
+        assertEquals(new Range(0, 9), sorted.getSeriesDomainBounds(0));
+        assertEquals(new Range(-1, 5), sorted.getSeriesRangeBounds(0));
+        assertEquals(new Range(-1, 8), sorted.getRangeBounds(false));
+        assertEquals(1.0, sorted.getIntervalWidth(), 0.0);
+    }
+
+    @Test
+    public void itemsAreSortedByDefault() throws Exception {
+        final XYDataset dataset = XYDatasetReader.readXYDatasetFromXML(
+                new ByteArrayInputStream(UNSORTED.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(DomainOrder.ASCENDING, dataset.getDomainOrder());
+        assertArrayEquals(new double[]{1, 1, 2, 3}, ((ArrayXYDataset) dataset).getXValues(0), 0.0);
+        assertArrayEquals(new double[]{10, 11, 20, 30}, ((ArrayXYDataset) dataset).getYValues(0), 0.0);
+    }
+
+    @Test
+    public void itemsKeepTheirOrderWithoutAutoSort() throws Exception {
+        final XYDatasetHandler handler = new XYDatasetHandler();
+        handler.setAutoSort(false);
+        final XYDataset dataset = XYDatasetReader.readXYDatasetFromXML(
+                new ByteArrayInputStream(UNSORTED.getBytes(StandardCharsets.UTF_8)), handler);
+        assertEquals(DomainOrder.NONE, dataset.getDomainOrder());
+        assertArrayEquals(new double[]{3, 1, 2, 1}, ((ArrayXYDataset) dataset).getXValues(0), 0.0);
+    }
+
+    @Test
+    public void equalsHashCodeAndClone() throws CloneNotSupportedException {
+        final ArrayXYDataset dataset = new ArrayXYDataset();
+        dataset.addSeries("a", new double[]{1, 2}, new double[]{3, Double.NaN});
+        final ArrayXYDataset same = new ArrayXYDataset();
+        same.addSeries("a", new double[]{1, 2}, new double[]{3, Double.NaN});
+        assertEquals(dataset, same);
+        assertEquals(dataset.hashCode(), same.hashCode());
+
+        final ArrayXYDataset clone = (ArrayXYDataset) dataset.clone();
+        assertNotSame(dataset.getXValues(0), clone.getXValues(0));
+        assertEquals(dataset, clone);
+
+        clone.getYValues(0)[0] = 4;
+        assertNotEquals(dataset, clone);
+        clone.addSeries("b", new double[]{-5, 0.25}, new double[]{1, 1});
+        assertEquals(1, dataset.getSeriesCount());
+        assertEquals(new Range(1, 2), dataset.getDomainBounds(false));
+        assertEquals(new Range(-5, 2), clone.getDomainBounds(false));
+    }
+}
@@ -0,0 +1,144 @@
+/* ===========================================================
+ * JFreeChart : a free chart library for the Java(tm) platform
+ * ===========================================================
+ *
+ * (C) Copyright 2000-2013, by Object Refinery Limited and Contributors.
+ *
+ * Project Info:  http://www.jfree.org/jfreechart/index.html
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ * [Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.]
+ *
+ * -------------------------
+ * XYZSeriesHandlerTest.java
+ * -------------------------
+ * (C) Copyright 2026
+ *
+ * Changes
+ * -------
+ * 18-Oct-2026 : Version 1;
+ *
+ */
+
+package org.jfree.data.xml;
+
+import org.jfree.data.xy.XYZDataset;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for {@link XYZSeriesHandler}.
+ */
+public class XYZSeriesHandlerTest {
+
+    private static final int LARGE_SERIES = 1_000_000;
+
+    @Test
+    public void eachSeriesHasItsOwnItemCount() throws Exception {
+        final String xml = "<XYZDataset>"
+                + "<Series name='a'><Item><X>1</X><Y>2</Y><Z>3</Z></Item></Series>"
+                + "<Series name='b'><Item><X>4</X><Y>5</Y><Z>6</Z></Item><Item><X>7</X><Y>8</Y><Z>9</Z></Item></Series>"
+                + "</XYZDataset>";
+        final XYZDataset dataset = XYDatasetReader.readXYZDatasetFromXML(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, dataset.getSeriesCount());
+        assertEquals(1, dataset.getItemCount(0));
+        assertEquals(2, dataset.getItemCount(1));
+        assertEquals(7.0, dataset.getXValue(1, 1), 0.0);
+        assertEquals(8.0, dataset.getYValue(1, 1), 0.0);
+        assertEquals(9.0, dataset.getZValue(1, 1), 0.0);
+    }
+
+    /**
+     * A large series allocates less in primitive buffers than in the boxed
+     * lists the handler used before, which allocated a Double per value.
+     */
+    @Test
+    public void largeSeriesAllocatesLessThanBoxedLists() throws SAXException {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        final long thread = Thread.currentThread().getId();
+
+        // warm up, so both measurements run compiled code
+        readBoxed();
+        readPrimitive();
+
+        long start = allocations.getThreadAllocatedBytes(thread);
+        final double[][] boxed = readBoxed();
+        final long boxedBytes = allocations.getThreadAllocatedBytes(thread) - start;
+
+        start = allocations.getThreadAllocatedBytes(thread);
+        final XYZDataset dataset = readPrimitive();
+        final long primitiveBytes = allocations.getThreadAllocatedBytes(thread) - start;
+
+        assertEquals(LARGE_SERIES, boxed[0].length);
+        assertEquals(LARGE_SERIES, dataset.getItemCount(0));
+        assertEquals(boxed[2][LARGE_SERIES - 1], dataset.getZValue(0, LARGE_SERIES - 1), 0.0);
+        assertTrue("primitive " + primitiveBytes + " bytes, boxed " + boxedBytes + " bytes",
+                primitiveBytes < boxedBytes * 0.85);
+    }
+
+    private static XYZDataset readPrimitive() throws SAXException {
+        final XYZDatasetHandler root = new XYZDatasetHandler();
+        root.startElement(null, XYZDatasetTags.XYZDATASET_TAG, XYZDatasetTags.XYZDATASET_TAG, null);
+        final XYZSeriesHandler handler = new XYZSeriesHandler(root);
+        root.pushSubHandler(handler);
+        handler.setSeriesKey("large");
+        for (int item = 0; item < LARGE_SERIES; item++) {
+            handler.addItem(item, item * 0.5, item * 0.25 + 0.1);
+        }
+        handler.endElement(null, XYZDatasetTags.SERIES_TAG, XYZDatasetTags.SERIES_TAG);
+        return root.getDataset();
+    }
+
+    /**
+     * Collects the series the way the handler did before primitive buffers.
+     */
+    private static double[][] readBoxed() {
+        final List<Double> valuesX = new ArrayList<>();
+        final List<Double> valuesY = new ArrayList<>();
+        final List<Double> valuesZ = new ArrayList<>();
+        for (int item = 0; item < LARGE_SERIES; item++) {
+            valuesX.add((double) item);
+            valuesY.add(item * 0.5);
+            valuesZ.add(item * 0.25 + 0.1);
+        }
+        final double[][] values = new double[3][valuesX.size()];
+        for (int item = 0; item < valuesX.size(); item++) {
+            values[0][item] = valuesX.get(item);
+            values[1][item] = valuesY.get(item);
+            values[2][item] = valuesZ.get(item);
+        }
+        return values;
+    }
+}